@@ -0,0 +1,131 @@
+package core;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Índice de bloques de un archivo .cmp con formato por bloques (versión 3).
+ * Se lee desde el final del archivo (pie + índice) y permite saber, para
+ * cada bloque, dónde empieza su registro en el archivo comprimido y qué
+ * parte del archivo original contiene. Con eso se pueden descomprimir
+ * bloques sueltos o varios a la vez.
+ */
+public class BlockIndex {
+
+    // Largo del pie: largo del índice (int) + número mágico
+    private static final int FOOTER_LENGTH = 4 + 4;
+
+    public final int codecId;           // Codificador de los bloques (ver CodecRegistry)
+    public final int blockSize;
+    public final int blockCount;
+    public final long[] recordOffsets;  // Posición de cada registro en el archivo comprimido
+    public final int[] recordLengths;   // Largo de cada registro
+    public final long[] rawOffsets;     // Posición de cada bloque en el archivo original
+    public final int[] rawLengths;      // Tamaño original de cada bloque
+    public final long originalSize;     // Tamaño total del archivo original
+
+    private BlockIndex(int codecId, int blockSize, long[] recordOffsets, int[] recordLengths,
+                       long[] rawOffsets, int[] rawLengths, long originalSize) {
+        this.codecId = codecId;
+        this.blockSize = blockSize;
+        this.blockCount = recordOffsets.length;
+        this.recordOffsets = recordOffsets;
+        this.recordLengths = recordLengths;
+        this.rawOffsets = rawOffsets;
+        this.rawLengths = rawLengths;
+        this.originalSize = originalSize;
+    }
+
+    /**
+     * Lee el índice de un archivo comprimido.
+     * @return El índice, o null si el archivo no es del formato por bloques
+     *         o no tiene un índice válido (en ese caso se puede leer en orden).
+     */
+    public static BlockIndex read(FileChannel channel) throws IOException {
+        long fileSize = channel.size();
+
+        // 1. Encabezado: número mágico, versión, método y tamaño de bloque
+        byte[] header = readAt(channel, 0, (int) Math.min(16, fileSize));
+        if (header.length < 5
+                || header[0] != HuffmanFormat.MAGIC_0 || header[1] != HuffmanFormat.MAGIC_1
+                || header[2] != HuffmanFormat.VERSION_BLOCKS) {
+            return null;
+        }
+        ByteArrayInputStream headerInput = new ByteArrayInputStream(header, 4, header.length - 4);
+        long blockSize = HuffmanFormat.readVarLong(new DataInputStream(headerInput));
+        long headerLength = header.length - headerInput.available();
+
+        // 2. Pie: largo del índice y número mágico
+        if (fileSize < headerLength + 1 + FOOTER_LENGTH) {
+            return null;
+        }
+        ByteBuffer footer = ByteBuffer.wrap(readAt(channel, fileSize - FOOTER_LENGTH, FOOTER_LENGTH));
+        int indexLength = footer.getInt();
+        byte[] magic = new byte[4];
+        footer.get(magic);
+        if (!Arrays.equals(magic, HuffmanFormat.INDEX_MAGIC)
+                || indexLength <= 0 || indexLength > fileSize - headerLength - 1 - FOOTER_LENGTH) {
+            return null;
+        }
+
+        // 3. Índice: cantidad de bloques y (largo del registro, tamaño original) de cada uno
+        long indexOffset = fileSize - FOOTER_LENGTH - indexLength;
+        DataInputStream index = new DataInputStream(new ByteArrayInputStream(readAt(channel, indexOffset, indexLength)));
+        long blockCount = HuffmanFormat.readVarLong(index);
+        if (blockCount > indexLength) {
+            throw new IOException("Índice de bloques corrupto.");
+        }
+
+        long[] recordOffsets = new long[(int) blockCount];
+        int[] recordLengths = new int[(int) blockCount];
+        long[] rawOffsets = new long[(int) blockCount];
+        int[] rawLengths = new int[(int) blockCount];
+        long recordOffset = headerLength;
+        long rawOffset = 0;
+        for (int i = 0; i < blockCount; i++) {
+            long recordLength = HuffmanFormat.readVarLong(index);
+            long rawLength = HuffmanFormat.readVarLong(index);
+            if (recordLength > Integer.MAX_VALUE || rawLength > blockSize) {
+                throw new IOException("Índice de bloques corrupto.");
+            }
+            recordOffsets[i] = recordOffset;
+            recordLengths[i] = (int) recordLength;
+            rawOffsets[i] = rawOffset;
+            rawLengths[i] = (int) rawLength;
+            recordOffset += recordLength;
+            rawOffset += rawLength;
+        }
+
+        // 4. Los registros tienen que terminar justo en la marca de fin
+        if (recordOffset + 1 != indexOffset) {
+            throw new IOException("Índice de bloques corrupto: no coincide con el archivo.");
+        }
+        return new BlockIndex(header[3] & 0xFF, (int) blockSize, recordOffsets, recordLengths, rawOffsets, rawLengths, rawOffset);
+    }
+
+    /**
+     * Busca el bloque que contiene la posición 'position' del archivo original.
+     */
+    public int blockAt(long position) {
+        int found = Arrays.binarySearch(rawOffsets, position);
+        return found >= 0 ? found : -found - 2;
+    }
+
+    /**
+     * Lee 'length' bytes desde 'position' sin mover la posición del canal
+     * (se puede usar desde varios hilos a la vez).
+     */
+    public static byte[] readAt(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) == -1) {
+                throw new IOException("Fin de archivo inesperado.");
+            }
+        }
+        return buffer.array();
+    }
+}
@@ -0,0 +1,393 @@
+package core;
+
+import utils.BitReader;
+import utils.BitWriter;
+import utils.HuffmanCodeTable;
+import utils.HuffmanDecodeTable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Compresión por ordenamiento de bloques (método METHOD_BWT), al estilo de bzip2.
+ *
+ * 1. Transformada de Burrows-Wheeler: se ordenan todos los sufijos del
+ *    bloque (arreglo de sufijos con SA-IS, en tiempo lineal) y se toma el
+ *    byte anterior a cada uno. Los bytes que aparecen en contextos
+ *    parecidos quedan juntos, formando largas rachas del mismo byte.
+ * 2. Move-to-front: cada byte se reemplaza por su posición en una lista de
+ *    bytes usados recientemente, así las rachas se vuelven rachas de ceros.
+ * 3. Las rachas de ceros se escriben en base 2 biyectiva con dos símbolos
+ *    (RUN_A = 1, RUN_B = 2) y el resto de los valores se corre en uno.
+ * 4. Los 257 símbolos resultantes se codifican con Huffman canónico.
+ *
+ * Contenido de un bloque BLOCK_BWT:
+ *   fila del texto original (varint) | longitudes de los 257 símbolos (4 bits c/u) | bits.
+ *
+ * Comprime más lento que Huffman solo, pero mucho mejor: conviene para
+ * archivos que se escriben una vez y se leen pocas veces. Cada bloque se
+ * sigue transformando por separado, así que se comprime en paralelo: los
+ * arreglos de la transformada son de cada llamada y solo la caché de
+ * tablas de HuffmanBlockCodec (para los bloques que no ganan con la
+ * transformada) se comparte entre hilos.
+ */
+public class BwtCodec extends HuffmanBlockCodec {
+
+    // Símbolos de las rachas de ceros; el valor v de move-to-front es el símbolo v + 1
+    private static final int RUN_A = 0;
+    private static final int RUN_B = 1;
+    private static final int SYMBOLS = 257;
+
+    private static final int WRITER_BUFFER_SIZE = 64 * 1024;
+
+    @Override
+    public int id() {
+        return HuffmanFormat.METHOD_BWT;
+    }
+
+    @Override
+    public String name() {
+        return "bwt";
+    }
+
+    @Override
+    public byte[] encodeBlock(byte[] data, int offset, int length) throws IOException {
+        if (length == 0) {
+            return encodeStored(data, offset, length);
+        }
+
+        // 1. Transformada de Burrows-Wheeler
+        byte[] bwt = new byte[length];
+        int primary = transform(data, offset, length, bwt);
+
+        // 2. Move-to-front y rachas de ceros, contando las frecuencias de cada símbolo
+        int[] symbols = new int[length + 1];
+        long[] freqTable = new long[SYMBOLS];
+        int symbolCount = 0;
+        byte[] recent = new byte[256];
+        for (int i = 0; i < 256; i++) {
+            recent[i] = (byte) i;
+        }
+        int run = 0;
+        for (int i = 0; i < length; i++) {
+            byte b = bwt[i];
+            if (recent[0] == b) {
+                run++;
+                continue;
+            }
+            symbolCount = writeRun(run, symbols, symbolCount, freqTable);
+            run = 0;
+
+            // Buscar el byte en la lista y moverlo al frente
+            int index = 1;
+            byte moving = recent[0];
+            while (recent[index] != b) {
+                byte tmp = recent[index];
+                recent[index] = moving;
+                moving = tmp;
+                index++;
+            }
+            recent[index] = moving;
+            recent[0] = b;
+
+            symbols[symbolCount++] = index + 1;
+            freqTable[index + 1]++;
+        }
+        symbolCount = writeRun(run, symbols, symbolCount, freqTable);
+
+        // 3. Códigos canónicos y tamaño exacto del contenido
+        int[] codeLengths = HuffmanCodeTable.buildLengths(freqTable, HuffmanFormat.MAX_CODE_LENGTH);
+        HuffmanCodeTable codeTable = HuffmanCodeTable.fromLengths(codeLengths);
+        ByteArrayOutputStream tableBytes = new ByteArrayOutputStream();
+        DataOutputStream tables = new DataOutputStream(tableBytes);
+        HuffmanFormat.writeVarLong(tables, primary);
+        HuffmanFormat.writePackedLengths(tables, codeLengths);
+        long totalBits = 0;
+        for (int symbol = 0; symbol < SYMBOLS; symbol++) {
+            totalBits += freqTable[symbol] * codeLengths[symbol];
+        }
+        long payloadLength = tableBytes.size() + (totalBits + 7) / 8;
+
+        // 3.b Si la transformada no ayuda (ej. datos aleatorios), Huffman normal o sin comprimir
+        Plan huffman = plan(data, offset, length);
+        if (huffman.recordLength() <= payloadLength + 8) {
+            return huffman.encode();
+        }
+
+        // 4. Escribir el registro
+        ByteArrayOutputStream record = new ByteArrayOutputStream((int) payloadLength + 16);
+        DataOutputStream dos = new DataOutputStream(record);
+        dos.writeByte(HuffmanFormat.BLOCK_BWT);
+        HuffmanFormat.writeVarLong(dos, length);
+        HuffmanFormat.writeVarLong(dos, payloadLength);
+        tableBytes.writeTo(dos);
+
+        long[] codes = codeTable.codes;
+        BitWriter writer = new BitWriter(dos, (int) Math.min(WRITER_BUFFER_SIZE, payloadLength + 8));
+        for (int i = 0; i < symbolCount; i++) {
+            writer.writeBits(codes[symbols[i]], codeLengths[symbols[i]]);
+        }
+        writer.flush();
+
+        return record.toByteArray();
+    }
+
+    @Override
+    public void decodeBlock(int type, byte[] payload, int offset, int length,
+                            byte[] out, int outOffset, int originalSize) throws IOException {
+        if (type != HuffmanFormat.BLOCK_BWT) {
+            super.decodeBlock(type, payload, offset, length, out, outOffset, originalSize);
+            return;
+        }
+
+        // 1. Fila original y tabla de decodificación
+        ByteArrayInputStream tableInput = new ByteArrayInputStream(payload, offset, length);
+        DataInputStream dis = new DataInputStream(tableInput);
+        long primary = HuffmanFormat.readVarLong(dis);
+        if (primary > originalSize) {
+            throw new IOException("Datos comprimidos corruptos: fila original inválida.");
+        }
+        HuffmanCodeTable codeTable = HuffmanCodeTable.fromLengths(HuffmanFormat.readPackedLengths(dis, SYMBOLS));
+        HuffmanDecodeTable decodeTable = new HuffmanDecodeTable(codeTable.codes, codeTable.lengths);
+        int tableLength = length - tableInput.available();
+
+        // 2. Deshacer Huffman, las rachas de ceros y move-to-front
+        BitReader reader = new BitReader(payload, offset + tableLength, length - tableLength);
+        byte[] bwt = new byte[originalSize];
+        byte[] recent = new byte[256];
+        for (int i = 0; i < 256; i++) {
+            recent[i] = (byte) i;
+        }
+        int produced = 0;
+        int run = 0;
+        int runWeight = 1;
+        while (produced + run < originalSize) {
+            int symbol = decodeTable.decodeSymbol(reader);
+            if (symbol == RUN_A || symbol == RUN_B) {
+                run += runWeight << symbol;
+                runWeight <<= 1;
+                if (run > originalSize - produced) {
+                    throw new IOException("Datos comprimidos corruptos: racha demasiado larga.");
+                }
+                continue;
+            }
+            Arrays.fill(bwt, produced, produced + run, recent[0]);
+            produced += run;
+            run = 0;
+            runWeight = 1;
+
+            int index = symbol - 1;
+            byte b = recent[index];
+            System.arraycopy(recent, 0, recent, 1, index);
+            recent[0] = b;
+            bwt[produced++] = b;
+        }
+        Arrays.fill(bwt, produced, produced + run, recent[0]);
+
+        // 3. Transformada inversa
+        inverseTransform(bwt, (int) primary, out, outOffset);
+    }
+
+    // Escribe una racha de 'run' ceros en base 2 biyectiva (dígitos RUN_A = 1, RUN_B = 2)
+    private static int writeRun(int run, int[] symbols, int symbolCount, long[] freqTable) {
+        while (run > 0) {
+            int symbol = (run & 1) == 1 ? RUN_A : RUN_B;
+            symbols[symbolCount++] = symbol;
+            freqTable[symbol]++;
+            run = (run - 1 - symbol) >>> 1;
+        }
+        return symbolCount;
+    }
+
+    // --- Transformada de Burrows-Wheeler ---
+    // Se agrega un centinela menor que todos los bytes, así ordenar las
+    // rotaciones es lo mismo que ordenar los sufijos. La fila del centinela
+    // no se guarda: se devuelve su posición (la "fila original").
+    private static int transform(byte[] data, int offset, int length, byte[] bwt) {
+        int n = length + 1;
+        int[] text = new int[n];
+        for (int i = 0; i < length; i++) {
+            text[i] = (data[offset + i] & 0xFF) + 1;
+        }
+        int[] suffixArray = new int[n];
+        buildSuffixArray(text, suffixArray, n, 257);
+
+        int primary = 0;
+        int j = 0;
+        for (int i = 0; i < n; i++) {
+            int suffix = suffixArray[i];
+            if (suffix == 0) {
+                primary = i;
+            } else {
+                bwt[j++] = data[offset + suffix - 1];
+            }
+        }
+        return primary;
+    }
+
+    // Reconstruye el bloque siguiendo el mapeo "última columna -> primera columna"
+    // desde la fila del sufijo vacío, de atrás hacia adelante.
+    private static void inverseTransform(byte[] bwt, int primary, byte[] out, int outOffset) {
+        int n = bwt.length;
+
+        // 1. Dónde empieza cada byte en la primera columna (la fila 0 es el centinela)
+        int[] next = new int[256];
+        for (byte b : bwt) {
+            next[b & 0xFF]++;
+        }
+        int sum = 1;
+        for (int c = 0; c < 256; c++) {
+            int count = next[c];
+            next[c] = sum;
+            sum += count;
+        }
+
+        // 2. Fila anterior de cada fila (la fila 'primary' tiene al centinela)
+        int[] previousRow = new int[n + 1];
+        for (int row = 0; row <= n; row++) {
+            if (row == primary) {
+                continue;
+            }
+            int c = bwt[row < primary ? row : row - 1] & 0xFF;
+            previousRow[row] = next[c]++;
+        }
+
+        // 3. Recorrer desde la fila 0 (sufijo vacío), que termina en el último byte
+        int row = 0;
+        for (int i = n - 1; i >= 0; i--) {
+            out[outOffset + i] = bwt[row < primary ? row : row - 1];
+            row = previousRow[row];
+        }
+    }
+
+    // --- Arreglo de sufijos con SA-IS (Nong, Zhang y Chan) ---
+    // text[n - 1] debe ser 0, único y menor que el resto; los valores están en [0, alphabetSize).
+    // Los sufijos se clasifican en S (menor que el siguiente) o L (mayor); los
+    // LMS (un S después de un L) se ordenan primero, de forma recursiva si hace
+    // falta, y con ellos se "inducen" las posiciones de todos los demás.
+    private static void buildSuffixArray(int[] text, int[] sa, int n, int alphabetSize) {
+        boolean[] sType = new boolean[n];
+        sType[n - 1] = true;
+        for (int i = n - 2; i >= 0; i--) {
+            sType[i] = text[i] < text[i + 1] || (text[i] == text[i + 1] && sType[i + 1]);
+        }
+        int[] bucket = new int[alphabetSize];
+
+        // 1. Ordenar las subcadenas LMS: ubicarlas al final de su cubeta e inducir
+        bucketEnds(text, n, bucket);
+        Arrays.fill(sa, 0, n, -1);
+        for (int i = 1; i < n; i++) {
+            if (isLms(sType, i)) {
+                sa[--bucket[text[i]]] = i;
+            }
+        }
+        induce(text, sa, sType, n, bucket);
+
+        // 2. Dar un nombre a cada subcadena LMS (iguales = mismo nombre)
+        int lmsCount = 0;
+        for (int i = 0; i < n; i++) {
+            if (isLms(sType, sa[i])) {
+                sa[lmsCount++] = sa[i];
+            }
+        }
+        Arrays.fill(sa, lmsCount, n, -1);
+        int names = 0;
+        int previous = -1;
+        for (int i = 0; i < lmsCount; i++) {
+            int position = sa[i];
+            boolean different = previous < 0;
+            for (int d = 0; !different; d++) {
+                if (text[position + d] != text[previous + d] || sType[position + d] != sType[previous + d]) {
+                    different = true;
+                } else if (d > 0 && (isLms(sType, position + d) || isLms(sType, previous + d))) {
+                    break;
+                }
+            }
+            if (different) {
+                names++;
+                previous = position;
+            }
+            sa[lmsCount + (position >>> 1)] = names - 1;
+        }
+        int[] reduced = new int[lmsCount];
+        for (int i = n - 1, j = lmsCount - 1; i >= lmsCount; i--) {
+            if (sa[i] >= 0) {
+                reduced[j--] = sa[i];
+            }
+        }
+
+        // 3. Ordenar los sufijos LMS: recursivamente si hay nombres repetidos
+        int[] reducedSa = new int[lmsCount];
+        if (names < lmsCount) {
+            buildSuffixArray(reduced, reducedSa, lmsCount, names);
+        } else {
+            for (int i = 0; i < lmsCount; i++) {
+                reducedSa[reduced[i]] = i;
+            }
+        }
+
+        // 4. Ubicar los LMS ya ordenados e inducir el resto
+        for (int i = 1, j = 0; i < n; i++) {
+            if (isLms(sType, i)) {
+                reduced[j++] = i;
+            }
+        }
+        bucketEnds(text, n, bucket);
+        Arrays.fill(sa, 0, n, -1);
+        for (int i = lmsCount - 1; i >= 0; i--) {
+            int position = reduced[reducedSa[i]];
+            sa[--bucket[text[position]]] = position;
+        }
+        induce(text, sa, sType, n, bucket);
+    }
+
+    // Inducción: primero los sufijos L (de izquierda a derecha), luego los S (al revés)
+    private static void induce(int[] text, int[] sa, boolean[] sType, int n, int[] bucket) {
+        bucketStarts(text, n, bucket);
+        for (int i = 0; i < n; i++) {
+            int j = sa[i] - 1;
+            if (j >= 0 && !sType[j]) {
+                sa[bucket[text[j]]++] = j;
+            }
+        }
+        bucketEnds(text, n, bucket);
+        for (int i = n - 1; i >= 0; i--) {
+            int j = sa[i] - 1;
+            if (j >= 0 && sType[j]) {
+                sa[--bucket[text[j]]] = j;
+            }
+        }
+    }
+
+    private static boolean isLms(boolean[] sType, int i) {
+        return i > 0 && sType[i] && !sType[i - 1];
+    }
+
+    private static void bucketStarts(int[] text, int n, int[] bucket) {
+        Arrays.fill(bucket, 0);
+        for (int i = 0; i < n; i++) {
+            bucket[text[i]]++;
+        }
+        int sum = 0;
+        for (int c = 0; c < bucket.length; c++) {
+            int count = bucket[c];
+            bucket[c] = sum;
+            sum += count;
+        }
+    }
+
+    private static void bucketEnds(int[] text, int n, int[] bucket) {
+        Arrays.fill(bucket, 0);
+        for (int i = 0; i < n; i++) {
+            bucket[text[i]]++;
+        }
+        int sum = 0;
+        for (int c = 0; c < bucket.length; c++) {
+            sum += bucket[c];
+            bucket[c] = sum;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package core;
+
+import utils.HuffmanCodeTable;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caché LRU de tablas de códigos ya construidas (ver HuffmanBlockCodec).
+ *
+ * Al comprimir muchos archivos parecidos (ej. una carpeta con FileWalker)
+ * casi todos los bloques terminan con la misma tabla. La clave es una firma
+ * del histograma: para cada byte, el largo aproximado de su código (el
+ * logaritmo en base 2 de cuántas veces es menos frecuente que el total,
+ * en pasos de 2 bits), o 0 si no aparece. Dos bloques con la misma firma
+ * usan los mismos bytes y en proporciones parecidas, así que la tabla
+ * guardada sirve para ambos.
+ *
+ * Antes de reutilizar una tabla se estima su costo: debe quedar a menos de
+ * MAX_LOSS por encima de lo que habría costado una tabla propia (estimado
+ * con la entropía del bloque más la redundancia que tuvo la tabla guardada
+ * con su propio histograma). Si no, se construye una tabla nueva.
+ *
+ * Solo se ahorra construir la tabla: cada registro sigue llevando su tabla
+ * de longitudes completa. Un registro que apunte a una tabla de otro
+ * bloque ya no se podría decodificar solo (descompresión en paralelo, por
+ * rango), así que no se usa (ver Codec).
+ *
+ * Se puede usar desde varios hilos a la vez.
+ */
+final class CodeTableCache {
+
+    // Cantidad de tablas guardadas
+    private static final int CAPACITY = 64;
+
+    // Pérdida de compresión aceptada al reutilizar una tabla (0,5 %)
+    private static final double MAX_LOSS = 0.005;
+
+    /**
+     * Tabla construida: longitudes, códigos canónicos y su encabezado ya escrito.
+     */
+    static final class Table {
+        final int[] lengths;
+        final HuffmanCodeTable codeTable;
+        final byte[] tableBytes;     // Como en HuffmanFormat.writeCodeLengths
+        final double redundancy;     // Bits por símbolo sobre la entropía, con su propio histograma
+
+        private Table(int[] lengths, byte[] tableBytes, double redundancy) {
+            this.lengths = lengths;
+            this.codeTable = HuffmanCodeTable.fromLengths(lengths);
+            this.tableBytes = tableBytes;
+            this.redundancy = redundancy;
+        }
+    }
+
+    // Firma del histograma (256 bytes) usada como clave
+    private static final class Signature {
+        private final byte[] buckets;
+        private final int hash;
+
+        private Signature(byte[] buckets) {
+            this.buckets = buckets;
+            this.hash = Arrays.hashCode(buckets);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Signature && Arrays.equals(buckets, ((Signature) other).buckets);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    // LinkedHashMap en orden de acceso: la entrada más vieja es la menos usada
+    private final Map<Signature, Table> tables = new LinkedHashMap<>(CAPACITY * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Signature, Table> eldest) {
+            return size() > CAPACITY;
+        }
+    };
+
+    /**
+     * Devuelve una tabla para estas frecuencias: la de la caché si la firma
+     * coincide y la pérdida estimada es despreciable, o una construida ahora.
+     *
+     * @param freqTable frecuencia de cada byte del bloque
+     * @param total     suma de las frecuencias (el tamaño del bloque)
+     */
+    Table get(long[] freqTable, long total) throws IOException {
+
+        // 1. Firma y entropía del bloque (en bits)
+        byte[] buckets = new byte[256];
+        double entropyBits = 0;
+        for (int symbol = 0; symbol < 256; symbol++) {
+            long freq = freqTable[symbol];
+            if (freq > 0) {
+                buckets[symbol] = (byte) ((65 - Long.numberOfLeadingZeros(total / freq)) / 2);
+                entropyBits += freq * (Math.log((double) total / freq) / Math.log(2));
+            }
+        }
+        Signature signature = new Signature(buckets);
+
+        // 2. Reutilizar la tabla guardada si cuesta casi lo mismo que una propia
+        Table cached;
+        synchronized (this) {
+            cached = tables.get(signature);
+        }
+        if (cached != null) {
+            long bits = 0;
+            for (int symbol = 0; symbol < 256; symbol++) {
+                bits += freqTable[symbol] * cached.lengths[symbol];
+            }
+            double expected = entropyBits + cached.redundancy * total;
+            if (bits <= expected * (1 + MAX_LOSS) + 8) {
+                return cached;
+            }
+        }
+
+        // 3. Construir una tabla nueva (fuera del candado) y guardarla
+        int[] lengths = HuffmanCodeTable.buildLengths(freqTable, HuffmanFormat.MAX_CODE_LENGTH);
+        long bits = 0;
+        for (int symbol = 0; symbol < 256; symbol++) {
+            bits += freqTable[symbol] * lengths[symbol];
+        }
+        ByteArrayOutputStream tableBytes = new ByteArrayOutputStream();
+        HuffmanFormat.writeCodeLengths(new DataOutputStream(tableBytes), lengths);
+        Table table = new Table(lengths, tableBytes.toByteArray(), total > 0 ? (bits - entropyBits) / total : 0);
+        synchronized (this) {
+            tables.put(signature, table);
+        }
+        return table;
+    }
+}
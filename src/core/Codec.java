@@ -0,0 +1,116 @@
+package core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Codificador de bloques del formato por bloques (ver HuffmanFormat).
+ *
+ * Cada implementación se registra en CodecRegistry con un identificador
+ * que se guarda en el encabezado del archivo (el byte de "método"), así el
+ * descompresor elige el codificador correcto sin depender de la extensión
+ * ni de quién creó el archivo. El contenedor (encabezado, registros,
+ * índice, compresión en paralelo) es el mismo para todos.
+ *
+ * Las implementaciones deben ser seguras para varios hilos: la misma
+ * instancia se usa desde varios hilos a la vez (compresión en paralelo,
+ * carpetas con FileWalker). Pueden guardar estado compartido entre
+ * llamadas, como una caché, si lo sincronizan; pero cada registro debe
+ * poder decodificarse solo con su contenido, sin depender de ese estado.
+ */
+public interface Codec {
+
+    /**
+     * Identificador que se escribe en el encabezado (0-255).
+     */
+    int id();
+
+    /**
+     * Nombre corto para elegir el codificador (ej. "huffman", "fse").
+     */
+    String name();
+
+    /**
+     * Describe todo lo que cambia la salida del codificador: el nombre y,
+     * si usa datos externos (ej. un diccionario), cuáles. FileWalker lo
+     * guarda en el manifiesto para saber si hay que volver a comprimir.
+     */
+    default String settings() {
+        return name();
+    }
+
+    /**
+     * Comprime un bloque y devuelve el registro completo, listo para
+     * escribirse en el archivo: tipo, tamaños y contenido.
+     * @param data   Arreglo con los datos originales
+     * @param offset Inicio del bloque dentro del arreglo
+     * @param length Cantidad de bytes del bloque
+     */
+    byte[] encodeBlock(byte[] data, int offset, int length) throws IOException;
+
+    /**
+     * Descomprime el contenido de un bloque.
+     * @param type         Tipo de bloque (leído del registro)
+     * @param payload      Arreglo con el contenido del bloque
+     * @param offset       Inicio del contenido
+     * @param length       Largo del contenido
+     * @param out          Arreglo de salida
+     * @param outOffset    Posición de salida
+     * @param originalSize Cantidad de bytes originales del bloque
+     */
+    void decodeBlock(int type, byte[] payload, int offset, int length,
+                     byte[] out, int outOffset, int originalSize) throws IOException;
+
+    /**
+     * Guarda un bloque sin comprimir (registro de tipo BLOCK_STORED).
+     */
+    default byte[] encodeStored(byte[] data, int offset, int length) throws IOException {
+        ByteArrayOutputStream record = new ByteArrayOutputStream(length + 16);
+        DataOutputStream dos = new DataOutputStream(record);
+        writeStoredHeader(dos, length);
+        dos.write(data, offset, length);
+        return record.toByteArray();
+    }
+
+    /**
+     * Escribe solo la cabecera de un registro sin comprimir; los 'length'
+     * bytes originales se escriben a continuación tal cual.
+     */
+    default void writeStoredHeader(DataOutputStream dos, int length) throws IOException {
+        dos.writeByte(HuffmanFormat.BLOCK_STORED);
+        HuffmanFormat.writeVarLong(dos, length);
+        HuffmanFormat.writeVarLong(dos, length);
+    }
+
+    /**
+     * Descomprime un registro completo (tal como lo devuelve encodeBlock).
+     * @return Cantidad de bytes originales escritos en out
+     */
+    default int decodeRecord(byte[] record, int offset, int length, byte[] out, int outOffset) throws IOException {
+        ByteArrayInputStream input = new ByteArrayInputStream(record, offset, length);
+        DataInputStream dis = new DataInputStream(input);
+        int type = dis.readUnsignedByte();
+        long originalSize = HuffmanFormat.readVarLong(dis);
+        long payloadLength = HuffmanFormat.readVarLong(dis);
+        int headerLength = length - input.available();
+        if (payloadLength != length - headerLength || originalSize > out.length - outOffset) {
+            throw new IOException("Datos comprimidos corruptos: registro de bloque inválido.");
+        }
+        decodeBlock(type, record, offset + headerLength, (int) payloadLength, out, outOffset, (int) originalSize);
+        return (int) originalSize;
+    }
+
+    /**
+     * Copia el contenido de un bloque BLOCK_STORED (común a todos los codificadores).
+     */
+    static void decodeStored(byte[] payload, int offset, int length,
+                             byte[] out, int outOffset, int originalSize) throws IOException {
+        if (length != originalSize) {
+            throw new IOException("Datos comprimidos corruptos: bloque sin comprimir inválido.");
+        }
+        System.arraycopy(payload, offset, out, outOffset, originalSize);
+    }
+}
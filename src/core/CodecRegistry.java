@@ -0,0 +1,75 @@
+package core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registro de los codificadores de bloques disponibles.
+ * El compresor anota el identificador del codificador en el encabezado y
+ * el descompresor lo busca aquí, así que agregar un codificador nuevo solo
+ * requiere registrarlo (los que vienen con el proyecto ya están registrados).
+ */
+public final class CodecRegistry {
+
+    private static final Map<Integer, Codec> CODECS = new LinkedHashMap<>();
+
+    static {
+        register(new HuffmanBlockCodec());
+        register(new LzHuffmanCodec());
+        register(new FseCodec());
+        register(new ContextHuffmanCodec());
+        register(new BwtCodec());
+        register(new DictionaryCodec());
+    }
+
+    private CodecRegistry() {
+    }
+
+    /**
+     * Registra un codificador. Su identificador no puede estar ocupado por otro.
+     */
+    public static synchronized void register(Codec codec) {
+        int id = codec.id();
+        if (id < 0 || id > 0xFF) {
+            throw new IllegalArgumentException("Identificador de codificador fuera de rango: " + id);
+        }
+        Codec existing = CODECS.get(id);
+        if (existing != null && existing.getClass() != codec.getClass()) {
+            throw new IllegalArgumentException("El identificador " + id + " ya lo usa " + existing.name());
+        }
+        CODECS.put(id, codec);
+    }
+
+    /**
+     * Busca el codificador indicado en el encabezado de un archivo.
+     */
+    public static synchronized Codec get(int id) throws IOException {
+        Codec codec = CODECS.get(id);
+        if (codec == null) {
+            throw new IOException("Método de compresión no soportado: " + id);
+        }
+        return codec;
+    }
+
+    /**
+     * Busca un codificador por nombre (ej. "huffman", "lz", "fse", "context", "bwt", "dictionary").
+     */
+    public static synchronized Codec byName(String name) {
+        for (Codec codec : CODECS.values()) {
+            if (codec.name().equalsIgnoreCase(name)) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("Codificador desconocido: " + name);
+    }
+
+    /**
+     * Todos los codificadores registrados, en orden de registro.
+     */
+    public static synchronized List<Codec> all() {
+        return new ArrayList<>(CODECS.values());
+    }
+}
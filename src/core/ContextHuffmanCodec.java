@@ -0,0 +1,277 @@
+package core;
+
+import utils.BitReader;
+import utils.BitWriter;
+import utils.HuffmanCodeTable;
+import utils.HuffmanDecodeTable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Huffman con contexto de orden 1 (método METHOD_CONTEXT_HUFFMAN).
+ *
+ * En texto y datos estructurados el próximo byte depende mucho del
+ * anterior (ej. después de 'q' casi siempre viene 'u'). En lugar de una
+ * sola tabla para todo el bloque, cada byte se codifica con la tabla del
+ * contexto formado por el byte anterior.
+ *
+ * Guardar 256 tablas haría el encabezado enorme, así que los contextos
+ * parecidos se agrupan (k-means sobre sus distribuciones) en a lo sumo
+ * MAX_TABLES tablas. El encabezado lleva a qué grupo pertenece cada
+ * contexto y la tabla de longitudes de cada grupo.
+ *
+ * Contenido de un bloque BLOCK_CONTEXT:
+ *   cantidad de tablas | grupo de cada contexto (256 x 4 bits) |
+ *   longitudes de cada tabla (como en HuffmanFormat.writeCodeLengths) | bits.
+ *
+ * Si el bloque no gana nada con los contextos (o es muy chico para pagar
+ * el encabezado), se usa Huffman normal o se guarda sin comprimir. Para
+ * eso usa la caché de tablas heredada de HuffmanBlockCodec, compartida
+ * entre los hilos que usan la misma instancia.
+ */
+public class ContextHuffmanCodec extends HuffmanBlockCodec {
+
+    // Máximo de tablas por bloque (el grupo de cada contexto cabe en 4 bits)
+    private static final int MAX_TABLES = 16;
+
+    // Vueltas de k-means para agrupar los contextos
+    private static final int CLUSTER_ITERATIONS = 4;
+
+    // En bloques más chicos el encabezado (mapa + tablas) no se llega a pagar
+    private static final int MIN_CONTEXT_BLOCK = 16 * 1024;
+
+    private static final int WRITER_BUFFER_SIZE = 64 * 1024;
+
+    @Override
+    public int id() {
+        return HuffmanFormat.METHOD_CONTEXT_HUFFMAN;
+    }
+
+    @Override
+    public String name() {
+        return "context";
+    }
+
+    @Override
+    public byte[] encodeBlock(byte[] data, int offset, int length) throws IOException {
+        if (length < MIN_CONTEXT_BLOCK) {
+            return super.encodeBlock(data, offset, length);
+        }
+
+        // 1. Frecuencias de cada byte según el byte anterior (el primero usa el contexto 0)
+        long[][] contextFreq = new long[256][256];
+        int previous = 0;
+        for (int i = offset; i < offset + length; i++) {
+            int symbol = data[i] & 0xFF;
+            contextFreq[previous][symbol]++;
+            previous = symbol;
+        }
+
+        // 2. Agrupar los contextos y sumar las frecuencias de cada grupo
+        int[] contextMap = clusterContexts(contextFreq);
+        int tableCount = 0;
+        for (int cluster : contextMap) {
+            tableCount = Math.max(tableCount, cluster + 1);
+        }
+        long[][] clusterFreq = new long[tableCount][256];
+        for (int context = 0; context < 256; context++) {
+            for (int symbol = 0; symbol < 256; symbol++) {
+                clusterFreq[contextMap[context]][symbol] += contextFreq[context][symbol];
+            }
+        }
+
+        // 3. Una tabla canónica por grupo y el tamaño exacto del contenido
+        ByteArrayOutputStream tableBytes = new ByteArrayOutputStream();
+        DataOutputStream tables = new DataOutputStream(tableBytes);
+        tables.writeByte(tableCount);
+        for (int context = 0; context < 256; context += 2) {
+            tables.writeByte((contextMap[context] << 4) | contextMap[context + 1]);
+        }
+        HuffmanCodeTable[] codeTables = new HuffmanCodeTable[tableCount];
+        long totalBits = 0;
+        for (int t = 0; t < tableCount; t++) {
+            int[] codeLengths = HuffmanCodeTable.buildLengths(clusterFreq[t], HuffmanFormat.MAX_CODE_LENGTH);
+            HuffmanFormat.writeCodeLengths(tables, codeLengths);
+            codeTables[t] = HuffmanCodeTable.fromLengths(codeLengths);
+            for (int symbol = 0; symbol < 256; symbol++) {
+                totalBits += clusterFreq[t][symbol] * codeLengths[symbol];
+            }
+        }
+        long payloadLength = tableBytes.size() + (totalBits + 7) / 8;
+
+        // 3.b Si los contextos no compensan su encabezado, Huffman normal (o sin comprimir)
+        //     según el tamaño planeado, sin codificar el bloque dos veces
+        Plan huffman = plan(data, offset, length);
+        if (huffman.recordLength() <= payloadLength + 8) {
+            return huffman.encode();
+        }
+
+        // 4. Escribir el registro, cambiando de tabla según el byte anterior
+        ByteArrayOutputStream record = new ByteArrayOutputStream((int) payloadLength + 16);
+        DataOutputStream dos = new DataOutputStream(record);
+        dos.writeByte(HuffmanFormat.BLOCK_CONTEXT);
+        HuffmanFormat.writeVarLong(dos, length);
+        HuffmanFormat.writeVarLong(dos, payloadLength);
+        tableBytes.writeTo(dos);
+
+        HuffmanCodeTable[] contextTables = new HuffmanCodeTable[256];
+        for (int context = 0; context < 256; context++) {
+            contextTables[context] = codeTables[contextMap[context]];
+        }
+        BitWriter writer = new BitWriter(dos, (int) Math.min(WRITER_BUFFER_SIZE, payloadLength + 8));
+        previous = 0;
+        for (int i = offset; i < offset + length; i++) {
+            int symbol = data[i] & 0xFF;
+            HuffmanCodeTable table = contextTables[previous];
+            writer.writeBits(table.codes[symbol], table.lengths[symbol]);
+            previous = symbol;
+        }
+        writer.flush();
+
+        return record.toByteArray();
+    }
+
+    @Override
+    public void decodeBlock(int type, byte[] payload, int offset, int length,
+                            byte[] out, int outOffset, int originalSize) throws IOException {
+        if (type != HuffmanFormat.BLOCK_CONTEXT) {
+            super.decodeBlock(type, payload, offset, length, out, outOffset, originalSize);
+            return;
+        }
+
+        // 1. Leer el grupo de cada contexto y las tablas de cada grupo
+        ByteArrayInputStream tableInput = new ByteArrayInputStream(payload, offset, length);
+        DataInputStream dis = new DataInputStream(tableInput);
+        int tableCount = dis.readUnsignedByte();
+        if (tableCount == 0 || tableCount > MAX_TABLES) {
+            throw new IOException("Encabezado corrupto: cantidad de tablas inválida (" + tableCount + ").");
+        }
+        int[] contextMap = new int[256];
+        for (int context = 0; context < 256; context += 2) {
+            int packed = dis.readUnsignedByte();
+            contextMap[context] = packed >>> 4;
+            contextMap[context + 1] = packed & 0x0F;
+        }
+        HuffmanDecodeTable[] decodeTables = new HuffmanDecodeTable[tableCount];
+        for (int t = 0; t < tableCount; t++) {
+            HuffmanCodeTable codeTable = HuffmanCodeTable.fromLengths(HuffmanFormat.readCodeLengths(dis));
+            decodeTables[t] = new HuffmanDecodeTable(codeTable.codes, codeTable.lengths);
+        }
+        HuffmanDecodeTable[] contextTables = new HuffmanDecodeTable[256];
+        for (int context = 0; context < 256; context++) {
+            if (contextMap[context] >= tableCount) {
+                throw new IOException("Encabezado corrupto: contexto sin tabla.");
+            }
+            contextTables[context] = decodeTables[contextMap[context]];
+        }
+        int tableLength = length - tableInput.available();
+
+        // 2. Decodificar: la tabla de cada símbolo la decide el símbolo anterior
+        BitReader reader = new BitReader(payload, offset + tableLength, length - tableLength);
+        int previous = 0;
+        for (int pos = outOffset; pos < outOffset + originalSize; pos++) {
+            int symbol = contextTables[previous].decodeSymbol(reader);
+            out[pos] = (byte) symbol;
+            previous = symbol;
+        }
+    }
+
+    // Agrupa los contextos con k-means: cada contexto va al grupo cuya
+    // distribución lo codifica con menos bits. Devuelve el grupo de cada contexto.
+    private static int[] clusterContexts(long[][] contextFreq) {
+        int[] contextMap = new int[256];
+
+        // 1. Los contextos más usados son las semillas de los grupos
+        long[] contextTotal = new long[256];
+        int used = 0;
+        for (int context = 0; context < 256; context++) {
+            for (long freq : contextFreq[context]) {
+                contextTotal[context] += freq;
+            }
+            if (contextTotal[context] > 0) {
+                used++;
+            }
+        }
+        int clusterCount = Math.min(MAX_TABLES, used);
+        if (clusterCount <= 1) {
+            return contextMap;
+        }
+        boolean[] seeded = new boolean[256];
+        long[][] clusterFreq = new long[clusterCount][];
+        for (int k = 0; k < clusterCount; k++) {
+            int best = -1;
+            for (int context = 0; context < 256; context++) {
+                if (!seeded[context] && (best < 0 || contextTotal[context] > contextTotal[best])) {
+                    best = context;
+                }
+            }
+            seeded[best] = true;
+            clusterFreq[k] = contextFreq[best].clone();
+        }
+
+        // 2. Asignar cada contexto al grupo más barato y recalcular los grupos
+        double[][] cost = new double[clusterCount][256];
+        for (int iteration = 0; iteration < CLUSTER_ITERATIONS; iteration++) {
+            // Bits estimados de cada símbolo en cada grupo (con un poco de
+            // suavizado para que un símbolo ausente no cueste infinito)
+            for (int k = 0; k < clusterCount; k++) {
+                long total = 0;
+                for (long freq : clusterFreq[k]) {
+                    total += freq;
+                }
+                double logTotal = Math.log(total + 128.0);
+                for (int symbol = 0; symbol < 256; symbol++) {
+                    cost[k][symbol] = logTotal - Math.log(clusterFreq[k][symbol] + 0.5);
+                }
+            }
+
+            for (int context = 0; context < 256; context++) {
+                if (contextTotal[context] == 0) {
+                    continue;
+                }
+                long[] freq = contextFreq[context];
+                int best = 0;
+                double bestCost = Double.MAX_VALUE;
+                for (int k = 0; k < clusterCount; k++) {
+                    double bits = 0;
+                    for (int symbol = 0; symbol < 256; symbol++) {
+                        if (freq[symbol] > 0) {
+                            bits += freq[symbol] * cost[k][symbol];
+                        }
+                    }
+                    if (bits < bestCost) {
+                        bestCost = bits;
+                        best = k;
+                    }
+                }
+                contextMap[context] = best;
+            }
+
+            clusterFreq = new long[clusterCount][256];
+            for (int context = 0; context < 256; context++) {
+                for (int symbol = 0; symbol < 256; symbol++) {
+                    clusterFreq[contextMap[context]][symbol] += contextFreq[context][symbol];
+                }
+            }
+        }
+
+        // 3. Numerar los grupos que quedaron con contextos, sin huecos
+        int[] renumber = new int[clusterCount];
+        int next = 0;
+        for (int k = 0; k < clusterCount; k++) {
+            long total = 0;
+            for (long freq : clusterFreq[k]) {
+                total += freq;
+            }
+            renumber[k] = total > 0 ? next++ : -1;
+        }
+        for (int context = 0; context < 256; context++) {
+            int cluster = renumber[contextMap[context]];
+            contextMap[context] = cluster >= 0 ? cluster : 0;
+        }
+        return contextMap;
+    }
+}
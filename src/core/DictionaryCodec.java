@@ -0,0 +1,135 @@
+package core;
+
+import utils.BitReader;
+import utils.HuffmanCodeTable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Huffman con tablas de un diccionario compartido (método METHOD_DICTIONARY).
+ *
+ * Pensado para muchos archivos chicos y parecidos (ej. fragmentos JSON o
+ * de log): en lugar de guardar la tabla de longitudes en cada bloque, el
+ * bloque anota el identificador del diccionario y el número de la tabla
+ * que mejor lo codifica. El diccionario se entrena antes con
+ * DictionaryTrainer y el descompresor lo busca en DictionaryRegistry.
+ *
+ * Contenido de un bloque BLOCK_DICTIONARY:
+ *   identificador del diccionario (varint) | número de tabla | bits.
+ *
+ * Si la tabla propia del bloque sale más barata (bloques grandes o datos
+ * distintos a los del entrenamiento), se usa Huffman normal o se guarda
+ * sin comprimir, igual que en HuffmanBlockCodec.
+ *
+ * El diccionario solo se lee y la caché de tablas heredada está
+ * sincronizada, así que la misma instancia sirve para varios hilos.
+ */
+public class DictionaryCodec extends HuffmanBlockCodec {
+
+    // Diccionario para comprimir (null: solo descomprime, o comprime como Huffman normal)
+    private final HuffmanDictionary dictionary;
+
+    public DictionaryCodec() {
+        this(null);
+    }
+
+    /**
+     * @param dictionary diccionario con el que se comprimen los bloques; se
+     *                   registra para poder descomprimirlos en el mismo proceso
+     */
+    public DictionaryCodec(HuffmanDictionary dictionary) {
+        this.dictionary = dictionary;
+        if (dictionary != null) {
+            DictionaryRegistry.register(dictionary);
+        }
+    }
+
+    @Override
+    public int id() {
+        return HuffmanFormat.METHOD_DICTIONARY;
+    }
+
+    @Override
+    public String name() {
+        return "dictionary";
+    }
+
+    @Override
+    public String settings() {
+        // Otro diccionario da otra salida: entra el identificador
+        return dictionary == null ? name() : name() + ":" + Integer.toHexString(dictionary.id());
+    }
+
+    @Override
+    public byte[] encodeBlock(byte[] data, int offset, int length) throws IOException {
+        if (dictionary == null || length == 0) {
+            return super.encodeBlock(data, offset, length);
+        }
+
+        // 1. Frecuencias del bloque y la tabla del diccionario que menos bits usa
+        long[] freqTable = new long[256];
+        for (int i = offset; i < offset + length; i++) {
+            freqTable[data[i] & 0xFF]++;
+        }
+        int table = dictionary.bestTable(freqTable);
+        long totalBits = dictionary.encodedBits(table, freqTable);
+
+        // 2. Encabezado: identificador del diccionario y número de tabla
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream(headerBytes);
+        HuffmanFormat.writeVarLong(header, dictionary.id() & 0xFFFFFFFFL);
+        header.writeByte(table);
+        long dictionaryLength = headerBytes.size() + (totalBits + 7) / 8;
+
+        // 3. Quedarse con lo más chico: el diccionario o Huffman normal (o sin comprimir).
+        //    En archivos chicos cada byte cuenta, así que se comparan los registros completos
+        //    antes de codificar, y solo se codifica el elegido.
+        int payloadLength = (int) dictionaryLength;
+        long recordLength = 1 + HuffmanFormat.varLongLength(length) + HuffmanFormat.varLongLength(payloadLength) + payloadLength;
+        Plan huffman = plan(data, offset, length);
+        if (huffman.recordLength() <= recordLength) {
+            return huffman.encode();
+        }
+
+        // 4. Escribir el registro
+        ByteArrayOutputStream record = new ByteArrayOutputStream(payloadLength + 16);
+        DataOutputStream dos = new DataOutputStream(record);
+        dos.writeByte(HuffmanFormat.BLOCK_DICTIONARY);
+        HuffmanFormat.writeVarLong(dos, length);
+        HuffmanFormat.writeVarLong(dos, payloadLength);
+        headerBytes.writeTo(dos);
+        HuffmanCodeTable codeTable = dictionary.codeTable(table);
+        writeStream(dos, data, offset, length, codeTable, payloadLength - headerBytes.size());
+        return record.toByteArray();
+    }
+
+    @Override
+    public void decodeBlock(int type, byte[] payload, int offset, int length,
+                            byte[] out, int outOffset, int originalSize) throws IOException {
+        if (type != HuffmanFormat.BLOCK_DICTIONARY) {
+            super.decodeBlock(type, payload, offset, length, out, outOffset, originalSize);
+            return;
+        }
+
+        // 1. Buscar el diccionario y la tabla del bloque
+        ByteArrayInputStream headerInput = new ByteArrayInputStream(payload, offset, length);
+        DataInputStream dis = new DataInputStream(headerInput);
+        long id = HuffmanFormat.readVarLong(dis);
+        int table = dis.readUnsignedByte();
+        if (id < 0 || id > 0xFFFFFFFFL) {
+            throw new IOException("Datos comprimidos corruptos: identificador de diccionario inválido.");
+        }
+        HuffmanDictionary blockDictionary = DictionaryRegistry.get((int) id);
+        if (table >= blockDictionary.tableCount()) {
+            throw new IOException("Datos comprimidos corruptos: el diccionario no tiene la tabla " + table + ".");
+        }
+
+        // 2. Decodificar los bits que siguen al encabezado
+        int headerLength = length - headerInput.available();
+        BitReader reader = new BitReader(payload, offset + headerLength, length - headerLength);
+        blockDictionary.decodeTable(table).decodeBytes(reader, out, outOffset, originalSize);
+    }
+}
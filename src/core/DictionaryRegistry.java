@@ -0,0 +1,81 @@
+package core;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registro de los diccionarios disponibles (ver HuffmanDictionary).
+ * Los bloques de DictionaryCodec guardan solo el identificador del
+ * diccionario y el descompresor lo busca aquí. Un diccionario se registra
+ * al crear un DictionaryCodec con él, o leyéndolo de una carpeta de
+ * archivos .hfd con loadFolder.
+ *
+ * Si la propiedad de sistema FOLDER_PROPERTY apunta a una carpeta, los
+ * diccionarios que falten se buscan ahí la primera vez que se piden.
+ */
+public final class DictionaryRegistry {
+
+    // Carpeta de diccionarios (ej. -Dhuffman.diccionarios=/ruta/diccionarios)
+    public static final String FOLDER_PROPERTY = "huffman.diccionarios";
+
+    private static final Map<Integer, HuffmanDictionary> DICTIONARIES = new LinkedHashMap<>();
+
+    private static boolean folderLoaded;
+
+    private DictionaryRegistry() {
+    }
+
+    /**
+     * Registra un diccionario. Si ya hay otro con el mismo identificador,
+     * se reemplaza.
+     */
+    public static synchronized void register(HuffmanDictionary dictionary) {
+        DICTIONARIES.put(dictionary.id(), dictionary);
+    }
+
+    /**
+     * Busca el diccionario indicado en un bloque.
+     */
+    public static synchronized HuffmanDictionary get(int id) throws IOException {
+        HuffmanDictionary dictionary = DICTIONARIES.get(id);
+        if (dictionary == null && !folderLoaded) {
+            folderLoaded = true;
+            String folder = System.getProperty(FOLDER_PROPERTY);
+            if (folder != null) {
+                loadFolder(Paths.get(folder));
+                dictionary = DICTIONARIES.get(id);
+            }
+        }
+        if (dictionary == null) {
+            throw new IOException(String.format("Diccionario no registrado: %08x", id));
+        }
+        return dictionary;
+    }
+
+    /**
+     * Lee y registra todos los archivos .hfd de una carpeta.
+     *
+     * @return cantidad de diccionarios registrados
+     */
+    public static synchronized int loadFolder(Path folder) throws IOException {
+        List<HuffmanDictionary> loaded = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(folder, "*" + HuffmanDictionary.EXTENSION)) {
+            for (Path file : files) {
+                if (Files.isRegularFile(file)) {
+                    loaded.add(HuffmanDictionary.load(file));
+                }
+            }
+        }
+        for (HuffmanDictionary dictionary : loaded) {
+            register(dictionary);
+        }
+        return loaded.size();
+    }
+}
@@ -0,0 +1,84 @@
+package core;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Comando para entrenar un diccionario (ver HuffmanDictionary) con una
+ * carpeta de archivos de ejemplo y guardarlo como archivo .hfd.
+ *
+ * Uso: java core.DictionaryTrainer carpetaDeMuestras diccionario.hfd [tablas]
+ *
+ * Después se comprime con new DictionaryCodec(HuffmanDictionary.load(...))
+ * y, para descomprimir en otro proceso, el diccionario se registra con
+ * DictionaryRegistry.loadFolder (o con la propiedad huffman.diccionarios).
+ */
+public final class DictionaryTrainer {
+
+    // Tablas por defecto: suficiente para separar, por ejemplo, JSON de logs
+    public static final int DEFAULT_TABLES = 4;
+
+    // Los archivos grandes se parten en muestras de este tamaño (64 KB)
+    private static final int SAMPLE_SIZE = 64 * 1024;
+
+    // Límite de datos leídos para entrenar (64 MB)
+    private static final long MAX_TRAINING_BYTES = 64L * 1024 * 1024;
+
+    private DictionaryTrainer() {
+    }
+
+    /**
+     * Entrena un diccionario con los archivos de una carpeta (y sus subcarpetas).
+     */
+    public static HuffmanDictionary trainFolder(Path samplesFolder, int tableCount) throws IOException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(samplesFolder)) {
+            files = walk.filter(Files::isRegularFile).sorted().toList();
+        }
+
+        // 1. Leer las muestras, partiendo los archivos grandes
+        List<byte[]> samples = new ArrayList<>();
+        long total = 0;
+        for (Path file : files) {
+            if (total >= MAX_TRAINING_BYTES) {
+                break;
+            }
+            byte[] data = Files.readAllBytes(file);
+            for (int start = 0; start < data.length && total < MAX_TRAINING_BYTES; start += SAMPLE_SIZE) {
+                int end = Math.min(data.length, start + SAMPLE_SIZE);
+                samples.add(Arrays.copyOfRange(data, start, end));
+                total += end - start;
+            }
+        }
+        if (samples.isEmpty()) {
+            throw new IOException("La carpeta no tiene muestras: " + samplesFolder);
+        }
+
+        // 2. Entrenar
+        return HuffmanDictionary.train(samples, tableCount);
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("Uso: DictionaryTrainer carpetaDeMuestras diccionario" + HuffmanDictionary.EXTENSION + " [tablas]");
+            System.exit(2);
+        }
+        try {
+            int tableCount = args.length == 3 ? Integer.parseInt(args[2]) : DEFAULT_TABLES;
+            long start = System.currentTimeMillis();
+            HuffmanDictionary dictionary = trainFolder(Paths.get(args[0]), tableCount);
+            dictionary.save(Paths.get(args[1]));
+            System.out.printf("Diccionario %08x guardado en %s (%d tablas, %d ms)%n",
+                    dictionary.id(), args[1], dictionary.tableCount(), System.currentTimeMillis() - start);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Error al entrenar el diccionario: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -1,61 +1,944 @@
 package core;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
 
+/**
+ * Cifrado de archivos con contraseña.
+ *
+ * Los archivos nuevos se cifran con AES-256 en modo CTR. La clave se deriva
+ * de la contraseña con PBKDF2 (HMAC-SHA256) y una sal aleatoria. PBKDF2 es
+ * lento a propósito, así que la sal se elige una vez por contraseña en cada
+ * ejecución y la clave derivada se guarda en memoria (ver KeyCache): al
+ * cifrar una carpeta, los archivos comparten sal y clave y cada uno lleva su
+ * propio nonce aleatorio de 64 bits, así dos archivos iguales con la misma
+ * contraseña no se parecen en nada.
+ *
+ * En modo CTR el bloque número N se cifra con el contador nonce + N, sin
+ * depender de los bloques anteriores: los archivos grandes se parten en
+ * segmentos que se cifran en paralelo, cada uno empezando en su contador.
+ *
+ * Formato (encabezado de HEADER_LENGTH bytes, los datos cifrados y el código
+ * de autenticación):
+ *   'H' 'F' 'E' | versión | algoritmo | iteraciones de PBKDF2 (int) |
+ *   sal (16 bytes) | nonce (8 bytes) | verificador de la contraseña (16 bytes) |
+ *   datos cifrados | HMAC-SHA256 del encabezado y los datos cifrados (32 bytes).
+ *
+ * El HMAC (cifrar y después autenticar) usa otra clave derivada junto con la
+ * de AES: un archivo modificado o truncado se rechaza en lugar de descifrarse
+ * como basura. Los archivos de la versión 1 no tienen HMAC y se siguen
+ * pudiendo descifrar.
+ *
+ * Los archivos sin este encabezado son del cifrado XOR anterior y se siguen
+ * pudiendo descifrar.
+ */
 public class Encryptor {
 
+    // Tamaño de los bloques que se leen y cifran de una vez (1 MB)
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    // --- Formato AES-CTR ---
+    private static final byte[] MAGIC = {'H', 'F', 'E'};
+    private static final int FORMAT_VERSION = 2;
+    private static final int VERSION_NO_MAC = 1;
+    private static final int CIPHER_AES_CTR = 1;
+
+    private static final int KDF_ITERATIONS = 100_000;
+    private static final int MAX_KDF_ITERATIONS = 10_000_000;
+    private static final int SALT_LENGTH = 16;
+    private static final int NONCE_LENGTH = 8;
+    private static final int KEY_LENGTH = 32;
+    private static final int MAC_KEY_LENGTH = 32;
+    private static final int TAG_LENGTH = 32;
+    private static final int CHECK_LENGTH = 16;
+    private static final int AES_BLOCK = 16;
+
+    private static final int HEADER_LENGTH = MAGIC.length + 2 + 4 + SALT_LENGTH + NONCE_LENGTH + CHECK_LENGTH;
+
+    // Tamaño de cada segmento que se cifra en paralelo (múltiplo de AES_BLOCK)
+    private static final int SEGMENT_SIZE = 4 * 1024 * 1024;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    // Claves derivadas en esta ejecución (se reutilizan entre archivos)
+    private static final KeyCache KEYS = new KeyCache();
+
+    // Pool donde se cifran los segmentos en paralelo
+    private final ForkJoinPool pool;
+
+    public Encryptor() {
+        this(ForkJoinPool.commonPool());
+    }
+
     /**
-     * Cifra o descifra un archivo usando una contraseña (cifrado XOR).
-     * La operación es la misma para encriptar y desencriptar.
+     * @param pool Pool de hilos para cifrar los segmentos de archivos grandes
+     */
+    public Encryptor(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Cifra o descifra un archivo con el cifrado XOR anterior (la misma
+     * operación sirve para ambos sentidos). Se mantiene para quienes ya lo
+     * usaban; los archivos nuevos se cifran con encryptFile y se descifran
+     * con decryptFile, que indican el sentido explícitamente.
      * * @param inputFilePath  Ruta del archivo de entrada
      * @param outputFilePath Ruta del archivo de salida
      * @param password       La contraseña para el cifrado
      * @throws IOException
+     * @deprecated Usar encryptFile / decryptFile (AES-CTR).
      */
+    @Deprecated
     public void processFile(String inputFilePath, String outputFilePath, String password) throws IOException {
+        processLegacyFile(inputFilePath, outputFilePath, password);
+    }
 
-        // No podemos usar una contraseña vacía
-        if (password == null || password.isEmpty()) {
-            throw new IllegalArgumentException("La contraseña no puede estar vacía.");
+    /**
+     * Cifra un archivo con AES-CTR. Los segmentos se cifran en paralelo y se
+     * escriben directo en su posición del archivo de salida.
+     * @param inputFilePath  Archivo original
+     * @param outputFilePath Archivo cifrado
+     * @param password       La contraseña para el cifrado
+     */
+    public void encryptFile(String inputFilePath, String outputFilePath, String password) throws IOException {
+        CipherKey key = CipherKey.create(password);
+
+        try (FileChannel in = FileChannel.open(Paths.get(inputFilePath), StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(Paths.get(outputFilePath), StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            // 1. Encabezado
+            byte[] header = key.header();
+            writeFully(out, ByteBuffer.wrap(header), 0);
+
+            // 2. Los datos, en segmentos paralelos (el HMAC los recorre en orden)
+            Mac mac = key.newMac(header);
+            long length = in.size();
+            cipherSegments(in, 0, out, HEADER_LENGTH, length, key, mac);
+
+            // 3. El código de autenticación al final
+            writeFully(out, ByteBuffer.wrap(mac.doFinal()), HEADER_LENGTH + length);
+        }
+
+        System.out.println("Archivo procesado (encriptado/desencriptado) exitosamente.");
+    }
+
+    /**
+     * Descifra un archivo. Si no tiene el encabezado de AES-CTR se trata como
+     * un archivo del cifrado XOR anterior; un encabezado truncado o dañado es
+     * un error (no se descifra como XOR).
+     * @param inputFilePath  Archivo cifrado
+     * @param outputFilePath Archivo original
+     * @param password       La contraseña para el descifrado
+     */
+    public void decryptFile(String inputFilePath, String outputFilePath, String password) throws IOException {
+        try (FileChannel in = FileChannel.open(Paths.get(inputFilePath), StandardOpenOption.READ)) {
+
+            // 1. Leer el encabezado (si lo hay) y verificar la contraseña
+            byte[] header = new byte[(int) Math.min(HEADER_LENGTH, in.size())];
+            readFully(in, ByteBuffer.wrap(header), 0);
+            CipherKey key = CipherKey.open(header, password);
+
+            // 2. Antes de escribir nada, el HMAC tiene que coincidir
+            //    (se lee el archivo una vez más, pero no sale nada sin verificar)
+            // 3. Los datos, en segmentos paralelos
+            if (key != null) {
+                long length = in.size() - HEADER_LENGTH - key.tagLength();
+                if (length < 0) {
+                    throw new IOException("Archivo cifrado incompleto: falta el código de autenticación.");
+                }
+                if (key.hasMac()) {
+                    verifyTag(in, header, length, key);
+                }
+                try (FileChannel out = FileChannel.open(Paths.get(outputFilePath), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    cipherSegments(in, HEADER_LENGTH, out, 0, length, key, null);
+                }
+                System.out.println("Archivo procesado (encriptado/desencriptado) exitosamente.");
+                return;
+            }
+        }
+
+        // 4. Sin encabezado: cifrado XOR anterior (con el archivo de entrada ya cerrado)
+        processLegacyFile(inputFilePath, outputFilePath, password);
+    }
+
+    /**
+     * Devuelve un stream que cifra al vuelo todo lo que se escribe en él
+     * (mismo formato que encryptFile, así el resultado se descifra igual).
+     * Sirve para encadenar la compresión y el cifrado sin archivos temporales.
+     * @param out      Destino de los datos cifrados (se cierra junto con el stream devuelto)
+     * @param password La contraseña para el cifrado
+     */
+    public OutputStream encrypt(OutputStream out, String password) throws IOException {
+        CipherKey key = CipherKey.create(password);
+        byte[] header = key.header();
+        out.write(header);
+        return new CtrOutputStream(new TagOutputStream(out, key.newMac(header)), key.newCipher(0));
+    }
+
+    /**
+     * Devuelve un stream que descifra al vuelo lo que se lee de 'in'.
+     * Acepta tanto el formato AES-CTR como el cifrado XOR anterior. El HMAC se
+     * verifica al llegar al final de los datos: si no coincide, esa lectura
+     * lanza un error (hay que leer hasta el final para que se verifique).
+     * @param in       Datos cifrados (se cierra junto con el stream devuelto)
+     * @param password La contraseña para el descifrado
+     */
+    public InputStream decrypt(InputStream in, String password) throws IOException {
+        PushbackInputStream pushback = new PushbackInputStream(in, HEADER_LENGTH);
+        byte[] header = pushback.readNBytes(HEADER_LENGTH);
+        CipherKey key = CipherKey.open(header, password);
+        if (key == null) {
+            // Sin encabezado: cifrado XOR anterior, desde el primer byte
+            pushback.unread(header);
+            return new XorInputStream(pushback, new XorKey(toKey(password)));
+        }
+        if (key.hasMac()) {
+            return new CtrInputStream(new TagInputStream(pushback, key.newMac(header)), key.newCipher(0));
+        }
+        return new CtrInputStream(pushback, key.newCipher(0));
+    }
+
+    /**
+     * Cifra (o descifra: en CTR es la misma operación) 'length' bytes de 'in'
+     * desde inStart y los escribe en 'out' desde outStart. Cada segmento es una
+     * tarea independiente que empieza en su propio contador, con a lo sumo
+     * 'window' segmentos en memoria a la vez. Si se pasa 'mac', los segmentos
+     * ya cifrados se le agregan en orden a medida que terminan.
+     */
+    private void cipherSegments(FileChannel in, long inStart, FileChannel out, long outStart,
+                                long length, CipherKey key, Mac mac) throws IOException {
+        long segmentCount = (length + SEGMENT_SIZE - 1) / SEGMENT_SIZE;
+        int window = Math.max(2, pool.getParallelism() * 2);
+        ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+
+        try {
+            for (long segment = 0; segment < segmentCount; segment++) {
+                long position = segment * SEGMENT_SIZE;
+                int count = (int) Math.min(SEGMENT_SIZE, length - position);
+                pending.add(pool.submit(() ->
+                        cipherSegment(in, inStart + position, out, outStart + position, count, key.newCipher(position))));
+
+                if (pending.size() >= window) {
+                    authenticate(mac, await(pending.poll()));
+                }
+            }
+            while (!pending.isEmpty()) {
+                authenticate(mac, await(pending.poll()));
+            }
+        } finally {
+            // Si algo falló, cancelamos los segmentos que quedaron en cola
+            for (Future<byte[]> future : pending) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    // Un segmento: lectura posicional, cifrado en el lugar y escritura posicional
+    // (los FileChannel admiten lecturas y escrituras posicionales desde varios hilos).
+    // Devuelve el segmento procesado para el HMAC.
+    private static byte[] cipherSegment(FileChannel in, long inPosition, FileChannel out, long outPosition,
+                                        int count, Cipher cipher) throws IOException {
+        byte[] buffer = new byte[count];
+        readFully(in, ByteBuffer.wrap(buffer), inPosition);
+        try {
+            cipher.doFinal(buffer, 0, count, buffer, 0);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Error al cifrar un segmento: " + e.getMessage(), e);
+        }
+        writeFully(out, ByteBuffer.wrap(buffer), outPosition);
+        return buffer;
+    }
+
+    private static void authenticate(Mac mac, byte[] segment) {
+        if (mac != null) {
+            mac.update(segment);
+        }
+    }
+
+    /**
+     * Calcula el HMAC del encabezado y los 'length' bytes cifrados que le
+     * siguen, y lo compara con el que está al final del archivo.
+     */
+    private static void verifyTag(FileChannel in, byte[] header, long length, CipherKey key) throws IOException {
+        Mac mac = key.newMac(header);
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(BUFFER_SIZE, Math.max(length, 1)));
+        long position = HEADER_LENGTH;
+        long end = HEADER_LENGTH + length;
+        while (position < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            readFully(in, buffer, position);
+            buffer.flip();
+            position += buffer.remaining();
+            mac.update(buffer);
+        }
+        byte[] tag = new byte[TAG_LENGTH];
+        readFully(in, ByteBuffer.wrap(tag), end);
+        if (!MessageDigest.isEqual(tag, mac.doFinal())) {
+            throw new IOException("Archivo cifrado dañado o modificado: el código de autenticación no coincide.");
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("El archivo terminó antes de lo esperado.");
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    // Espera un segmento, devolviendo el error original si falló
+    private static byte[] await(Future<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Cifrado interrumpido.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Error al cifrar un segmento: " + e.getCause(), e.getCause());
+        }
+    }
+
+    /**
+     * Claves de un archivo (AES y, desde la versión 2, HMAC): derivadas de la
+     * contraseña y de la sal del encabezado, junto con el nonce del archivo.
+     */
+    private static final class CipherKey {
+
+        private final int version;
+        private final int iterations;
+        private final byte[] salt;
+        private final byte[] nonce;
+        private final byte[] check;
+        private final SecretKeySpec key;
+        private final SecretKeySpec macKey;
+
+        private CipherKey(String password, int version, int iterations, byte[] salt, byte[] nonce) throws IOException {
+            this.version = version;
+            this.iterations = iterations;
+            this.salt = salt;
+            this.nonce = nonce;
+
+            // PBKDF2 produce la clave AES y a continuación, según la versión:
+            //   1: el verificador de la contraseña
+            //   2: la clave del HMAC y después el verificador
+            // (así un archivo de la versión 2 que dice ser de la 1 no pasa el verificador)
+            checkPassword(password);
+            byte[] material = KEYS.derive(password, salt, iterations);
+            this.key = new SecretKeySpec(material, 0, KEY_LENGTH, "AES");
+            if (version == VERSION_NO_MAC) {
+                this.macKey = null;
+                this.check = Arrays.copyOfRange(material, KEY_LENGTH, KEY_LENGTH + CHECK_LENGTH);
+            } else {
+                this.macKey = new SecretKeySpec(material, KEY_LENGTH, MAC_KEY_LENGTH, "HmacSHA256");
+                int checkStart = KEY_LENGTH + MAC_KEY_LENGTH;
+                this.check = Arrays.copyOfRange(material, checkStart, checkStart + CHECK_LENGTH);
+            }
+        }
+
+        // Clave para cifrar un archivo: la sal de esta contraseña en esta
+        // ejecución (la clave ya derivada se reutiliza) y un nonce aleatorio
+        static CipherKey create(String password) throws IOException {
+            byte[] nonce = new byte[NONCE_LENGTH];
+            RANDOM.nextBytes(nonce);
+            return new CipherKey(password, FORMAT_VERSION, KDF_ITERATIONS, KEYS.salt(password), nonce);
+        }
+
+        // Lee el encabezado y verifica la contraseña. Devuelve null si los
+        // datos no empiezan con el encabezado (cifrado XOR anterior).
+        static CipherKey open(byte[] header, String password) throws IOException {
+            if (!isHeader(header)) {
+                return null;
+            }
+            DataInputStream dis = new DataInputStream(new ByteArrayInputStream(header, MAGIC.length, HEADER_LENGTH));
+            int version = dis.readUnsignedByte();
+            int cipher = dis.readUnsignedByte();
+            if ((version != FORMAT_VERSION && version != VERSION_NO_MAC) || cipher != CIPHER_AES_CTR) {
+                throw new IOException("Formato de cifrado no soportado (versión " + version + ", algoritmo " + cipher + ").");
+            }
+            int iterations = dis.readInt();
+            if (iterations <= 0 || iterations > MAX_KDF_ITERATIONS) {
+                throw new IOException("Encabezado de cifrado corrupto.");
+            }
+            byte[] salt = new byte[SALT_LENGTH];
+            byte[] nonce = new byte[NONCE_LENGTH];
+            byte[] check = new byte[CHECK_LENGTH];
+            dis.readFully(salt);
+            dis.readFully(nonce);
+            dis.readFully(check);
+
+            CipherKey key = new CipherKey(password, version, iterations, salt, nonce);
+            if (!MessageDigest.isEqual(check, key.check)) {
+                throw new IOException("Contraseña incorrecta.");
+            }
+            return key;
+        }
+
+        /**
+         * Indica si los datos empiezan con el encabezado de AES-CTR. Los datos
+         * que empiezan con el número mágico pero no llegan a un encabezado
+         * completo, o con los campos fijos del encabezado (versión, algoritmo
+         * e iteraciones) pero el número mágico dañado, son un error: no se
+         * pueden tratar como XOR sin producir basura.
+         */
+        private static boolean isHeader(byte[] header) throws IOException {
+            boolean magic = header.length >= MAGIC.length
+                    && Arrays.equals(header, 0, MAGIC.length, MAGIC, 0, MAGIC.length);
+            if (magic && header.length < HEADER_LENGTH) {
+                throw new IOException("Archivo cifrado incompleto: el encabezado está truncado.");
+            }
+            if (!magic && header.length >= HEADER_LENGTH
+                    && (header[MAGIC.length] == FORMAT_VERSION || header[MAGIC.length] == VERSION_NO_MAC)
+                    && header[MAGIC.length + 1] == CIPHER_AES_CTR
+                    && ByteBuffer.wrap(header, MAGIC.length + 2, 4).getInt() == KDF_ITERATIONS) {
+                throw new IOException("Encabezado de cifrado dañado.");
+            }
+            return magic;
+        }
+
+        byte[] header() throws IOException {
+            ByteArrayOutputStream headerBytes = new ByteArrayOutputStream(HEADER_LENGTH);
+            DataOutputStream dos = new DataOutputStream(headerBytes);
+            dos.write(MAGIC);
+            dos.writeByte(version);
+            dos.writeByte(CIPHER_AES_CTR);
+            dos.writeInt(iterations);
+            dos.write(salt);
+            dos.write(nonce);
+            dos.write(check);
+            return headerBytes.toByteArray();
+        }
+
+        boolean hasMac() {
+            return macKey != null;
+        }
+
+        // Bytes del código de autenticación al final del archivo
+        int tagLength() {
+            return hasMac() ? TAG_LENGTH : 0;
+        }
+
+        // HMAC que ya recorrió el encabezado; le faltan los datos cifrados
+        Mac newMac(byte[] header) throws IOException {
+            try {
+                Mac mac = Mac.getInstance("HmacSHA256");
+                mac.init(macKey);
+                mac.update(header, 0, HEADER_LENGTH);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IOException("HMAC-SHA256 no disponible: " + e.getMessage(), e);
+            }
+        }
+
+        /**
+         * Cifrador CTR posicionado en el byte 'position' de los datos
+         * (múltiplo de AES_BLOCK): contador = nonce | número de bloque.
+         */
+        Cipher newCipher(long position) throws IOException {
+            ByteBuffer counter = ByteBuffer.allocate(AES_BLOCK);
+            counter.put(nonce).putLong(position / AES_BLOCK);
+            try {
+                Cipher cipher = Cipher.getInstance("AES/CTR/NoPadding");
+                cipher.init(Cipher.ENCRYPT_MODE, key, new IvParameterSpec(counter.array()));
+                return cipher;
+            } catch (GeneralSecurityException e) {
+                throw new IOException("AES-CTR no disponible: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Claves derivadas con PBKDF2, por contraseña, sal e iteraciones, para no
+     * repetir la derivación (decenas de milisegundos) en cada archivo. También
+     * guarda la sal con la que se cifra con cada contraseña en esta ejecución.
+     * Las contraseñas no se guardan: se identifican por su SHA-256.
+     * Se puede usar desde varios hilos a la vez.
+     */
+    private static final class KeyCache {
+
+        // Contraseñas (con su sal) recordadas a la vez
+        private static final int CAPACITY = 16;
+
+        private final Map<String, byte[]> materials = lruMap();
+        private final Map<String, byte[]> salts = lruMap();
+
+        // Sal con la que se cifra con esta contraseña (la misma en toda la ejecución)
+        synchronized byte[] salt(String password) throws IOException {
+            return salts.computeIfAbsent(fingerprint(password), k -> {
+                byte[] salt = new byte[SALT_LENGTH];
+                RANDOM.nextBytes(salt);
+                return salt;
+            }).clone();
+        }
+
+        // Clave AES + clave del HMAC + verificador para esta contraseña, sal e
+        // iteraciones (los primeros bytes son los mismos que derivaba la versión 1)
+        byte[] derive(String password, byte[] salt, int iterations) throws IOException {
+            String id = fingerprint(password) + ":" + iterations + ":" + hex(salt);
+            synchronized (this) {
+                byte[] material = materials.get(id);
+                if (material != null) {
+                    return material;
+                }
+            }
+
+            // La derivación se hace fuera del candado (otros hilos pueden usar otras claves)
+            PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations,
+                    (KEY_LENGTH + MAC_KEY_LENGTH + CHECK_LENGTH) * 8);
+            byte[] material;
+            try {
+                material = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+            } catch (GeneralSecurityException e) {
+                throw new IOException("No se pudo derivar la clave: " + e.getMessage(), e);
+            } finally {
+                spec.clearPassword();
+            }
+            synchronized (this) {
+                materials.put(id, material);
+            }
+            return material;
+        }
+
+        private static String fingerprint(String password) throws IOException {
+            try {
+                return hex(MessageDigest.getInstance("SHA-256").digest(password.getBytes(StandardCharsets.UTF_8)));
+            } catch (GeneralSecurityException e) {
+                throw new IOException("SHA-256 no disponible.", e);
+            }
+        }
+
+        private static String hex(byte[] bytes) {
+            StringBuilder text = new StringBuilder(bytes.length * 2);
+            for (byte b : bytes) {
+                text.append(Character.forDigit((b >>> 4) & 0x0F, 16)).append(Character.forDigit(b & 0x0F, 16));
+            }
+            return text.toString();
+        }
+
+        // LinkedHashMap en orden de acceso: la entrada más vieja es la menos usada
+        private static Map<String, byte[]> lruMap() {
+            return new LinkedHashMap<>(CAPACITY * 2, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                    return size() > CAPACITY;
+                }
+            };
+        }
+    }
+
+    // Stream de salida que cifra con AES-CTR (usa un buffer propio para no
+    // modificar los arreglos de quien escribe)
+    private static class CtrOutputStream extends FilterOutputStream {
+
+        private final Cipher cipher;
+        private final byte[] buffer = new byte[64 * 1024];
+
+        CtrOutputStream(OutputStream out, Cipher cipher) {
+            super(out);
+            this.cipher = cipher;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int count = Math.min(len, buffer.length);
+                out.write(buffer, 0, update(cipher, b, off, count, buffer, 0));
+                off += count;
+                len -= count;
+            }
+        }
+    }
+
+    // Stream de entrada que descifra con AES-CTR directamente sobre el arreglo del lector
+    private static class CtrInputStream extends FilterInputStream {
+
+        private final Cipher cipher;
+
+        CtrInputStream(InputStream in, Cipher cipher) {
+            super(in);
+            this.cipher = cipher;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int count = read(single, 0, 1);
+            return count == 1 ? single[0] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int count = in.read(b, off, len);
+            if (count > 0) {
+                update(cipher, b, off, count, b, off);
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // El contador tiene que avanzar: los bytes salteados se descifran igual
+            byte[] scratch = new byte[(int) Math.min(Math.max(n, 0), 8192)];
+            long skipped = 0;
+            while (skipped < n) {
+                int count = read(scratch, 0, (int) Math.min(scratch.length, n - skipped));
+                if (count < 0) {
+                    break;
+                }
+                skipped += count;
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+
+    // Stream de salida que pasa los datos cifrados al HMAC y, al cerrarse,
+    // escribe el código de autenticación
+    private static class TagOutputStream extends FilterOutputStream {
+
+        private final Mac mac;
+        private boolean finished;
+
+        TagOutputStream(OutputStream out, Mac mac) {
+            super(out);
+            this.mac = mac;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            mac.update((byte) b);
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            mac.update(b, off, len);
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!finished) {
+                finished = true;
+                out.write(mac.doFinal());
+            }
+            super.close();
+        }
+    }
+
+    /**
+     * Stream de entrada que separa los últimos TAG_LENGTH bytes (el código de
+     * autenticación) y pasa el resto al HMAC. Al llegar al final compara los
+     * dos: si no coinciden, la lectura lanza un error en lugar de devolver -1.
+     */
+    private static class TagInputStream extends FilterInputStream {
+
+        private final Mac mac;
+        // Los últimos bytes leídos: pueden ser el código, todavía no se entregan
+        private byte[] tail = new byte[TAG_LENGTH];
+        private byte[] spare = new byte[TAG_LENGTH];
+        private int tailCount;
+        private boolean verified;
+
+        TagInputStream(InputStream in, Mac mac) {
+            super(in);
+            this.mac = mac;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int count = read(single, 0, 1);
+            return count == 1 ? single[0] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (!verified) {
+                int count = in.read(b, off, len);
+                if (count < 0) {
+                    verify();
+                    return -1;
+                }
+
+                // 1. Los bytes retenidos más los nuevos: se entregan todos menos los últimos TAG_LENGTH
+                int total = tailCount + count;
+                int release = total - TAG_LENGTH;
+                if (release <= 0) {
+                    System.arraycopy(b, off, tail, tailCount, count);
+                    tailCount = total;
+                    continue;
+                }
+
+                // 2. Los últimos TAG_LENGTH bytes pasan a ser los retenidos
+                int fromTail = Math.max(0, TAG_LENGTH - count);
+                System.arraycopy(tail, tailCount - fromTail, spare, 0, fromTail);
+                System.arraycopy(b, off + count - (TAG_LENGTH - fromTail), spare, fromTail, TAG_LENGTH - fromTail);
+
+                // 3. Lo que se entrega: primero los retenidos de antes, después los nuevos
+                if (release > tailCount) {
+                    System.arraycopy(b, off, b, off + tailCount, release - tailCount);
+                }
+                System.arraycopy(tail, 0, b, off, Math.min(tailCount, release));
+
+                byte[] swap = tail;
+                tail = spare;
+                spare = swap;
+                tailCount = TAG_LENGTH;
+                mac.update(b, off, release);
+                return release;
+            }
+            return -1;
+        }
+
+        private void verify() throws IOException {
+            if (tailCount < TAG_LENGTH) {
+                throw new IOException("Archivo cifrado incompleto: falta el código de autenticación.");
+            }
+            if (!MessageDigest.isEqual(tail, mac.doFinal())) {
+                throw new IOException("Archivo cifrado dañado o modificado: el código de autenticación no coincide.");
+            }
+            verified = true;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Los bytes salteados también pasan por el HMAC
+            byte[] scratch = new byte[(int) Math.min(Math.max(n, 0), 8192)];
+            long skipped = 0;
+            while (skipped < n) {
+                int count = read(scratch, 0, (int) Math.min(scratch.length, n - skipped));
+                if (count < 0) {
+                    break;
+                }
+                skipped += count;
+            }
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return 0;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+
+    // En CTR cada byte de entrada produce exactamente un byte de salida
+    private static int update(Cipher cipher, byte[] in, int off, int len, byte[] out, int outOff) throws IOException {
+        try {
+            return cipher.update(in, off, len, out, outOff);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Error al cifrar: " + e.getMessage(), e);
         }
+    }
+
+    /**
+     * Cifra o descifra un archivo con el cifrado XOR anterior (sin encabezado).
+     * La operación es la misma para encriptar y desencriptar.
+     */
+    private void processLegacyFile(String inputFilePath, String outputFilePath, String password) throws IOException {
 
-        // Convertimos la contraseña a bytes
-        byte[] key = password.getBytes();
-        int keyLength = key.length;
+        // No podemos usar una contraseña vacía (toKey lo valida)
+        XorKey key = new XorKey(toKey(password));
 
         // Usamos try-with-resources para el manejo automático de archivos
         try (InputStream is = new FileInputStream(inputFilePath);
              OutputStream os = new FileOutputStream(outputFilePath)) {
 
-            int byteRead;
+            // Se lee por bloques grandes: una llamada al sistema por MB en lugar de una por byte
+            byte[] buffer = new byte[BUFFER_SIZE];
             int keyIndex = 0; // Para saber qué byte de la contraseña usar
+            int bytesRead;
+            while ((bytesRead = is.read(buffer)) != -1) {
+                // --- El núcleo del cifrado XOR (8 bytes a la vez) ---
+                keyIndex = key.apply(buffer, 0, bytesRead, keyIndex);
+                os.write(buffer, 0, bytesRead);
+            }
+        }
+
+        System.out.println("Archivo procesado (encriptado/desencriptado) exitosamente.");
+    }
 
-            // Leemos el archivo de entrada byte por byte
-            while ((byteRead = is.read()) != -1) {
+    // Valida la contraseña y la convierte a bytes (clave del cifrado XOR)
+    private static byte[] toKey(String password) {
+        checkPassword(password);
+        return password.getBytes();
+    }
+
+    private static void checkPassword(String password) {
+        if (password == null || password.isEmpty()) {
+            throw new IllegalArgumentException("La contraseña no puede estar vacía.");
+        }
+    }
+
+    /**
+     * Clave XOR expandida para cifrar por bloques.
+     * La contraseña se repite hasta formar un patrón largo (un múltiplo de su
+     * longitud), así cualquier tramo del buffer se puede combinar con el
+     * patrón de a 8 bytes (como long) sin calcular la posición de la clave
+     * byte por byte. Los últimos bytes que no completan un long se hacen de a uno.
+     */
+    private static final class XorKey {
+
+        // Vista de un byte[] como long[]; el orden de bytes no importa para XOR
+        private static final VarHandle LONG_VIEW =
+                MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.nativeOrder());
 
-                // --- El núcleo del cifrado XOR ---
-                // 1. Tomamos el byte del archivo (byteRead)
-                // 2. Tomamos el byte de la contraseña (key[keyIndex])
-                // 3. Aplicamos la operación XOR (^)
-                byte outputByte = (byte) (byteRead ^ key[keyIndex]);
+        // Largo mínimo del patrón (se redondea a un múltiplo de la clave)
+        private static final int MIN_PERIOD = 4096;
 
-                // Escribimos el byte resultante en el archivo de salida
-                os.write(outputByte);
+        private final int keyLength;
+        private final int period;       // Múltiplo de keyLength: avanzar 'period' bytes no mueve la clave
+        private final byte[] pattern;   // La clave repetida: period + keyLength bytes
 
-                // Movemos el índice de la contraseña
-                keyIndex++;
+        XorKey(byte[] key) {
+            this.keyLength = key.length;
+            this.period = ((MIN_PERIOD + keyLength - 1) / keyLength) * keyLength;
+            this.pattern = new byte[period + keyLength];
+            for (int i = 0; i < pattern.length; i++) {
+                pattern[i] = key[i % keyLength];
+            }
+        }
 
-                // Si llegamos al final de la contraseña, volvemos al inicio
-                if (keyIndex == keyLength) {
-                    keyIndex = 0;
+        /**
+         * Aplica XOR sobre buffer[offset..offset+length) empezando en la posición
+         * 'keyIndex' de la clave. Devuelve la posición de la clave para el siguiente byte.
+         */
+        int apply(byte[] buffer, int offset, int length, int keyIndex) {
+            int remaining = length;
+            int position = offset;
+            while (remaining > 0) {
+                // Desde keyIndex hay al menos 'period' bytes de patrón disponibles
+                int count = Math.min(remaining, period);
+                int i = 0;
+                for (; i + 8 <= count; i += 8) {
+                    long data = (long) LONG_VIEW.get(buffer, position + i);
+                    long mask = (long) LONG_VIEW.get(pattern, keyIndex + i);
+                    LONG_VIEW.set(buffer, position + i, data ^ mask);
                 }
+                for (; i < count; i++) {
+                    buffer[position + i] ^= pattern[keyIndex + i];
+                }
+                position += count;
+                remaining -= count;
             }
+            return (int) ((keyIndex + (long) length) % keyLength);
         }
 
-        System.out.println("Archivo procesado (encriptado/desencriptado) exitosamente.");
+        // Un solo byte (para write(int) / read())
+        int apply(int b, int keyIndex) {
+            return (b ^ pattern[keyIndex]) & 0xFF;
+        }
+
+        // Posición de la clave para el byte siguiente
+        int next(int keyIndex) {
+            return keyIndex + 1 == keyLength ? 0 : keyIndex + 1;
+        }
+    }
+
+    // Stream de entrada que descifra con XOR directamente sobre el arreglo del lector
+    private static class XorInputStream extends FilterInputStream {
+
+        private final XorKey key;
+        private int keyIndex;
+
+        XorInputStream(InputStream in, XorKey key) {
+            super(in);
+            this.key = key;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b == -1) {
+                return -1;
+            }
+            int result = key.apply(b, keyIndex);
+            keyIndex = key.next(keyIndex);
+            return result;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int count = in.read(b, off, len);
+            if (count > 0) {
+                keyIndex = key.apply(b, off, count, keyIndex);
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(n);
+            keyIndex = (int) ((keyIndex + skipped) % key.keyLength);
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
     }
-}
\ No newline at end of file
+}
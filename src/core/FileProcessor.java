@@ -1,26 +1,86 @@
 package core;
 
 import utils.LogManager;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ForkJoinPool;
 
 public class FileProcessor {
 
+    // Tamaño del buffer de escritura del archivo final (64 KB)
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     private HuffmanCompressor compressor;
     private HuffmanDecompressor decompressor;
     private Encryptor encryptor;
 
+    // Codificador para comprimir (para crear otras instancias iguales)
+    private Codec codec;
+
     // Constantes para las operaciones
     public static final int OP_COMPRESS_ONLY = 1;
     public static final int OP_ENCRYPT_ONLY = 2;
     public static final int OP_COMPRESS_AND_ENCRYPT = 3;
 
     public FileProcessor() {
-        this.compressor = new HuffmanCompressor();
+        this(defaultCodec());
+    }
+
+    /**
+     * @param codec Codificador para comprimir (ej. CodecRegistry.byName("fse")).
+     *              Para recuperar no hace falta: se lee del encabezado del archivo.
+     */
+    public FileProcessor(Codec codec) {
+        this.codec = codec;
+        this.compressor = new HuffmanCompressor(ForkJoinPool.commonPool(), HuffmanFormat.DEFAULT_BLOCK_SIZE, codec);
         this.decompressor = new HuffmanDecompressor();
         this.encryptor = new Encryptor();
     }
 
+    // Huffman de bytes, tomado del registro para compartir la misma instancia
+    private static Codec defaultCodec() {
+        try {
+            return CodecRegistry.get(HuffmanFormat.METHOD_HUFFMAN);
+        } catch (IOException e) {
+            // El registro siempre trae Huffman: no debería pasar
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Crea otro FileProcessor con la misma configuración y su propio estado,
+     * para usarlo desde otro hilo (ej. al procesar carpetas en paralelo).
+     */
+    public FileProcessor newWorker() {
+        return new FileProcessor(codec);
+    }
+
+    /**
+     * Codificador con el que se comprime (ej. para crear un SolidArchive igual).
+     */
+    public Codec getCodec() {
+        return codec;
+    }
+
+    /**
+     * Nombre del codificador con el que se comprime (ej. "huffman").
+     */
+    public String getCodecName() {
+        return codec.name();
+    }
+
+    /**
+     * Configuración del codificador (nombre y diccionario, si usa uno); ver Codec.settings().
+     */
+    public String getCodecSettings() {
+        return codec.settings();
+    }
+
     /**
      * Procesa un archivo de entrada basado en la operación seleccionada.
      * @param inputPath  Archivo original
@@ -35,9 +95,6 @@ public class FileProcessor {
         long originalSize = inputFile.length();
         String operationName = "";
 
-        // Usaremos un nombre de archivo temporal
-        String tempFile = inputPath + ".temp";
-
         try {
             switch (operation) {
                 case OP_COMPRESS_ONLY: // Solo Comprimir (.cmp)
@@ -49,21 +106,24 @@ public class FileProcessor {
                 case OP_ENCRYPT_ONLY: // Solo Encriptar (.enc)
                     operationName = "Encriptación";
                     System.out.println("Procesando: Solo Encriptación...");
-                    encryptor.processFile(inputPath, outputPath, password);
+                    encryptor.encryptFile(inputPath, outputPath, password);
                     break;
 
                 case OP_COMPRESS_AND_ENCRYPT: // Ambos (.ec)
                     operationName = "Compresión y Encriptación";
                     System.out.println("Procesando: Compresión y Encriptación...");
 
-                    // 1. Comprimir a un archivo temporal
-                    compressor.compress(inputPath, tempFile);
-
-                    // 2. Encriptar el archivo temporal al archivo de salida
-                    encryptor.processFile(tempFile, outputPath, password);
-
-                    // 3. Borrar el archivo temporal
-                    new File(tempFile).delete();
+                    // Cada bloque comprimido se cifra en memoria apenas sale del
+                    // compresor y se escribe directo al archivo final (sin temporales).
+                    // El archivo se abre como recurso propio para cerrarlo aunque falle
+                    // el cifrador, y si algo falla no queda un .ec a medio escribir.
+                    try (OutputStream raw = new FileOutputStream(outputPath);
+                         OutputStream os = encryptor.encrypt(new BufferedOutputStream(raw, BUFFER_SIZE), password)) {
+                        compressor.compress(inputPath, os);
+                    } catch (IOException | RuntimeException e) {
+                        new File(outputPath).delete();
+                        throw e;
+                    }
                     break;
 
                 default:
@@ -108,8 +168,6 @@ public class FileProcessor {
         long originalSize = inputFile.length();
         String operationName = "";
 
-        String tempFile = outputPath + ".temp";
-
         try {
             if (inputPath.endsWith(".cmp")) {
                 // Solo Descomprimir
@@ -121,21 +179,28 @@ public class FileProcessor {
                 // Solo Desencriptar
                 operationName = "Desencriptación";
                 System.out.println("Recuperando: Solo Desencriptación...");
-                encryptor.processFile(inputPath, outputPath, password);
+                // Detecta el formato: AES-CTR (con encabezado) o el XOR anterior
+                encryptor.decryptFile(inputPath, outputPath, password);
 
             } else if (inputPath.endsWith(".ec")) {
                 // Desencriptar Y Descomprimir
                 operationName = "Desencriptación y Descompresión";
                 System.out.println("Recuperando: Desencriptación y Descompresión...");
 
-                // 1. Desencriptar a un archivo temporal
-                encryptor.processFile(inputPath, tempFile, password);
-
-                // 2. Descomprimir el temporal al archivo de salida
-                decompressor.decompress(tempFile, outputPath);
-
-                // 3. Borrar el archivo temporal
-                new File(tempFile).delete();
+                // Se descifra al vuelo mientras se descomprime (sin temporales).
+                // El archivo se abre como recurso propio: decrypt revisa el
+                // encabezado y la contraseña antes de devolver el stream.
+                try (InputStream raw = new FileInputStream(inputPath);
+                     InputStream is = encryptor.decrypt(raw, password);
+                     OutputStream os = new FileOutputStream(outputPath)) {
+                    decompressor.decompress(is, os);
+                    // El código de autenticación se verifica al leer hasta el final
+                    is.transferTo(OutputStream.nullOutputStream());
+                } catch (IOException | RuntimeException e) {
+                    // Si no se pudo verificar, no queda un archivo recuperado a medias
+                    new File(outputPath).delete();
+                    throw e;
+                }
 
             } else {
                 throw new IllegalArgumentException("Extensión de archivo no reconocida para recuperación: " + inputPath);
@@ -0,0 +1,290 @@
+package core;
+
+import utils.BitReader;
+import utils.BitWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Codificador de entropía tANS / FSE ("Finite State Entropy") para bytes
+ * (método METHOD_FSE).
+ *
+ * A diferencia de Huffman, un símbolo no necesita ocupar un número entero
+ * de bits: el estado del codificador (un número entre TABLE_SIZE y
+ * 2*TABLE_SIZE) va acumulando las fracciones. Así la compresión se acerca
+ * a la de un codificador aritmético, pero cada símbolo se decodifica con
+ * una sola consulta a una tabla, igual que HuffmanDecodeTable.
+ *
+ * 1. Las frecuencias del bloque se escalan para que sumen TABLE_SIZE.
+ * 2. Los símbolos se reparten por la tabla de estados (cada uno ocupa
+ *    tantas casillas como su frecuencia escalada).
+ * 3. Se codifica de atrás hacia adelante; los bits se escriben en el orden
+ *    inverso para que el decodificador los lea hacia adelante.
+ *
+ * Contenido de un bloque BLOCK_FSE:
+ *   mapa de 256 bits con los símbolos presentes | frecuencia escalada - 1 de
+ *   cada uno (varint) | estado final (TABLE_LOG bits) | bits de cada símbolo.
+ */
+public class FseCodec implements Codec {
+
+    // Tamaño de la tabla de estados (la precisión de las probabilidades)
+    private static final int TABLE_LOG = 12;
+    private static final int TABLE_SIZE = 1 << TABLE_LOG;
+    private static final int TABLE_MASK = TABLE_SIZE - 1;
+
+    // Salto para repartir los símbolos: impar, así recorre todas las casillas
+    private static final int SPREAD_STEP = (TABLE_SIZE >>> 1) + (TABLE_SIZE >>> 3) + 3;
+
+    private static final int WRITER_BUFFER_SIZE = 64 * 1024;
+
+    @Override
+    public int id() {
+        return HuffmanFormat.METHOD_FSE;
+    }
+
+    @Override
+    public String name() {
+        return "fse";
+    }
+
+    @Override
+    public byte[] encodeBlock(byte[] data, int offset, int length) throws IOException {
+        if (length == 0) {
+            return encodeStored(data, offset, length);
+        }
+
+        // 1. Frecuencias del bloque, escaladas a TABLE_SIZE
+        int[] counts = new int[256];
+        for (int i = offset; i < offset + length; i++) {
+            counts[data[i] & 0xFF]++;
+        }
+        int[] normalized = normalize(counts, length);
+
+        // 2. Tablas del codificador
+        //    stateTable: siguiente estado; deltaNbBits/deltaFindState: por símbolo
+        int[] stateTable = new int[TABLE_SIZE];
+        int[] deltaNbBits = new int[256];
+        int[] deltaFindState = new int[256];
+        buildEncodeTable(normalized, stateTable, deltaNbBits, deltaFindState);
+
+        // 3. Codificar de atrás hacia adelante, guardando los bits de cada símbolo
+        //    (valor << 4 | cantidad de bits) para escribirlos después en orden
+        int[] chunks = new int[length];
+        int state = TABLE_SIZE;
+        long totalBits = TABLE_LOG;
+        for (int i = length - 1; i >= 0; i--) {
+            int symbol = data[offset + i] & 0xFF;
+            int nbBits = (state + deltaNbBits[symbol]) >>> 16;
+            chunks[i] = ((state & ((1 << nbBits) - 1)) << 4) | nbBits;
+            totalBits += nbBits;
+            state = stateTable[(state >>> nbBits) + deltaFindState[symbol]];
+        }
+
+        // 4. Tamaño exacto del contenido; si no ahorra nada se guarda sin comprimir
+        ByteArrayOutputStream tableBytes = new ByteArrayOutputStream();
+        writeNormalized(new DataOutputStream(tableBytes), normalized);
+        long payloadLength = tableBytes.size() + (totalBits + 7) / 8;
+        if (payloadLength >= length) {
+            return encodeStored(data, offset, length);
+        }
+
+        // 5. Escribir el registro: primero el estado final (donde empieza el decodificador)
+        ByteArrayOutputStream record = new ByteArrayOutputStream((int) payloadLength + 16);
+        DataOutputStream dos = new DataOutputStream(record);
+        dos.writeByte(HuffmanFormat.BLOCK_FSE);
+        HuffmanFormat.writeVarLong(dos, length);
+        HuffmanFormat.writeVarLong(dos, payloadLength);
+        tableBytes.writeTo(dos);
+
+        BitWriter writer = new BitWriter(dos, (int) Math.min(WRITER_BUFFER_SIZE, payloadLength + 8));
+        writer.writeBits(state - TABLE_SIZE, TABLE_LOG);
+        for (int chunk : chunks) {
+            writer.writeBits(chunk >>> 4, chunk & 0x0F);
+        }
+        writer.flush();
+
+        return record.toByteArray();
+    }
+
+    @Override
+    public void decodeBlock(int type, byte[] payload, int offset, int length,
+                            byte[] out, int outOffset, int originalSize) throws IOException {
+        if (type == HuffmanFormat.BLOCK_STORED) {
+            Codec.decodeStored(payload, offset, length, out, outOffset, originalSize);
+            return;
+        }
+        if (type != HuffmanFormat.BLOCK_FSE) {
+            throw new IOException("Tipo de bloque desconocido: " + type);
+        }
+
+        // 1. Leer las frecuencias escaladas y armar la tabla de decodificación
+        ByteArrayInputStream tableInput = new ByteArrayInputStream(payload, offset, length);
+        int[] normalized = readNormalized(new DataInputStream(tableInput));
+        int tableLength = length - tableInput.available();
+        int[] decodeTable = buildDecodeTable(normalized);
+
+        // 2. Cada estado dice el símbolo, cuántos bits leer y el estado base siguiente.
+        //    Con 4 símbolos por recarga se usan a lo sumo 48 de los 57 bits disponibles.
+        BitReader reader = new BitReader(payload, offset + tableLength, length - tableLength);
+        reader.refill();
+        int state = reader.peek(TABLE_LOG);
+        reader.skip(TABLE_LOG);
+
+        int pos = outOffset;
+        int end = outOffset + originalSize;
+        while (pos < end) {
+            reader.refill();
+            int groupEnd = Math.min(end, pos + 4);
+            while (pos < groupEnd) {
+                int entry = decodeTable[state];
+                out[pos++] = (byte) entry;
+                int nbBits = (entry >>> 8) & 0x0F;
+                int bits = 0;
+                if (nbBits > 0) {
+                    bits = reader.peek(nbBits);
+                    reader.skip(nbBits);
+                }
+                state = (entry >>> 16) + bits;
+            }
+        }
+    }
+
+    // Escala las frecuencias para que sumen TABLE_SIZE. Todo símbolo presente
+    // recibe al menos 1; la diferencia con el total se reparte donde menos cuesta.
+    private static int[] normalize(int[] counts, int total) {
+        int[] normalized = new int[256];
+        int sum = 0;
+        for (int symbol = 0; symbol < 256; symbol++) {
+            if (counts[symbol] > 0) {
+                long scaled = ((long) counts[symbol] * TABLE_SIZE + total / 2) / total;
+                normalized[symbol] = (int) Math.max(1, scaled);
+                sum += normalized[symbol];
+            }
+        }
+
+        // Sobran casillas: se le da una más al que más gana (mayor counts / normalizado)
+        while (sum < TABLE_SIZE) {
+            int best = -1;
+            for (int symbol = 0; symbol < 256; symbol++) {
+                if (counts[symbol] > 0 && (best < 0
+                        || (long) counts[symbol] * normalized[best] > (long) counts[best] * normalized[symbol])) {
+                    best = symbol;
+                }
+            }
+            normalized[best]++;
+            sum++;
+        }
+
+        // Faltan casillas: se le quita una al que menos pierde (menor counts / (normalizado - 1))
+        while (sum > TABLE_SIZE) {
+            int best = -1;
+            for (int symbol = 0; symbol < 256; symbol++) {
+                if (normalized[symbol] > 1 && (best < 0
+                        || (long) counts[symbol] * (normalized[best] - 1) < (long) counts[best] * (normalized[symbol] - 1))) {
+                    best = symbol;
+                }
+            }
+            normalized[best]--;
+            sum--;
+        }
+        return normalized;
+    }
+
+    // Reparte los símbolos por la tabla de estados (mismo orden en ambos lados)
+    private static int[] spreadSymbols(int[] normalized) {
+        int[] spread = new int[TABLE_SIZE];
+        int position = 0;
+        for (int symbol = 0; symbol < 256; symbol++) {
+            for (int i = 0; i < normalized[symbol]; i++) {
+                spread[position] = symbol;
+                position = (position + SPREAD_STEP) & TABLE_MASK;
+            }
+        }
+        return spread;
+    }
+
+    private static void buildEncodeTable(int[] normalized, int[] stateTable, int[] deltaNbBits, int[] deltaFindState) {
+        int[] spread = spreadSymbols(normalized);
+
+        // 1. Inicio de cada símbolo en stateTable
+        int[] cumulative = new int[257];
+        for (int symbol = 0; symbol < 256; symbol++) {
+            cumulative[symbol + 1] = cumulative[symbol] + normalized[symbol];
+        }
+
+        // 2. Las casillas de cada símbolo, en el orden en que aparecen en la tabla
+        int[] next = cumulative.clone();
+        for (int u = 0; u < TABLE_SIZE; u++) {
+            stateTable[next[spread[u]]++] = TABLE_SIZE + u;
+        }
+
+        // 3. Cuántos bits se escriben según el estado (maxBitsOut o uno menos)
+        for (int symbol = 0; symbol < 256; symbol++) {
+            int count = normalized[symbol];
+            if (count == 0) {
+                continue;
+            }
+            int maxBitsOut = count == 1
+                    ? TABLE_LOG
+                    : TABLE_LOG - (31 - Integer.numberOfLeadingZeros(count - 1));
+            deltaNbBits[symbol] = (maxBitsOut << 16) - (count << maxBitsOut);
+            deltaFindState[symbol] = cumulative[symbol] - count;
+        }
+    }
+
+    // Entradas: bits 0-7 símbolo, 8-11 bits a leer, 16-27 estado base siguiente
+    private static int[] buildDecodeTable(int[] normalized) {
+        int[] spread = spreadSymbols(normalized);
+        int[] next = normalized.clone();
+        int[] table = new int[TABLE_SIZE];
+        for (int u = 0; u < TABLE_SIZE; u++) {
+            int symbol = spread[u];
+            int x = next[symbol]++;
+            int nbBits = TABLE_LOG - (31 - Integer.numberOfLeadingZeros(x));
+            int baseState = (x << nbBits) - TABLE_SIZE;
+            table[u] = (baseState << 16) | (nbBits << 8) | symbol;
+        }
+        return table;
+    }
+
+    private static void writeNormalized(DataOutputStream dos, int[] normalized) throws IOException {
+        for (int i = 0; i < 32; i++) {
+            int bits = 0;
+            for (int j = 0; j < 8; j++) {
+                if (normalized[i * 8 + j] > 0) {
+                    bits |= 0x80 >>> j;
+                }
+            }
+            dos.writeByte(bits);
+        }
+        for (int count : normalized) {
+            if (count > 0) {
+                HuffmanFormat.writeVarLong(dos, count - 1);
+            }
+        }
+    }
+
+    private static int[] readNormalized(DataInputStream dis) throws IOException {
+        byte[] bitmap = new byte[32];
+        dis.readFully(bitmap);
+        int[] normalized = new int[256];
+        long sum = 0;
+        for (int symbol = 0; symbol < 256; symbol++) {
+            if ((bitmap[symbol >>> 3] & (0x80 >>> (symbol & 7))) != 0) {
+                long count = HuffmanFormat.readVarLong(dis) + 1;
+                if (count > TABLE_SIZE) {
+                    break;
+                }
+                normalized[symbol] = (int) count;
+                sum += count;
+            }
+        }
+        if (sum != TABLE_SIZE) {
+            throw new IOException("Encabezado corrupto: frecuencias FSE inválidas.");
+        }
+        return normalized;
+    }
+}
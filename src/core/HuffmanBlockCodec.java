@@ -0,0 +1,274 @@
+package core;
+
+import utils.BitReader;
+import utils.BitWriter;
+import utils.HuffmanCodeTable;
+import utils.HuffmanDecodeTable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Codificador Huffman de bytes (METHOD_HUFFMAN), el que se usa por defecto.
+ * Cada bloque lleva su propia tabla de longitudes, así que no depende de
+ * ningún otro bloque. El único estado entre llamadas es una caché de
+ * tablas ya construidas (ver CodeTableCache), que evita rearmar la misma
+ * tabla en bloques parecidos; se puede usar desde varios hilos a la vez.
+ * Las subclases la comparten cuando eligen Huffman normal para un bloque.
+ *
+ * Con la opción de flujos intercalados (activada por defecto), los bloques
+ * de al menos MIN_INTERLEAVED_BLOCK bytes se guardan como BLOCK_HUFFMAN_X4:
+ * el bloque se parte en cuatro cuartos, cada uno con su propio flujo de
+ * bits, y una pequeña tabla de saltos dice dónde empieza cada flujo.
+ * Contenido: longitudes de código | largo de los flujos 0 a 2 (varint) | flujos.
+ * Así el decodificador avanza con los cuatro a la vez, incluso con un solo núcleo.
+ */
+public class HuffmanBlockCodec implements Codec {
+
+    // Tamaño del buffer interno de BitWriter
+    private static final int WRITER_BUFFER_SIZE = 64 * 1024;
+
+    // Flujos intercalados y tamaño mínimo de bloque para usarlos
+    private static final int STREAMS = 4;
+    private static final int MIN_INTERLEAVED_BLOCK = 16 * 1024;
+
+    private final boolean interleaved;
+
+    // Tablas ya construidas, compartidas entre los bloques (y archivos) que pasan por este codificador
+    private final CodeTableCache tableCache = new CodeTableCache();
+
+    public HuffmanBlockCodec() {
+        this(true);
+    }
+
+    /**
+     * @param interleaved true para codificar los bloques grandes en cuatro flujos
+     *                    (los bloques de un solo flujo se leen igual en ambos casos)
+     */
+    public HuffmanBlockCodec(boolean interleaved) {
+        this.interleaved = interleaved;
+    }
+
+    @Override
+    public int id() {
+        return HuffmanFormat.METHOD_HUFFMAN;
+    }
+
+    @Override
+    public String name() {
+        return "huffman";
+    }
+
+    /**
+     * Comprime un bloque con su propia tabla de códigos.
+     * Si la salida de Huffman no resulta más chica que los datos originales
+     * (ej. audio, video, archivos ya comprimidos o cifrados), el bloque se
+     * guarda sin comprimir y nunca crece más que unos pocos bytes.
+     */
+    @Override
+    public byte[] encodeBlock(byte[] data, int offset, int length) throws IOException {
+        return plan(data, offset, length).encode();
+    }
+
+    /**
+     * Prepara la codificación del bloque con Huffman normal (o sin comprimir)
+     * y calcula el tamaño exacto del registro, sin codificar nada todavía.
+     * Los codificadores derivados comparan ese tamaño con el de su propio
+     * formato y solo codifican el que ocupa menos.
+     */
+    Plan plan(byte[] data, int offset, int length) throws IOException {
+
+        // 1. Frecuencias del bloque
+        long[] freqTable = new long[256];
+        for (int i = offset; i < offset + length; i++) {
+            freqTable[data[i] & 0xFF]++;
+        }
+
+        // 2. Longitudes y códigos canónicos (reutilizados si un bloque parecido ya los armó)
+        CodeTableCache.Table table = tableCache.get(freqTable, length);
+        int[] codeLengths = table.lengths;
+        HuffmanCodeTable codeTable = table.codeTable;
+
+        // 3. Tamaño exacto del contenido: tabla + bits codificados
+        if (interleaved && length >= MIN_INTERLEAVED_BLOCK) {
+            return planInterleaved(data, offset, length, codeTable, table.tableBytes);
+        }
+        long totalBits = 0;
+        for (int symbol = 0; symbol < 256; symbol++) {
+            totalBits += freqTable[symbol] * codeLengths[symbol];
+        }
+        long huffmanLength = table.tableBytes.length + (totalBits + 7) / 8;
+        if (huffmanLength >= length) {
+            return new Plan(data, offset, length);
+        }
+        int[] streamLengths = {(int) huffmanLength - table.tableBytes.length};
+        return new Plan(HuffmanFormat.BLOCK_HUFFMAN, data, offset, length, codeTable,
+                table.tableBytes, streamLengths, (int) huffmanLength);
+    }
+
+    // Variante de plan con cuatro flujos (registro BLOCK_HUFFMAN_X4)
+    private Plan planInterleaved(byte[] data, int offset, int length,
+                                 HuffmanCodeTable codeTable, byte[] codeLengthBytes) throws IOException {
+
+        // 1. Bytes de cada flujo (cada cuarto se cierra en un byte completo)
+        int segment = (length + STREAMS - 1) / STREAMS;
+        int[] lengths = codeTable.lengths;
+        int[] streamLengths = new int[STREAMS];
+        for (int s = 0; s < STREAMS; s++) {
+            int start = offset + s * segment;
+            int end = Math.min(offset + length, start + segment);
+            long bits = 0;
+            for (int i = start; i < end; i++) {
+                bits += lengths[data[i] & 0xFF];
+            }
+            streamLengths[s] = (int) ((bits + 7) / 8);
+        }
+
+        // 2. Tabla de saltos: largo de los primeros tres flujos (el último es el resto)
+        ByteArrayOutputStream tableBytes = new ByteArrayOutputStream();
+        tableBytes.write(codeLengthBytes);
+        DataOutputStream tables = new DataOutputStream(tableBytes);
+        long streamsTotal = streamLengths[STREAMS - 1];
+        for (int s = 0; s < STREAMS - 1; s++) {
+            HuffmanFormat.writeVarLong(tables, streamLengths[s]);
+            streamsTotal += streamLengths[s];
+        }
+        long payloadLength = tableBytes.size() + streamsTotal;
+        if (payloadLength >= length) {
+            return new Plan(data, offset, length);
+        }
+        return new Plan(HuffmanFormat.BLOCK_HUFFMAN_X4, data, offset, length, codeTable,
+                tableBytes.toByteArray(), streamLengths, (int) payloadLength);
+    }
+
+    /**
+     * Registro de Huffman normal (BLOCK_HUFFMAN o BLOCK_HUFFMAN_X4) o sin
+     * comprimir, ya planeado: se sabe cuánto ocupa y se codifica al pedirlo.
+     */
+    final class Plan {
+        private final int type;
+        private final byte[] data;
+        private final int offset;
+        private final int length;
+        private final HuffmanCodeTable codeTable;
+        private final byte[] tableBytes;     // Longitudes de código (y tabla de saltos en X4)
+        private final int[] streamLengths;   // Bytes de cada flujo de bits
+        private final int payloadLength;
+
+        // Bloque sin comprimir
+        private Plan(byte[] data, int offset, int length) {
+            this(HuffmanFormat.BLOCK_STORED, data, offset, length, null, null, null, length);
+        }
+
+        private Plan(int type, byte[] data, int offset, int length, HuffmanCodeTable codeTable,
+                     byte[] tableBytes, int[] streamLengths, int payloadLength) {
+            this.type = type;
+            this.data = data;
+            this.offset = offset;
+            this.length = length;
+            this.codeTable = codeTable;
+            this.tableBytes = tableBytes;
+            this.streamLengths = streamLengths;
+            this.payloadLength = payloadLength;
+        }
+
+        /**
+         * Tamaño exacto del registro completo (tipo, tamaños y contenido).
+         */
+        long recordLength() {
+            return 1 + HuffmanFormat.varLongLength(length) + HuffmanFormat.varLongLength(payloadLength) + payloadLength;
+        }
+
+        /**
+         * Codifica el bloque y devuelve el registro.
+         */
+        byte[] encode() throws IOException {
+            if (type == HuffmanFormat.BLOCK_STORED) {
+                return encodeStored(data, offset, length);
+            }
+
+            ByteArrayOutputStream record = new ByteArrayOutputStream(payloadLength + 16);
+            DataOutputStream dos = new DataOutputStream(record);
+            dos.writeByte(type);
+            HuffmanFormat.writeVarLong(dos, length);
+            HuffmanFormat.writeVarLong(dos, payloadLength);
+            dos.write(tableBytes);
+
+            // Los flujos uno detrás del otro (uno solo en BLOCK_HUFFMAN)
+            int segment = (length + streamLengths.length - 1) / streamLengths.length;
+            for (int s = 0; s < streamLengths.length; s++) {
+                int start = s * segment;
+                writeStream(dos, data, offset + start, Math.min(length - start, segment), codeTable, streamLengths[s]);
+            }
+            return record.toByteArray();
+        }
+    }
+
+    // Codifica 'length' bytes en un flujo de bits (completando el último byte con ceros)
+    static void writeStream(DataOutputStream dos, byte[] data, int offset, int length,
+                            HuffmanCodeTable codeTable, int streamLength) throws IOException {
+        long[] codes = codeTable.codes;
+        int[] lengths = codeTable.lengths;
+        BitWriter writer = new BitWriter(dos, Math.min(WRITER_BUFFER_SIZE, streamLength + 8));
+        for (int i = offset; i < offset + length; i++) {
+            int symbol = data[i] & 0xFF;
+            writer.writeBits(codes[symbol], lengths[symbol]);
+        }
+        writer.flush();
+    }
+
+    @Override
+    public void decodeBlock(int type, byte[] payload, int offset, int length,
+                            byte[] out, int outOffset, int originalSize) throws IOException {
+        if (type == HuffmanFormat.BLOCK_STORED) {
+            // Bloque sin comprimir: se copia tal cual
+            Codec.decodeStored(payload, offset, length, out, outOffset, originalSize);
+            return;
+        }
+        if (type != HuffmanFormat.BLOCK_HUFFMAN && type != HuffmanFormat.BLOCK_HUFFMAN_X4) {
+            throw new IOException("Tipo de bloque desconocido: " + type);
+        }
+
+        // 1. Leer la tabla de longitudes y armar la tabla de decodificación
+        ByteArrayInputStream tableInput = new ByteArrayInputStream(payload, offset, length);
+        DataInputStream dis = new DataInputStream(tableInput);
+        int[] codeLengths = HuffmanFormat.readCodeLengths(dis);
+        HuffmanCodeTable codeTable = HuffmanCodeTable.fromLengths(codeLengths);
+        HuffmanDecodeTable decodeTable = new HuffmanDecodeTable(codeTable.codes, codeTable.lengths);
+
+        if (type == HuffmanFormat.BLOCK_HUFFMAN) {
+            // 2. Un solo flujo: decodificar los bits que siguen a la tabla
+            int tableLength = length - tableInput.available();
+            BitReader reader = new BitReader(payload, offset + tableLength, length - tableLength);
+            decodeTable.decodeBytes(reader, out, outOffset, originalSize);
+            return;
+        }
+
+        // 2. Cuatro flujos: la tabla de saltos dice dónde empieza cada uno
+        int segment = (originalSize + STREAMS - 1) / STREAMS;
+        long[] streamLengths = new long[STREAMS];
+        for (int s = 0; s < STREAMS - 1; s++) {
+            streamLengths[s] = HuffmanFormat.readVarLong(dis);
+        }
+        int position = offset + length - tableInput.available();
+        long remaining = offset + length - position;
+        for (int s = 0; s < STREAMS - 1 && remaining >= 0; s++) {
+            remaining = streamLengths[s] < 0 ? -1 : remaining - streamLengths[s];
+        }
+        if (remaining < 0 || (long) segment * (STREAMS - 1) > originalSize) {
+            throw new IOException("Datos comprimidos corruptos: tabla de saltos inválida.");
+        }
+        streamLengths[STREAMS - 1] = remaining;
+
+        int[] starts = new int[STREAMS];
+        int[] ends = new int[STREAMS];
+        for (int s = 0; s < STREAMS; s++) {
+            starts[s] = position;
+            position += (int) streamLengths[s];
+            ends[s] = position;
+        }
+        decodeTable.decodeBytes4(payload, starts, ends, out, outOffset, segment, originalSize);
+    }
+}
@@ -1,187 +1,326 @@
 package core;
 
-import utils.HuffmanNode;
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.PriorityQueue;
-import java.io.FileOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 
 public class HuffmanCompressor {
 
-    // Mapa para guardar los códigos generados (ej. 'A' -> "01")
-    private Map<Byte, String> huffmanCodes;
+    // A partir de este tamaño la entrada se mapea en memoria en lugar de leerse
+    private static final long MAPPED_MIN_SIZE = 1024 * 1024;
+
+    // Tamaño máximo de cada segmento mapeado (un MappedByteBuffer no puede pasar de 2 GB)
+    private static final long MAX_SEGMENT_SIZE = 1L << 30;
+
+    // Estimación de entropía: se toman SAMPLE_COUNT muestras de SAMPLE_LENGTH
+    // bytes repartidas por el archivo (solo en archivos de al menos SAMPLE_MIN_SIZE)
+    private static final int SAMPLE_COUNT = 64;
+    private static final int SAMPLE_LENGTH = 4096;
+    private static final long SAMPLE_MIN_SIZE = 256 * 1024;
+
+    // Si la entropía estimada pasa de este valor (bits por byte), Huffman no
+    // podría ahorrar ni un 1%: el archivo se guarda sin comprimir
+    private static final double MAX_USEFUL_ENTROPY = 8 * 0.99;
+
+    // Pool donde se comprimen los bloques en paralelo
+    private final ForkJoinPool pool;
+
+    // Tamaño de cada bloque (cada uno con su propia tabla de códigos)
+    private final int blockSize;
+
+    // Codifica cada bloque (seguro para varios hilos, se comparte entre ellos; ver Codec)
+    private final Codec blockCodec;
 
     // El constructor
     public HuffmanCompressor() {
-        this.huffmanCodes = new HashMap<>();
+        this(ForkJoinPool.commonPool(), HuffmanFormat.DEFAULT_BLOCK_SIZE);
     }
 
-    // --- PASO 1: Contar Frecuencias ---
-    private Map<Byte, Integer> buildFrequencyTable(String filePath) throws IOException {
-        Map<Byte, Integer> freqTable = new HashMap<>();
-        try (FileInputStream fis = new FileInputStream(filePath)) {
-            int byteRead;
-            while ((byteRead = fis.read()) != -1) {
-                byte b = (byte) byteRead;
-                freqTable.put(b, freqTable.getOrDefault(b, 0) + 1);
-            }
-        }
-        return freqTable;
+    /**
+     * @param pool      Pool de hilos para comprimir los bloques
+     * @param blockSize Tamaño de cada bloque en bytes
+     */
+    public HuffmanCompressor(ForkJoinPool pool, int blockSize) {
+        this(pool, blockSize, new HuffmanBlockCodec());
     }
 
-    // --- PASO 2: Construir el Árbol ---
-    private HuffmanNode buildHuffmanTree(Map<Byte, Integer> freqTable) {
-        PriorityQueue<HuffmanNode> pq = new PriorityQueue<>();
+    /**
+     * @param pool      Pool de hilos para comprimir los bloques
+     * @param blockSize Tamaño de cada bloque en bytes
+     * @param codec     Codificador de los bloques (ver CodecRegistry)
+     */
+    public HuffmanCompressor(ForkJoinPool pool, int blockSize, Codec codec) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("El tamaño de bloque debe ser positivo.");
+        }
+        this.pool = pool;
+        this.blockSize = blockSize;
+        this.blockCodec = codec;
+    }
 
-        // 1. Crear hojas y meterlas a la cola
-        for (Map.Entry<Byte, Integer> entry : freqTable.entrySet()) {
-            pq.add(new HuffmanNode(entry.getKey(), entry.getValue()));
+    // --- PASO 1: Cargar la entrada ---
+    // Los archivos grandes se mapean en memoria (por segmentos si pasan de
+    // 2 GB), así cada bloque se lee del mapeo una sola vez para contar
+    // frecuencias y codificar. Los archivos chicos se leen completos.
+    // Los segmentos miden un múltiplo del tamaño de bloque, así ningún
+    // bloque queda partido entre dos segmentos.
+    private ByteBuffer[] loadInput(FileChannel channel, long size) throws IOException {
+        long segmentSize = Math.max(1, MAX_SEGMENT_SIZE / blockSize) * blockSize;
+
+        if (size < MAPPED_MIN_SIZE) {
+            ByteBuffer data = ByteBuffer.allocate((int) size);
+            while (data.hasRemaining() && channel.read(data) != -1) {
+                // Seguimos leyendo hasta llenar el buffer
+            }
+            data.flip();
+            return new ByteBuffer[]{data};
         }
 
-        // 2. Construir el árbol
-        while (pq.size() > 1) {
-            HuffmanNode left = pq.poll();
-            HuffmanNode right = pq.poll();
-            int newFreq = left.frequency + right.frequency;
-            HuffmanNode parent = new HuffmanNode(newFreq, left, right);
-            pq.add(parent);
+        ByteBuffer[] segments = new ByteBuffer[(int) ((size + segmentSize - 1) / segmentSize)];
+        for (int i = 0; i < segments.length; i++) {
+            long position = i * segmentSize;
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(segmentSize, size - position));
         }
+        return segments;
+    }
 
-        // 3. Devolver la raíz del árbol
-        return pq.poll();
+    // --- PASO 2: Comprimir un bloque ---
+    // Se copia el bloque del segmento (lectura absoluta, segura entre hilos)
+    // y se codifica con su propia tabla (frecuencias, longitudes y códigos).
+    private byte[] compressBlock(ByteBuffer segment, int positionInSegment, int length) throws IOException {
+        byte[] block = new byte[length];
+        segment.get(positionInSegment, block, 0, length);
+        return blockCodec.encodeBlock(block, 0, length);
     }
 
-    // --- PASO 3: Generar Códigos ---
-    // Este método "llena" el mapa huffmanCodes
-    private void generateCodes(HuffmanNode node, String code) {
-        if (node == null) {
-            return;
+    // --- PASO 0: Estimar si vale la pena comprimir ---
+    // Se calcula la entropía de orden 0 sobre muestras repartidas por todo
+    // el archivo: H = log2(N) - (1/N) * suma(c * log2(c)). Es una cota
+    // inferior de lo que puede lograr Huffman, en bits por byte.
+    private double estimateEntropy(ByteBuffer[] segments, long segmentSize, long size) {
+        long[] counts = new long[256];
+        byte[] sample = new byte[SAMPLE_LENGTH];
+        long step = size / SAMPLE_COUNT;
+        long total = 0;
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            long start = i * step;
+            ByteBuffer segment = segments[(int) (start / segmentSize)];
+            int position = (int) (start % segmentSize);
+            int length = Math.min(SAMPLE_LENGTH, segment.limit() - position);
+            segment.get(position, sample, 0, length);
+            for (int j = 0; j < length; j++) {
+                counts[sample[j] & 0xFF]++;
+            }
+            total += length;
         }
 
-        // Si es una hoja, encontramos el código para un byte
-        if (node.isLeaf()) {
-            huffmanCodes.put(node.data, code);
-            return;
+        double sum = 0;
+        for (long count : counts) {
+            if (count > 0) {
+                sum += count * (Math.log(count) / Math.log(2));
+            }
         }
-
-        // Si no es hoja, seguimos recorriendo recursivamente
-        // Vamos a la izquierda, agregando un '0' al código
-        generateCodes(node.left, code + "0");
-        // Vamos a la derecha, agregando un '1' al código
-        generateCodes(node.right, code + "1");
+        return Math.log(total) / Math.log(2) - sum / total;
     }
 
-    // --- (PASO 4: Escribir el archivo comprimido - AÚN NO IMPLEMENTADO) ---
-    // Este será el método público principal
+    // Escribe un bloque sin comprimir copiándolo directo del segmento a la salida.
+    // Devuelve el largo total del registro.
+    private int writeStoredBlock(OutputStream out, ByteBuffer segment, int positionInSegment, int length, byte[] copyBuffer) throws IOException {
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream(16);
+        blockCodec.writeStoredHeader(new DataOutputStream(headerBytes), length);
+        headerBytes.writeTo(out);
+
+        for (int copied = 0; copied < length; ) {
+            int count = Math.min(copyBuffer.length, length - copied);
+            segment.get(positionInSegment + copied, copyBuffer, 0, count);
+            out.write(copyBuffer, 0, count);
+            copied += count;
+        }
+        return headerBytes.size() + length;
+    }
 
     /**
      * Comprime un archivo usando el algoritmo de Huffman.
+     * El archivo se divide en bloques independientes que se comprimen en
+     * paralelo; los resultados se escriben en orden y al final se agrega
+     * un índice de bloques (ver HuffmanFormat).
      * @param inputFilePath Archivo de entrada
      * @param outputFilePath Archivo de salida (ej. "archivo.cmp")
      */
-    // Reemplaza el método compress() que tenías por este:
+    public void compress(String inputFilePath, String outputFilePath) throws IOException {
+        try (OutputStream out = new FileOutputStream(outputFilePath)) {
+            compress(inputFilePath, out);
+        }
+
+        System.out.println("¡Archivo comprimido exitosamente en: " + outputFilePath + "!");
+    }
 
     /**
-     * Comprime un archivo usando el algoritmo de Huffman.
+     * Comprime un archivo y escribe el resultado en un stream (sin cerrarlo).
+     * Cada bloque se escribe apenas está listo (y en orden), así el stream
+     * puede ser, por ejemplo, un cifrador que procesa los datos al vuelo.
      * @param inputFilePath Archivo de entrada
-     * @param outputFilePath Archivo de salida (ej. "archivo.cmp")
+     * @param out           Destino de los datos comprimidos
      */
-    public void compress(String inputFilePath, String outputFilePath) throws IOException {
-
-        // --- PASOS 1, 2 y 3 (Ya los teníamos) ---
-
-        // 1. Contar frecuencias
-        Map<Byte, Integer> freqTable = buildFrequencyTable(inputFilePath);
-
-        // 2. Construir el árbol
-        HuffmanNode root = buildHuffmanTree(freqTable);
-
-        // 3. Generar los códigos
-        this.huffmanCodes.clear();
-        generateCodes(root, "");
-
-        // --- PASO 4: Escribir el archivo comprimido ---
-
-        // Usamos try-with-resources para que los streams se cierren solos
-        try (FileInputStream fis = new FileInputStream(inputFilePath);
-             FileOutputStream fos = new FileOutputStream(outputFilePath);
-             DataOutputStream dos = new DataOutputStream(fos)) {
-
-            // --- 4.a: Escribir el Encabezado ---
-            writeHeader(dos, freqTable);
-
-            // --- 4.b: Escribir los Datos Comprimidos ---
-            writeCompressedData(fis, dos, huffmanCodes);
+    public void compress(String inputFilePath, OutputStream out) throws IOException {
+
+        // Usamos try-with-resources para que el canal se cierre solo
+        try (FileChannel inChannel = FileChannel.open(Paths.get(inputFilePath), StandardOpenOption.READ)) {
+
+            // 1. Cargar (o mapear) la entrada
+            long originalSize = inChannel.size();
+            ByteBuffer[] segments = loadInput(inChannel, originalSize);
+            long segmentSize = segments.length > 1 ? segments[0].limit() : Long.MAX_VALUE;
+
+            // 2. Encabezado
+            writeHeader(out);
+
+            // 2.b Si las muestras dicen que no se puede comprimir (audio, video,
+            //     archivos ya comprimidos o cifrados), se copia sin contar ni codificar.
+            //     Solo aplica a Huffman: LZ77 puede aprovechar repeticiones aunque
+            //     los bytes por separado parezcan aleatorios.
+            boolean incompressible = blockCodec.id() == HuffmanFormat.METHOD_HUFFMAN
+                    && originalSize >= SAMPLE_MIN_SIZE
+                    && estimateEntropy(segments, segmentSize, originalSize) >= MAX_USEFUL_ENTROPY;
+
+            // 3. Comprimir los bloques en paralelo, con a lo sumo 'window'
+            //    bloques en memoria a la vez, y escribirlos en orden
+            ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+            DataOutputStream index = new DataOutputStream(indexBytes);
+            long blockCount = (originalSize + blockSize - 1) / blockSize;
+            int window = Math.max(2, pool.getParallelism() * 2);
+            ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+
+            byte[] copyBuffer = incompressible ? new byte[64 * 1024] : null;
+
+            try {
+                long nextToWrite = 0;
+                for (long block = 0; block < blockCount; block++) {
+                    long start = block * blockSize;
+                    ByteBuffer segment = segments[(int) (start / segmentSize)];
+                    int positionInSegment = (int) (start % segmentSize);
+                    int length = (int) Math.min(blockSize, originalSize - start);
+
+                    if (incompressible) {
+                        int recordLength = writeStoredBlock(out, segment, positionInSegment, length, copyBuffer);
+                        HuffmanFormat.writeVarLong(index, recordLength);
+                        HuffmanFormat.writeVarLong(index, length);
+                        continue;
+                    }
+
+                    pending.add(pool.submit(() -> compressBlock(segment, positionInSegment, length)));
+
+                    if (pending.size() >= window) {
+                        writeBlock(out, index, await(pending.poll()), rawLength(nextToWrite++, originalSize));
+                    }
+                }
+                while (!pending.isEmpty()) {
+                    writeBlock(out, index, await(pending.poll()), rawLength(nextToWrite++, originalSize));
+                }
+            } finally {
+                // Si algo falló, cancelamos los bloques que quedaron en cola
+                for (Future<byte[]> future : pending) {
+                    future.cancel(true);
+                }
+            }
 
+            // 4. Fin de bloques, índice y pie del archivo
+            writeFooter(out, blockCount, indexBytes);
+            out.flush();
         }
-
-        System.out.println("¡Archivo comprimido exitosamente en: " + outputFilePath + "!");
     }
 
     /**
-     * Escribe el encabezado del archivo comprimido.
-     * El encabezado contendrá la tabla de frecuencias.
+     * Comprime datos que ya están en memoria, sin pasar por archivos.
+     * @param data Datos originales
+     * @return Los datos comprimidos (formato por bloques)
      */
-    private void writeHeader(DataOutputStream dos, Map<Byte, Integer> freqTable) throws IOException {
-        // 1. Escribir el número de entradas únicas (el tamaño del mapa)
-        dos.writeInt(freqTable.size());
-
-        // 2. Escribir cada entrada (byte y su frecuencia)
-        for (Map.Entry<Byte, Integer> entry : freqTable.entrySet()) {
-            dos.writeByte(entry.getKey());   // Escribe el byte
-            dos.writeInt(entry.getValue()); // Escribe su frecuencia (int)
+    public byte[] compress(byte[] data) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 2 + 64);
+        try (HuffmanOutputStream hos = new HuffmanOutputStream(compressed, blockSize, blockCodec)) {
+            hos.write(data);
         }
+        return compressed.toByteArray();
     }
 
     /**
-     * Escribe los datos comprimidos (bit a bit).
+     * Comprime los bytes restantes de un ByteBuffer (se consumen todos).
+     * @return Un ByteBuffer con los datos comprimidos, listo para leer
      */
-    private void writeCompressedData(FileInputStream fis, DataOutputStream dos, Map<Byte, String> huffmanCodes) throws IOException {
-
-        byte buffer = 0; // Buffer para acumular bits (un byte a la vez)
-        int bitCount = 0; // Contador de cuántos bits hay en el buffer
+    public ByteBuffer compress(ByteBuffer data) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.remaining() / 2 + 64);
+        try (HuffmanOutputStream hos = new HuffmanOutputStream(compressed, blockSize, blockCodec)) {
+            if (data.hasArray()) {
+                hos.write(data.array(), data.arrayOffset() + data.position(), data.remaining());
+                data.position(data.limit());
+            } else {
+                // Buffer directo: se copia por tramos
+                byte[] chunk = new byte[Math.min(data.remaining(), 64 * 1024)];
+                while (data.hasRemaining()) {
+                    int count = Math.min(chunk.length, data.remaining());
+                    data.get(chunk, 0, count);
+                    hos.write(chunk, 0, count);
+                }
+            }
+        }
+        return ByteBuffer.wrap(compressed.toByteArray());
+    }
 
-        int byteRead;
-        // 1. Volver a leer el archivo de entrada, byte por byte
-        while ((byteRead = fis.read()) != -1) {
-            // 2. Obtener el código Huffman para ese byte (ej. "01101")
-            String code = huffmanCodes.get((byte) byteRead);
+    /**
+     * Escribe el encabezado del formato por bloques.
+     */
+    private void writeHeader(OutputStream out) throws IOException {
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        HuffmanFormat.writeBlocksHeader(new DataOutputStream(headerBytes), blockCodec.id(), blockSize);
+        headerBytes.writeTo(out);
+    }
 
-            // 3. Iterar sobre cada '0' o '1' en el código
-            for (char c : code.toCharArray()) {
-                // 4. Mover el buffer 1 espacio a la izquierda
-                buffer = (byte) (buffer << 1);
+    /**
+     * Escribe un bloque ya comprimido y anota su entrada en el índice.
+     */
+    private void writeBlock(OutputStream out, DataOutputStream index, byte[] record, int rawLength) throws IOException {
+        out.write(record);
+        HuffmanFormat.writeVarLong(index, record.length);
+        HuffmanFormat.writeVarLong(index, rawLength);
+    }
 
-                // 5. Si el bit es '1', ponemos un 1 en el espacio nuevo
-                if (c == '1') {
-                    buffer = (byte) (buffer | 1);
-                }
+    /**
+     * Escribe la marca de fin de bloques, el índice y el pie del archivo.
+     */
+    private void writeFooter(OutputStream out, long blockCount, ByteArrayOutputStream indexBytes) throws IOException {
+        ByteArrayOutputStream footerBytes = new ByteArrayOutputStream();
+        HuffmanFormat.writeBlocksTrailer(new DataOutputStream(footerBytes), blockCount, indexBytes);
+        footerBytes.writeTo(out);
+    }
 
-                bitCount++; // Incrementamos el contador de bits
+    // Tamaño original del bloque número 'block'
+    private int rawLength(long block, long originalSize) {
+        return (int) Math.min(blockSize, originalSize - block * blockSize);
+    }
 
-                // 6. Si el buffer está lleno (8 bits), lo escribimos al archivo
-                if (bitCount == 8) {
-                    dos.writeByte(buffer);
-                    // Y reiniciamos el buffer y el contador
-                    buffer = 0;
-                    bitCount = 0;
-                }
+    // Espera el resultado de un bloque, devolviendo el error original si falló
+    private static byte[] await(Future<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Compresión interrumpida.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
             }
-        }
-
-        // --- Manejar el último byte ---
-        // 7. Al final, puede que el buffer no se haya llenado
-        if (bitCount > 0) {
-            // Rellenamos con '0' los bits restantes
-            // (ej. si bitCount=5, movemos 3 espacios a la izq.)
-            buffer = (byte) (buffer << (8 - bitCount));
-            dos.writeByte(buffer); // Escribimos el último byte
+            throw new IOException("Error al comprimir un bloque: " + e.getCause(), e.getCause());
         }
     }
-
-    // (Aquí iría el método writeCompressedFile)
-}
\ No newline at end of file
+}
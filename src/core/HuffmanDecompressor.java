@@ -1,21 +1,52 @@
 package core;
 
+import utils.BitReader;
+import utils.HuffmanCodeTable;
+import utils.HuffmanDecodeTable;
 import utils.HuffmanNode;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.DataInputStream;
-import java.util.HashMap;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 public class HuffmanDecompressor {
 
+    // Tamaño de los buffers de lectura y escritura (64 KB)
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     private HuffmanNode huffmanTreeRoot; // La raíz del árbol
     private Map<Byte, Integer> freqTable; // La tabla de frecuencias
 
+    // Pool donde se descomprimen los bloques en paralelo
+    private final ForkJoinPool pool;
+
     public HuffmanDecompressor() {
-        this.freqTable = new HashMap<>();
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param pool Pool de hilos para descomprimir los bloques
+     */
+    public HuffmanDecompressor(ForkJoinPool pool) {
+        // LinkedHashMap conserva el orden del encabezado, que es el mismo orden
+        // en que el compresor insertó las hojas en la cola de prioridad
+        this.freqTable = new LinkedHashMap<>();
+        this.pool = pool;
     }
 
     // --- PASO 1: Leer el Encabezado ---
@@ -62,63 +93,205 @@ public class HuffmanDecompressor {
     }
 
     // --- PASO 3: Descomprimir los Datos ---
-    private void decodeData(DataInputStream dis, FileOutputStream fos) throws IOException {
+    // En lugar de recorrer el árbol bit por bit, se arma una tabla de
+    // decodificación y se resuelven uno o dos bytes por consulta.
+    private void decodeData(DataInputStream dis, OutputStream fos) throws IOException {
 
         // Calculamos el número total de bytes que debemos escribir
         long totalBytes = 0;
         for (int freq : this.freqTable.values()) {
             totalBytes += freq;
         }
+        if (totalBytes == 0) {
+            return; // Archivo original vacío
+        }
 
-        long bytesWritten = 0;
-        HuffmanNode currentNode = this.huffmanTreeRoot; // Empezamos en la raíz
+        // 1. Obtener los códigos del árbol y armar la tabla de decodificación
+        HuffmanCodeTable codeTable = HuffmanCodeTable.fromTree(this.huffmanTreeRoot);
+        HuffmanDecodeTable decodeTable = new HuffmanDecodeTable(codeTable.codes, codeTable.lengths);
+
+        // 2. Decodificar por bloques en un buffer grande y escribirlo de una vez
+        writeDecoded(new BitReader(dis, BUFFER_SIZE), decodeTable, totalBytes, fos);
+    }
 
-        int byteRead;
-        // 1. Leer el resto del archivo, byte por byte
-        while ((byteRead = dis.read()) != -1) {
+    // --- Formato por bloques (versión 3), leído en orden ---
+    // Los registros se leen uno tras otro hasta la marca de fin; cada
+    // bloque se decodifica en el pool mientras se sigue leyendo, y los
+    // resultados se escriben en orden.
+    private void decodeBlocks(DataInputStream dis, OutputStream fos) throws IOException {
+        // El codificador según el encabezado (seguro para varios hilos, se comparte entre ellos)
+        Codec blockCodec = CodecRegistry.get(dis.readUnsignedByte());
+        long blockSize = HuffmanFormat.readVarLong(dis);
+        if (blockSize <= 0 || blockSize > Integer.MAX_VALUE) {
+            throw new IOException("Encabezado corrupto: tamaño de bloque inválido.");
+        }
 
-            // 2. Procesar cada bit dentro de ese byte
-            for (int i = 7; i >= 0; i--) {
-                // Si ya escribimos todos los bytes, paramos.
-                if (bytesWritten >= totalBytes) {
-                    return;
+        int window = Math.max(2, pool.getParallelism() * 2);
+        ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+        try {
+            int type;
+            while ((type = dis.readUnsignedByte()) != HuffmanFormat.BLOCK_END) {
+                long originalSize = HuffmanFormat.readVarLong(dis);
+                long payloadLength = HuffmanFormat.readVarLong(dis);
+                if (originalSize > blockSize || payloadLength > Integer.MAX_VALUE) {
+                    throw new IOException("Datos comprimidos corruptos: bloque demasiado grande.");
                 }
 
-                // 3. Obtenemos el bit (0 o 1)
-                // (byteRead >> i) & 1: Desplaza el bit 'i' a la posición 0 y lo aísla
-                int bit = (byteRead >> i) & 1;
+                byte[] payload = new byte[(int) payloadLength];
+                dis.readFully(payload);
+                int blockType = type;
+                int size = (int) originalSize;
+                pending.add(pool.submit(() -> {
+                    byte[] out = new byte[size];
+                    blockCodec.decodeBlock(blockType, payload, 0, payload.length, out, 0, size);
+                    return out;
+                }));
 
-                // 4. Navegamos por el árbol
-                if (bit == 0) {
-                    currentNode = currentNode.left;
-                } else { // bit == 1
-                    currentNode = currentNode.right;
+                if (pending.size() >= window) {
+                    fos.write(await(pending.poll()));
                 }
+            }
+            while (!pending.isEmpty()) {
+                fos.write(await(pending.poll()));
+            }
+        } finally {
+            for (Future<byte[]> future : pending) {
+                future.cancel(true);
+            }
+        }
 
-                // 5. Si llegamos a una hoja...
-                if (currentNode.isLeaf()) {
-                    // Escribimos el byte original en el archivo de salida
-                    fos.write(currentNode.data);
-                    bytesWritten++;
+        // Se consume el índice y el pie para dejar la entrada al final del archivo
+        HuffmanFormat.skipBlocksTrailer(dis);
+    }
 
-                    // Y volvemos a la raíz para buscar el siguiente byte
-                    currentNode = this.huffmanTreeRoot;
+    // --- Formato por bloques con índice: en paralelo ---
+    // Cada bloque se lee con una lectura posicional, se decodifica en su
+    // propio hilo y se escribe directamente en su posición del archivo de
+    // salida, así no importa en qué orden terminen.
+    private void decodeBlocksParallel(FileChannel inChannel, BlockIndex index, FileChannel outChannel) throws IOException {
+        Codec blockCodec = CodecRegistry.get(index.codecId);
+        int window = Math.max(2, pool.getParallelism() * 2);
+        ArrayDeque<Future<Integer>> pending = new ArrayDeque<>();
+        try {
+            for (int i = 0; i < index.blockCount; i++) {
+                int block = i;
+                pending.add(pool.submit(() -> {
+                    byte[] out = decodeIndexedBlock(blockCodec, inChannel, index, block);
+                    ByteBuffer buffer = ByteBuffer.wrap(out);
+                    long position = index.rawOffsets[block];
+                    while (buffer.hasRemaining()) {
+                        outChannel.write(buffer, position + buffer.position());
+                    }
+                    return out.length;
+                }));
+                if (pending.size() >= window) {
+                    await(pending.poll());
                 }
             }
+            while (!pending.isEmpty()) {
+                await(pending.poll());
+            }
+        } finally {
+            for (Future<Integer> future : pending) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    // Lee y decodifica un bloque usando el índice
+    private byte[] decodeIndexedBlock(Codec blockCodec, FileChannel inChannel, BlockIndex index, int block) throws IOException {
+        byte[] record = BlockIndex.readAt(inChannel, index.recordOffsets[block], index.recordLengths[block]);
+        byte[] out = new byte[index.rawLengths[block]];
+        int decoded = blockCodec.decodeRecord(record, 0, record.length, out, 0);
+        if (decoded != out.length) {
+            throw new IOException("Datos comprimidos corruptos: el bloque no coincide con el índice.");
+        }
+        return out;
+    }
+
+    // --- Formato canónico (versión 2) ---
+    // El encabezado solo trae las longitudes de código: la tabla de
+    // decodificación se arma directamente, sin reconstruir el árbol.
+    private void decodeCanonical(DataInputStream dis, OutputStream fos) throws IOException {
+        long totalBytes = HuffmanFormat.readVarLong(dis);
+        if (totalBytes == 0) {
+            return; // Archivo original vacío
+        }
+
+        int[] codeLengths = HuffmanFormat.readCodeLengths(dis);
+        HuffmanCodeTable codeTable = HuffmanCodeTable.fromLengths(codeLengths);
+        HuffmanDecodeTable decodeTable = new HuffmanDecodeTable(codeTable.codes, codeTable.lengths);
+
+        writeDecoded(new BitReader(dis, BUFFER_SIZE), decodeTable, totalBytes, fos);
+    }
+
+    // Decodifica 'totalBytes' bytes en un buffer grande y lo escribe de una vez
+    private void writeDecoded(BitReader reader, HuffmanDecodeTable decodeTable, long totalBytes, OutputStream fos) throws IOException {
+        byte[] outBuffer = new byte[BUFFER_SIZE];
+        long remaining = totalBytes;
+        while (remaining > 0) {
+            int count = (int) Math.min(outBuffer.length, remaining);
+            decodeTable.decodeBytes(reader, outBuffer, 0, count);
+            fos.write(outBuffer, 0, count);
+            remaining -= count;
         }
     }
 
     /**
      * Descomprime un archivo .cmp de Huffman.
+     * Acepta el formato por bloques, el canónico y el formato antiguo
+     * (tabla de frecuencias), según los primeros bytes del archivo.
      * @param inputFilePath Archivo de entrada (ej. "archivo.cmp")
      * @param outputFilePath Archivo de salida (ej. "archivo_original.txt")
      */
     public void decompress(String inputFilePath, String outputFilePath) throws IOException {
 
+        // Si el archivo tiene índice de bloques, se descomprime en paralelo
+        try (FileChannel inChannel = FileChannel.open(Paths.get(inputFilePath), StandardOpenOption.READ)) {
+            BlockIndex index = BlockIndex.read(inChannel);
+            if (index != null) {
+                try (FileChannel outChannel = FileChannel.open(Paths.get(outputFilePath),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    decodeBlocksParallel(inChannel, index, outChannel);
+                }
+                System.out.println("¡Archivo descomprimido exitosamente en: " + outputFilePath + "!");
+                return;
+            }
+        }
+
         // Usamos try-with-resources para que se cierren solos
         try (FileInputStream fis = new FileInputStream(inputFilePath);
-             DataInputStream dis = new DataInputStream(fis);
-             FileOutputStream fos = new FileOutputStream(outputFilePath)) {
+             OutputStream fos = new FileOutputStream(outputFilePath)) {
+            decompress(fis, fos);
+        }
+
+        System.out.println("¡Archivo descomprimido exitosamente en: " + outputFilePath + "!");
+    }
+
+    /**
+     * Descomprime datos leídos de un stream (por ejemplo, uno que descifra
+     * al vuelo) y los escribe en otro, sin archivos intermedios.
+     * Acepta los mismos formatos que decompress(String, String).
+     * Ninguno de los dos streams se cierra.
+     * @param in  Datos comprimidos
+     * @param out Destino de los datos originales
+     */
+    public void decompress(InputStream in, OutputStream out) throws IOException {
+        DataInputStream dis = new DataInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+
+        // 0. Revisar el número mágico para saber qué formato es
+        dis.mark(2);
+        if (dis.read() == HuffmanFormat.MAGIC_0 && dis.read() == HuffmanFormat.MAGIC_1) {
+            int version = dis.readUnsignedByte();
+            if (version == HuffmanFormat.VERSION_BLOCKS) {
+                decodeBlocks(dis, out);
+            } else if (version == HuffmanFormat.VERSION_CANONICAL) {
+                decodeCanonical(dis, out);
+            } else {
+                throw new IOException("Versión de formato no soportada: " + version);
+            }
+        } else {
+            dis.reset();
 
             // 1. Leer el encabezado para llenar la tabla de frecuencias
             readHeader(dis);
@@ -127,9 +300,103 @@ public class HuffmanDecompressor {
             buildHuffmanTree();
 
             // 3. Decodificar los datos y escribir el archivo original
-            decodeData(dis, fos);
+            decodeData(dis, out);
         }
+        out.flush();
+    }
 
-        System.out.println("¡Archivo descomprimido exitosamente en: " + outputFilePath + "!");
+    /**
+     * Descomprime datos en memoria producidos por HuffmanOutputStream o
+     * por HuffmanCompressor.compress(byte[]).
+     * @param data Datos comprimidos (formato por bloques)
+     * @return Los datos originales
+     */
+    public byte[] decompress(byte[] data) throws IOException {
+        try (HuffmanInputStream his = new HuffmanInputStream(new ByteArrayInputStream(data))) {
+            return his.readAllBytes();
+        }
+    }
+
+    /**
+     * Descomprime los bytes restantes de un ByteBuffer (se consumen todos).
+     * @return Un ByteBuffer con los datos originales, listo para leer
+     */
+    public ByteBuffer decompress(ByteBuffer data) throws IOException {
+        byte[] compressed;
+        if (data.hasArray() && data.arrayOffset() == 0 && data.position() == 0 && data.limit() == data.array().length) {
+            compressed = data.array();
+        } else {
+            compressed = new byte[data.remaining()];
+            data.get(compressed);
+        }
+        data.position(data.limit());
+        return ByteBuffer.wrap(decompress(compressed));
+    }
+
+    /**
+     * Descomprime solo una parte del archivo original, sin inflar todo el archivo.
+     * Se decodifican únicamente los bloques que cubren el rango pedido.
+     * @param inputFilePath Archivo comprimido (formato por bloques)
+     * @param offset        Posición del primer byte pedido (en el archivo original)
+     * @param length        Cantidad de bytes pedidos
+     * @return Los bytes originales del rango
+     */
+    public byte[] decompressRange(String inputFilePath, long offset, int length) throws IOException {
+        try (FileChannel inChannel = FileChannel.open(Paths.get(inputFilePath), StandardOpenOption.READ)) {
+            BlockIndex index = BlockIndex.read(inChannel);
+            if (index == null) {
+                throw new IOException("El archivo no tiene índice de bloques: " + inputFilePath);
+            }
+            if (offset < 0 || length < 0 || offset + length > index.originalSize) {
+                throw new IllegalArgumentException("Rango fuera del archivo original: " + offset + " + " + length);
+            }
+
+            byte[] result = new byte[length];
+            if (length == 0) {
+                return result;
+            }
+
+            // Cada bloque copia su parte a una zona distinta del resultado
+            Codec blockCodec = CodecRegistry.get(index.codecId);
+            int first = index.blockAt(offset);
+            int last = index.blockAt(offset + length - 1);
+            ArrayDeque<Future<Integer>> pending = new ArrayDeque<>();
+            try {
+                for (int i = first; i <= last; i++) {
+                    int block = i;
+                    pending.add(pool.submit(() -> {
+                        byte[] out = decodeIndexedBlock(blockCodec, inChannel, index, block);
+                        long blockStart = index.rawOffsets[block];
+                        long from = Math.max(offset, blockStart);
+                        long to = Math.min(offset + length, blockStart + out.length);
+                        System.arraycopy(out, (int) (from - blockStart), result, (int) (from - offset), (int) (to - from));
+                        return (int) (to - from);
+                    }));
+                }
+                while (!pending.isEmpty()) {
+                    await(pending.poll());
+                }
+            } finally {
+                for (Future<Integer> future : pending) {
+                    future.cancel(true);
+                }
+            }
+            return result;
+        }
+    }
+
+    // Espera el resultado de un bloque, devolviendo el error original si falló
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Descompresión interrumpida.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Error al descomprimir un bloque: " + e.getCause(), e.getCause());
+        }
     }
-}
\ No newline at end of file
+}
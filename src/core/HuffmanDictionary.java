@@ -0,0 +1,333 @@
+package core;
+
+import utils.HuffmanCodeTable;
+import utils.HuffmanDecodeTable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Diccionario de tablas Huffman compartidas (ver DictionaryCodec).
+ *
+ * En archivos de unos pocos cientos de bytes la tabla propia de cada
+ * bloque pesa más que los datos y además sale de muy pocas muestras.
+ * Un diccionario se entrena una sola vez con archivos de ejemplo parecidos
+ * (ej. fragmentos JSON o líneas de log) y guarda una o varias tablas;
+ * cada bloque anota solo el identificador del diccionario y qué tabla usó.
+ *
+ * Formato del archivo (.hfd):
+ *   'H' 'F' 'D' | versión | identificador (int) | cantidad de tablas |
+ *   longitudes de cada tabla (como en HuffmanFormat.writeCodeLengths).
+ *
+ * El identificador es el CRC32C de las tablas, así que dos diccionarios
+ * distintos no comparten identificador por accidente.
+ */
+public final class HuffmanDictionary {
+
+    public static final String EXTENSION = ".hfd";
+
+    private static final byte[] MAGIC = {'H', 'F', 'D'};
+    private static final int VERSION = 1;
+
+    // Máximo de tablas por diccionario (el índice viaja en un byte de cada bloque)
+    public static final int MAX_TABLES = 16;
+
+    // Vueltas de k-means para agrupar las muestras
+    private static final int CLUSTER_ITERATIONS = 6;
+
+    private final int id;
+    private final int[][] lengths;
+    private final HuffmanCodeTable[] codeTables;
+    private final HuffmanDecodeTable[] decodeTables;
+
+    private HuffmanDictionary(int id, int[][] lengths) {
+        this.id = id;
+        this.lengths = lengths;
+        this.codeTables = new HuffmanCodeTable[lengths.length];
+        this.decodeTables = new HuffmanDecodeTable[lengths.length];
+        for (int t = 0; t < lengths.length; t++) {
+            codeTables[t] = HuffmanCodeTable.fromLengths(lengths[t]);
+            decodeTables[t] = new HuffmanDecodeTable(codeTables[t].codes, codeTables[t].lengths);
+        }
+    }
+
+    public int id() {
+        return id;
+    }
+
+    public int tableCount() {
+        return lengths.length;
+    }
+
+    HuffmanCodeTable codeTable(int table) {
+        return codeTables[table];
+    }
+
+    HuffmanDecodeTable decodeTable(int table) {
+        return decodeTables[table];
+    }
+
+    /**
+     * Tabla que codifica estas frecuencias con menos bits.
+     */
+    int bestTable(long[] freqTable) {
+        int best = 0;
+        long bestBits = Long.MAX_VALUE;
+        for (int t = 0; t < lengths.length; t++) {
+            long bits = encodedBits(t, freqTable);
+            if (bits < bestBits) {
+                bestBits = bits;
+                best = t;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Bits que ocupan estas frecuencias codificadas con la tabla indicada.
+     */
+    long encodedBits(int table, long[] freqTable) {
+        long bits = 0;
+        for (int symbol = 0; symbol < 256; symbol++) {
+            bits += freqTable[symbol] * lengths[table][symbol];
+        }
+        return bits;
+    }
+
+    // --- Entrenamiento ---
+
+    /**
+     * Entrena un diccionario con las muestras dadas.
+     * Las muestras se agrupan por su distribución de bytes (k-means, como
+     * los contextos de ContextHuffmanCodec) y cada grupo da una tabla.
+     * Todas las tablas pueden codificar los 256 bytes, aunque alguno no
+     * aparezca en las muestras.
+     *
+     * @param samples    archivos (o trozos de archivos) de ejemplo
+     * @param tableCount cantidad máxima de tablas (1 a MAX_TABLES)
+     */
+    public static HuffmanDictionary train(List<byte[]> samples, int tableCount) {
+        if (tableCount < 1 || tableCount > MAX_TABLES) {
+            throw new IllegalArgumentException("Cantidad de tablas fuera de rango: " + tableCount);
+        }
+
+        // 1. Frecuencias de cada muestra
+        long[][] sampleFreq = new long[samples.size()][256];
+        int used = 0;
+        for (int i = 0; i < samples.size(); i++) {
+            byte[] sample = samples.get(i);
+            for (byte b : sample) {
+                sampleFreq[i][b & 0xFF]++;
+            }
+            if (sample.length > 0) {
+                used++;
+            }
+        }
+        if (used == 0) {
+            throw new IllegalArgumentException("No hay muestras para entrenar el diccionario.");
+        }
+
+        // 2. Agrupar las muestras y sumar las frecuencias de cada grupo
+        int[] sampleMap = clusterSamples(sampleFreq, Math.min(tableCount, used));
+        int clusterCount = 0;
+        for (int cluster : sampleMap) {
+            clusterCount = Math.max(clusterCount, cluster + 1);
+        }
+        int[][] lengths = new int[clusterCount][];
+        for (int k = 0; k < clusterCount; k++) {
+            // Suavizado: ningún byte queda sin código
+            long[] freq = new long[256];
+            Arrays.fill(freq, 1);
+            for (int i = 0; i < sampleFreq.length; i++) {
+                if (sampleMap[i] == k) {
+                    for (int symbol = 0; symbol < 256; symbol++) {
+                        freq[symbol] += sampleFreq[i][symbol];
+                    }
+                }
+            }
+            lengths[k] = HuffmanCodeTable.buildLengths(freq, HuffmanFormat.MAX_CODE_LENGTH);
+        }
+
+        // 3. Identificador: CRC32C de las tablas
+        try {
+            CRC32C crc = new CRC32C();
+            crc.update(writeTables(lengths));
+            return new HuffmanDictionary((int) crc.getValue(), lengths);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // k-means sobre las muestras: cada una va al grupo cuya distribución la
+    // codifica con menos bits. Devuelve el grupo de cada muestra (sin huecos).
+    private static int[] clusterSamples(long[][] sampleFreq, int clusterCount) {
+        int samples = sampleFreq.length;
+        int[] sampleMap = new int[samples];
+        if (clusterCount <= 1) {
+            return sampleMap;
+        }
+
+        // 1. Semillas: la muestra más grande y después, una a una, la que
+        //    peor se codifica con las semillas ya elegidas
+        long[] sampleTotal = new long[samples];
+        int first = 0;
+        for (int i = 0; i < samples; i++) {
+            for (long freq : sampleFreq[i]) {
+                sampleTotal[i] += freq;
+            }
+            if (sampleTotal[i] > sampleTotal[first]) {
+                first = i;
+            }
+        }
+        long[][] clusterFreq = new long[clusterCount][];
+        clusterFreq[0] = sampleFreq[first].clone();
+        double[] bestCost = new double[samples];
+        Arrays.fill(bestCost, Double.MAX_VALUE);
+        for (int k = 1; k < clusterCount; k++) {
+            double[] cost = symbolCosts(clusterFreq[k - 1]);
+            int farthest = -1;
+            for (int i = 0; i < samples; i++) {
+                if (sampleTotal[i] == 0) {
+                    continue;
+                }
+                bestCost[i] = Math.min(bestCost[i], sampleCost(sampleFreq[i], cost) / sampleTotal[i]);
+                if (farthest < 0 || bestCost[i] > bestCost[farthest]) {
+                    farthest = i;
+                }
+            }
+            clusterFreq[k] = sampleFreq[farthest].clone();
+        }
+
+        // 2. Asignar cada muestra al grupo más barato y recalcular los grupos
+        for (int iteration = 0; iteration < CLUSTER_ITERATIONS; iteration++) {
+            double[][] cost = new double[clusterCount][];
+            for (int k = 0; k < clusterCount; k++) {
+                cost[k] = symbolCosts(clusterFreq[k]);
+            }
+            for (int i = 0; i < samples; i++) {
+                int best = 0;
+                double bestBits = Double.MAX_VALUE;
+                for (int k = 0; k < clusterCount; k++) {
+                    double bits = sampleCost(sampleFreq[i], cost[k]);
+                    if (bits < bestBits) {
+                        bestBits = bits;
+                        best = k;
+                    }
+                }
+                sampleMap[i] = best;
+            }
+
+            clusterFreq = new long[clusterCount][256];
+            for (int i = 0; i < samples; i++) {
+                for (int symbol = 0; symbol < 256; symbol++) {
+                    clusterFreq[sampleMap[i]][symbol] += sampleFreq[i][symbol];
+                }
+            }
+        }
+
+        // 3. Numerar los grupos que quedaron con muestras, sin huecos
+        int[] renumber = new int[clusterCount];
+        int next = 0;
+        for (int k = 0; k < clusterCount; k++) {
+            long total = 0;
+            for (long freq : clusterFreq[k]) {
+                total += freq;
+            }
+            renumber[k] = total > 0 ? next++ : -1;
+        }
+        for (int i = 0; i < samples; i++) {
+            int cluster = renumber[sampleMap[i]];
+            sampleMap[i] = cluster >= 0 ? cluster : 0;
+        }
+        return sampleMap;
+    }
+
+    // Bits estimados de cada símbolo en un grupo (con un poco de suavizado
+    // para que un símbolo ausente no cueste infinito)
+    private static double[] symbolCosts(long[] clusterFreq) {
+        long total = 0;
+        for (long freq : clusterFreq) {
+            total += freq;
+        }
+        double[] cost = new double[256];
+        double logTotal = Math.log(total + 128.0);
+        for (int symbol = 0; symbol < 256; symbol++) {
+            cost[symbol] = logTotal - Math.log(clusterFreq[symbol] + 0.5);
+        }
+        return cost;
+    }
+
+    private static double sampleCost(long[] freq, double[] cost) {
+        double bits = 0;
+        for (int symbol = 0; symbol < 256; symbol++) {
+            if (freq[symbol] > 0) {
+                bits += freq[symbol] * cost[symbol];
+            }
+        }
+        return bits;
+    }
+
+    // --- Archivo del diccionario ---
+
+    /**
+     * Guarda el diccionario en un archivo .hfd.
+     */
+    public void save(Path file) throws IOException {
+        try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            dos.write(MAGIC);
+            dos.writeByte(VERSION);
+            dos.writeInt(id);
+            dos.write(writeTables(lengths));
+        }
+    }
+
+    /**
+     * Lee un diccionario guardado con save y valida sus tablas.
+     */
+    public static HuffmanDictionary load(Path file) throws IOException {
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            byte[] magic = new byte[MAGIC.length];
+            dis.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("No es un diccionario: " + file);
+            }
+            int version = dis.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IOException("Versión de diccionario no soportada: " + version);
+            }
+            int id = dis.readInt();
+            int tableCount = dis.readUnsignedByte();
+            if (tableCount < 1 || tableCount > MAX_TABLES) {
+                throw new IOException("Diccionario corrupto: cantidad de tablas inválida (" + tableCount + ").");
+            }
+            int[][] lengths = new int[tableCount][];
+            for (int t = 0; t < tableCount; t++) {
+                lengths[t] = HuffmanFormat.readCodeLengths(dis);
+                for (int length : lengths[t]) {
+                    if (length == 0) {
+                        throw new IOException("Diccionario corrupto: la tabla " + t + " no cubre todos los bytes.");
+                    }
+                }
+            }
+            return new HuffmanDictionary(id, lengths);
+        }
+    }
+
+    private static byte[] writeTables(int[][] lengths) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream dos = new DataOutputStream(bytes);
+        dos.writeByte(lengths.length);
+        for (int[] table : lengths) {
+            HuffmanFormat.writeCodeLengths(dos, table);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,292 @@
+package core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Constantes y utilidades del formato de archivo .cmp.
+ *
+ * Formato antiguo (versión 1, sin número mágico):
+ *   int cantidadDeSímbolos, luego (byte, int frecuencia) por cada símbolo, luego los datos.
+ *
+ * Formato canónico (versión 2):
+ *   'H' 'F' versión | tamaño original (varint) | longitudes de código | datos.
+ * Como los códigos son canónicos, basta con guardar la longitud de cada código:
+ * el compresor y el descompresor derivan exactamente los mismos códigos.
+ *
+ * Formato por bloques (versión 3):
+ *   'H' 'F' versión | método | tamaño de bloque (varint)
+ *   bloques: tipo | tamaño original (varint) | tamaño del contenido (varint) | contenido
+ *   BLOCK_END | índice | largo del índice (int) | 'H' 'F' 'I' 'X'
+ * Cada bloque tiene su propia tabla de códigos, así que se pueden comprimir
+ * (y descomprimir) por separado. El índice guarda, por cada bloque, el largo
+ * del registro y su tamaño original.
+ *
+ * El método es el identificador del codificador de los bloques (ver Codec
+ * y CodecRegistry): Huffman de bytes (METHOD_HUFFMAN), LZ77 seguido de
+ * Huffman (METHOD_LZ_HUFFMAN), tANS/FSE (METHOD_FSE), Huffman con
+ * contexto de orden 1 (METHOD_CONTEXT_HUFFMAN), Burrows-Wheeler seguido
+ * de Huffman (METHOD_BWT) o Huffman con las tablas de un diccionario
+ * compartido (METHOD_DICTIONARY).
+ */
+public final class HuffmanFormat {
+
+    // Número mágico: el formato antiguo siempre empieza con un 0 (parte alta del int)
+    public static final int MAGIC_0 = 'H';
+    public static final int MAGIC_1 = 'F';
+
+    public static final int VERSION_CANONICAL = 2;
+    public static final int VERSION_BLOCKS = 3;
+
+    // Método de compresión de los bloques (identificador del Codec)
+    public static final int METHOD_HUFFMAN = 0;
+    public static final int METHOD_LZ_HUFFMAN = 1;
+    public static final int METHOD_FSE = 2;
+    public static final int METHOD_CONTEXT_HUFFMAN = 3;
+    public static final int METHOD_BWT = 4;
+    public static final int METHOD_DICTIONARY = 5;
+
+    // Tipos de bloque
+    public static final int BLOCK_STORED = 0;   // Datos sin comprimir (cuando Huffman no ahorra nada)
+    public static final int BLOCK_HUFFMAN = 1;
+    public static final int BLOCK_LZ = 2;       // Coincidencias LZ77 + Huffman (ver LzHuffmanCodec)
+    public static final int BLOCK_FSE = 3;      // Sistemas numéricos asimétricos (ver FseCodec)
+    public static final int BLOCK_CONTEXT = 4;  // Una tabla por grupo de contextos (ver ContextHuffmanCodec)
+    public static final int BLOCK_BWT = 5;      // Burrows-Wheeler + move-to-front + Huffman (ver BwtCodec)
+    public static final int BLOCK_HUFFMAN_X4 = 6; // Huffman en cuatro flujos de bits (ver HuffmanBlockCodec)
+    public static final int BLOCK_DICTIONARY = 7; // Huffman con una tabla de un diccionario (ver DictionaryCodec)
+    public static final int BLOCK_END = 0xFF;
+
+    // Tamaño de bloque por defecto (1 MB)
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+
+    // Número mágico al final del archivo (después del índice de bloques)
+    public static final byte[] INDEX_MAGIC = {'H', 'F', 'I', 'X'};
+
+    // Longitud máxima de un código canónico (cabe en 4 bits del encabezado)
+    public static final int MAX_CODE_LENGTH = 15;
+
+    // Modos de la tabla de longitudes
+    private static final int TABLE_DENSE = 0;   // 256 longitudes de 4 bits (128 bytes)
+    private static final int TABLE_BITMAP = 1;  // mapa de 256 bits + 4 bits por símbolo presente
+
+    private HuffmanFormat() {
+    }
+
+    /**
+     * Escribe las longitudes de código de los 256 bytes de la forma más compacta.
+     */
+    public static void writeCodeLengths(DataOutputStream dos, int[] lengths) throws IOException {
+        int present = 0;
+        for (int length : lengths) {
+            if (length > 0) {
+                present++;
+            }
+        }
+
+        // Mapa de bits (32 bytes) + medio byte por símbolo, o directamente 128 bytes
+        int bitmapSize = 32 + (present + 1) / 2;
+        if (bitmapSize < 128) {
+            dos.writeByte(TABLE_BITMAP);
+            for (int i = 0; i < 32; i++) {
+                int bits = 0;
+                for (int j = 0; j < 8; j++) {
+                    if (lengths[i * 8 + j] > 0) {
+                        bits |= 0x80 >>> j;
+                    }
+                }
+                dos.writeByte(bits);
+            }
+            int pending = -1;
+            for (int length : lengths) {
+                if (length == 0) {
+                    continue;
+                }
+                if (pending < 0) {
+                    pending = length;
+                } else {
+                    dos.writeByte((pending << 4) | length);
+                    pending = -1;
+                }
+            }
+            if (pending >= 0) {
+                dos.writeByte(pending << 4);
+            }
+        } else {
+            dos.writeByte(TABLE_DENSE);
+            for (int i = 0; i < 256; i += 2) {
+                dos.writeByte((lengths[i] << 4) | lengths[i + 1]);
+            }
+        }
+    }
+
+    /**
+     * Lee la tabla escrita por writeCodeLengths y valida que forme un código prefijo.
+     */
+    public static int[] readCodeLengths(DataInputStream dis) throws IOException {
+        int[] lengths = new int[256];
+        int mode = dis.readUnsignedByte();
+
+        if (mode == TABLE_DENSE) {
+            for (int i = 0; i < 256; i += 2) {
+                int packed = dis.readUnsignedByte();
+                lengths[i] = packed >>> 4;
+                lengths[i + 1] = packed & 0x0F;
+            }
+        } else if (mode == TABLE_BITMAP) {
+            byte[] bitmap = new byte[32];
+            dis.readFully(bitmap);
+            int packed = 0;
+            boolean high = true;
+            for (int symbol = 0; symbol < 256; symbol++) {
+                if ((bitmap[symbol >>> 3] & (0x80 >>> (symbol & 7))) == 0) {
+                    continue;
+                }
+                if (high) {
+                    packed = dis.readUnsignedByte();
+                    lengths[symbol] = packed >>> 4;
+                } else {
+                    lengths[symbol] = packed & 0x0F;
+                }
+                high = !high;
+            }
+        } else {
+            throw new IOException("Encabezado corrupto: modo de tabla desconocido (" + mode + ").");
+        }
+
+        checkCodeLengths(lengths);
+        return lengths;
+    }
+
+    /**
+     * Escribe las longitudes de código de un alfabeto de cualquier tamaño,
+     * 4 bits por símbolo (la cantidad de símbolos la conocen ambos lados).
+     */
+    public static void writePackedLengths(DataOutputStream dos, int[] lengths) throws IOException {
+        for (int i = 0; i < lengths.length; i += 2) {
+            int low = i + 1 < lengths.length ? lengths[i + 1] : 0;
+            dos.writeByte((lengths[i] << 4) | low);
+        }
+    }
+
+    /**
+     * Lee 'alphabetSize' longitudes escritas con writePackedLengths.
+     */
+    public static int[] readPackedLengths(DataInputStream dis, int alphabetSize) throws IOException {
+        int[] lengths = new int[alphabetSize];
+        for (int i = 0; i < alphabetSize; i += 2) {
+            int packed = dis.readUnsignedByte();
+            lengths[i] = packed >>> 4;
+            if (i + 1 < alphabetSize) {
+                lengths[i + 1] = packed & 0x0F;
+            }
+        }
+        checkCodeLengths(lengths);
+        return lengths;
+    }
+
+    // Desigualdad de Kraft: la suma de 2^-longitud no puede pasar de 1
+    private static void checkCodeLengths(int[] lengths) throws IOException {
+        long kraft = 0;
+        for (int length : lengths) {
+            if (length > 0) {
+                kraft += 1L << (MAX_CODE_LENGTH - length);
+            }
+        }
+        if (kraft > (1L << MAX_CODE_LENGTH)) {
+            throw new IOException("Encabezado corrupto: longitudes de código inválidas.");
+        }
+    }
+
+    /**
+     * Escribe el encabezado del formato por bloques.
+     */
+    public static void writeBlocksHeader(DataOutputStream dos, int method, int blockSize) throws IOException {
+        // 1. Número mágico y versión del formato
+        dos.writeByte(MAGIC_0);
+        dos.writeByte(MAGIC_1);
+        dos.writeByte(VERSION_BLOCKS);
+
+        // 2. Método de compresión y tamaño de bloque
+        dos.writeByte(method);
+        writeVarLong(dos, blockSize);
+    }
+
+    /**
+     * Escribe la marca de fin de bloques, el índice y el pie del archivo.
+     * @param blockCount   Cantidad de bloques escritos
+     * @param indexEntries Por cada bloque: largo del registro y tamaño original (varint)
+     */
+    public static void writeBlocksTrailer(DataOutputStream dos, long blockCount, ByteArrayOutputStream indexEntries) throws IOException {
+        dos.writeByte(BLOCK_END);
+
+        // El índice: cantidad de bloques y las entradas de cada uno
+        ByteArrayOutputStream index = new ByteArrayOutputStream();
+        DataOutputStream indexOut = new DataOutputStream(index);
+        writeVarLong(indexOut, blockCount);
+        indexEntries.writeTo(indexOut);
+        index.writeTo(dos);
+
+        // Pie: largo del índice y número mágico (para encontrarlo desde el final)
+        dos.writeInt(index.size());
+        dos.write(INDEX_MAGIC);
+    }
+
+    /**
+     * Lee el índice y el pie que siguen a la marca de fin (ya leída),
+     * dejando la entrada justo después del archivo comprimido.
+     */
+    public static void skipBlocksTrailer(DataInputStream dis) throws IOException {
+        long blockCount = readVarLong(dis);
+        for (long i = 0; i < blockCount * 2; i++) {
+            readVarLong(dis);
+        }
+        dis.readInt();
+        byte[] magic = new byte[INDEX_MAGIC.length];
+        dis.readFully(magic);
+        if (!Arrays.equals(magic, INDEX_MAGIC)) {
+            throw new IOException("Datos comprimidos corruptos: pie de archivo inválido.");
+        }
+    }
+
+    /**
+     * Escribe un entero sin signo usando 7 bits por byte (los números chicos ocupan 1 byte).
+     */
+    public static void writeVarLong(DataOutputStream dos, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            dos.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        dos.writeByte((int) value);
+    }
+
+    /**
+     * Bytes que ocupa un entero escrito con writeVarLong.
+     */
+    public static int varLongLength(long value) {
+        int bytes = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            bytes++;
+        }
+        return bytes;
+    }
+
+    /**
+     * Lee un entero escrito con writeVarLong.
+     */
+    public static long readVarLong(DataInputStream dis) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = dis.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Encabezado corrupto: entero variable demasiado largo.");
+    }
+}
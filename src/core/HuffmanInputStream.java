@@ -0,0 +1,140 @@
+package core;
+
+import java.io.DataInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Descomprime un stream con el formato por bloques (ver HuffmanFormat),
+ * por ejemplo el que produce HuffmanOutputStream.
+ * Los bloques se leen y decodifican de a uno, a medida que se piden datos,
+ * así la memoria usada no pasa del tamaño de un bloque. Al terminar, el
+ * stream de entrada queda justo después del archivo comprimido.
+ */
+public class HuffmanInputStream extends FilterInputStream {
+
+    private final DataInputStream dis;
+    private Codec blockCodec;   // Según el identificador del encabezado
+    private int blockSize = -1; // Se conoce al leer el encabezado
+
+    private byte[] payload = new byte[0];
+    private byte[] block = new byte[0];
+    private int blockPosition;
+    private int blockLength;
+    private boolean eof;
+
+    public HuffmanInputStream(InputStream in) {
+        super(in);
+        this.dis = new DataInputStream(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (blockPosition == blockLength && !nextBlock()) {
+            return -1;
+        }
+        return block[blockPosition++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || off + len > b.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (blockPosition == blockLength && !nextBlock()) {
+            return -1;
+        }
+        int count = Math.min(len, blockLength - blockPosition);
+        System.arraycopy(block, blockPosition, b, off, count);
+        blockPosition += count;
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n) {
+            if (blockPosition == blockLength && !nextBlock()) {
+                break;
+            }
+            int count = (int) Math.min(n - skipped, blockLength - blockPosition);
+            blockPosition += count;
+            skipped += count;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return blockLength - blockPosition;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        // No se soporta mark/reset sobre datos comprimidos
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset no está soportado.");
+    }
+
+    // Lee y decodifica el siguiente bloque. Devuelve false al llegar al final.
+    private boolean nextBlock() throws IOException {
+        if (eof) {
+            return false;
+        }
+        if (blockSize < 0) {
+            readHeader();
+        }
+
+        int type;
+        do {
+            type = dis.readUnsignedByte();
+            if (type == HuffmanFormat.BLOCK_END) {
+                HuffmanFormat.skipBlocksTrailer(dis);
+                eof = true;
+                return false;
+            }
+            long originalSize = HuffmanFormat.readVarLong(dis);
+            long payloadLength = HuffmanFormat.readVarLong(dis);
+            if (originalSize > blockSize || payloadLength > Integer.MAX_VALUE) {
+                throw new IOException("Datos comprimidos corruptos: bloque demasiado grande.");
+            }
+            if (payload.length < payloadLength) {
+                payload = new byte[(int) payloadLength];
+            }
+            if (block.length < originalSize) {
+                block = new byte[(int) originalSize];
+            }
+            dis.readFully(payload, 0, (int) payloadLength);
+            blockCodec.decodeBlock(type, payload, 0, (int) payloadLength, block, 0, (int) originalSize);
+            blockPosition = 0;
+            blockLength = (int) originalSize;
+        } while (blockLength == 0);
+        return true;
+    }
+
+    private void readHeader() throws IOException {
+        if (dis.readUnsignedByte() != HuffmanFormat.MAGIC_0
+                || dis.readUnsignedByte() != HuffmanFormat.MAGIC_1
+                || dis.readUnsignedByte() != HuffmanFormat.VERSION_BLOCKS) {
+            throw new IOException("El stream no tiene el formato por bloques de Huffman.");
+        }
+        blockCodec = CodecRegistry.get(dis.readUnsignedByte());
+        long size = HuffmanFormat.readVarLong(dis);
+        if (size <= 0 || size > Integer.MAX_VALUE) {
+            throw new IOException("Encabezado corrupto: tamaño de bloque inválido.");
+        }
+        blockSize = (int) size;
+    }
+}
@@ -0,0 +1,130 @@
+package core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Comprime con Huffman todo lo que se escribe en él, en el formato por
+ * bloques (ver HuffmanFormat).
+ * Los datos se acumulan hasta completar un bloque, que se comprime con su
+ * propia tabla y se escribe al stream de salida. Así no hace falta conocer
+ * los datos de antemano (sockets, pipes, datos en memoria) y la memoria
+ * usada no pasa del tamaño de un bloque.
+ *
+ * flush() no corta el bloque actual (eso empeoraría la compresión); los
+ * datos pendientes se escriben al llamar a finish() o close().
+ */
+public class HuffmanOutputStream extends FilterOutputStream {
+
+    private final DataOutputStream dos;
+    private final Codec blockCodec;
+    private final byte[] block;
+    private int blockLength;
+
+    // Entradas del índice (largo del registro y tamaño original de cada bloque)
+    private final ByteArrayOutputStream indexEntries;
+    private final DataOutputStream index;
+    private long blockCount;
+    private boolean finished;
+
+    public HuffmanOutputStream(OutputStream out) throws IOException {
+        this(out, HuffmanFormat.DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * @param out       Stream donde se escriben los datos comprimidos
+     * @param blockSize Tamaño de cada bloque en bytes
+     */
+    public HuffmanOutputStream(OutputStream out, int blockSize) throws IOException {
+        this(out, blockSize, new HuffmanBlockCodec());
+    }
+
+    /**
+     * @param out       Stream donde se escriben los datos comprimidos
+     * @param blockSize Tamaño de cada bloque en bytes
+     * @param codec     Codificador de los bloques (ver CodecRegistry)
+     */
+    public HuffmanOutputStream(OutputStream out, int blockSize, Codec codec) throws IOException {
+        super(out);
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("El tamaño de bloque debe ser positivo.");
+        }
+        this.dos = new DataOutputStream(out);
+        this.blockCodec = codec;
+        this.block = new byte[blockSize];
+        this.indexEntries = new ByteArrayOutputStream();
+        this.index = new DataOutputStream(indexEntries);
+
+        HuffmanFormat.writeBlocksHeader(dos, codec.id(), blockSize);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        block[blockLength++] = (byte) b;
+        if (blockLength == block.length) {
+            writeBlock();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        if (off < 0 || len < 0 || off + len > b.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        while (len > 0) {
+            int count = Math.min(len, block.length - blockLength);
+            System.arraycopy(b, off, block, blockLength, count);
+            blockLength += count;
+            off += count;
+            len -= count;
+            if (blockLength == block.length) {
+                writeBlock();
+            }
+        }
+    }
+
+    /**
+     * Escribe el último bloque, el índice y el pie, sin cerrar el stream de salida.
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        if (blockLength > 0) {
+            writeBlock();
+        }
+        HuffmanFormat.writeBlocksTrailer(dos, blockCount, indexEntries);
+        dos.flush();
+        finished = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    // Comprime el bloque acumulado y lo escribe a la salida
+    private void writeBlock() throws IOException {
+        byte[] record = blockCodec.encodeBlock(block, 0, blockLength);
+        dos.write(record);
+        HuffmanFormat.writeVarLong(index, record.length);
+        HuffmanFormat.writeVarLong(index, blockLength);
+        blockCount++;
+        blockLength = 0;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (finished) {
+            throw new IOException("El stream comprimido ya fue finalizado.");
+        }
+    }
+}
@@ -1,15 +1,66 @@
 package utils;
 
-import java.io.FileWriter;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Registro de operaciones en log.txt.
+ *
+ * Quien registra solo arma el texto de la entrada y lo deja en una cola
+ * acotada; un único hilo de fondo lo escribe en el archivo, que queda
+ * abierto. El hilo escribe todo lo que haya en la cola de una vez y vacía
+ * el buffer al terminar cada tanda, así que al procesar carpetas con miles
+ * de archivos no se reabre el log por cada uno y las entradas de hilos
+ * distintos nunca se mezclan. Si la cola se llena, quien registra espera
+ * (no se pierden entradas).
+ *
+ * Cuando log.txt supera MAX_LOG_SIZE bytes se renombra a log.txt.1 (el anterior
+ * pasa a log.txt.2, y así hasta MAX_BACKUPS) y se empieza uno nuevo.
+ * Al cerrar el programa se escribe lo que quede en la cola.
+ */
 public class LogManager {
 
     private static final String LOG_FILE = "log.txt";
-    private static final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String NEW_LINE = System.lineSeparator();
+
+    // Codificación del archivo (la del sistema, como FileWriter) y buffer de escritura
+    private static final Charset CHARSET = Charset.defaultCharset();
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    // Entradas en espera como máximo
+    private static final int QUEUE_CAPACITY = 4096;
+
+    // Entradas escritas por tanda antes de vaciar el buffer
+    private static final int BATCH_SIZE = 256;
+
+    // Tamaño a partir del cual se rota el log (10 MB) y copias que se guardan
+    private static final long MAX_LOG_SIZE = 10L * 1024 * 1024;
+    private static final int MAX_BACKUPS = 3;
+
+    // Cola de entradas (String) y avisos de flush (CountDownLatch)
+    private static final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+    private static volatile boolean closed;
+
+    static {
+        Thread writerThread = new Thread(LogManager::writeLoop, "log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(LogManager::close, "log-shutdown"));
+    }
 
     /**
      * Registra una operación exitosa en el archivo de log.
@@ -24,32 +75,28 @@ public class LogManager {
     public static void logOperation(String operationName, String originalFileName,
                                     long timeMs, double compressionRatio,
                                     long originalSize, long finalSize) {
-        try (FileWriter fw = new FileWriter(LOG_FILE, true);
-             PrintWriter pw = new PrintWriter(fw)) {
-
-            String timestamp = dateFormat.format(new Date());
-
-            pw.println("=".repeat(80));
-            pw.println("OPERACIÓN: " + operationName);
-            pw.println("Fecha y Hora: " + timestamp);
-            pw.println("Archivo Original: " + originalFileName);
-            pw.println("Tamaño Original: " + formatBytes(originalSize));
-            pw.println("Tamaño Final: " + formatBytes(finalSize));
-            pw.println("Tiempo de Operación: " + timeMs + " ms (" + (timeMs / 1000.0) + " segundos)");
-
-            if (compressionRatio > 0) {
-                pw.println("Tasa de Compresión: " + String.format("%.2f", compressionRatio) + ":1");
-                double percentReduction = ((double)(originalSize - finalSize) / originalSize) * 100;
-                pw.println("Reducción de Tamaño: " + String.format("%.2f", percentReduction) + "%");
-            }
+        StringBuilder entry = new StringBuilder(512);
+        String timestamp = LocalDateTime.now().format(DATE_FORMAT);
 
-            pw.println("Estado: EXITOSO");
-            pw.println("=".repeat(80));
-            pw.println();
+        line(entry, "=".repeat(80));
+        line(entry, "OPERACIÓN: " + operationName);
+        line(entry, "Fecha y Hora: " + timestamp);
+        line(entry, "Archivo Original: " + originalFileName);
+        line(entry, "Tamaño Original: " + formatBytes(originalSize));
+        line(entry, "Tamaño Final: " + formatBytes(finalSize));
+        line(entry, "Tiempo de Operación: " + timeMs + " ms (" + (timeMs / 1000.0) + " segundos)");
 
-        } catch (IOException e) {
-            System.err.println("Error al escribir en el log: " + e.getMessage());
+        if (compressionRatio > 0) {
+            line(entry, "Tasa de Compresión: " + String.format("%.2f", compressionRatio) + ":1");
+            double percentReduction = ((double)(originalSize - finalSize) / originalSize) * 100;
+            line(entry, "Reducción de Tamaño: " + String.format("%.2f", percentReduction) + "%");
         }
+
+        line(entry, "Estado: EXITOSO");
+        line(entry, "=".repeat(80));
+        line(entry, "");
+
+        enqueue(entry.toString());
     }
 
     /**
@@ -60,22 +107,178 @@ public class LogManager {
      * @param errorMessage     Mensaje de error
      */
     public static void logError(String operationName, String originalFileName, String errorMessage) {
-        try (FileWriter fw = new FileWriter(LOG_FILE, true);
-             PrintWriter pw = new PrintWriter(fw)) {
-
-            String timestamp = dateFormat.format(new Date());
-
-            pw.println("=".repeat(80));
-            pw.println("ERROR EN OPERACIÓN: " + operationName);
-            pw.println("Fecha y Hora: " + timestamp);
-            pw.println("Archivo: " + originalFileName);
-            pw.println("Mensaje de Error: " + errorMessage);
-            pw.println("Estado: FALLIDO");
-            pw.println("=".repeat(80));
-            pw.println();
-
-        } catch (IOException e) {
-            System.err.println("Error al escribir en el log: " + e.getMessage());
+        StringBuilder entry = new StringBuilder(256);
+        String timestamp = LocalDateTime.now().format(DATE_FORMAT);
+
+        line(entry, "=".repeat(80));
+        line(entry, "ERROR EN OPERACIÓN: " + operationName);
+        line(entry, "Fecha y Hora: " + timestamp);
+        line(entry, "Archivo: " + originalFileName);
+        line(entry, "Mensaje de Error: " + errorMessage);
+        line(entry, "Estado: FALLIDO");
+        line(entry, "=".repeat(80));
+        line(entry, "");
+
+        enqueue(entry.toString());
+    }
+
+    /**
+     * Espera a que todo lo registrado hasta ahora esté escrito en el archivo.
+     */
+    public static void flush() {
+        CountDownLatch written = new CountDownLatch(1);
+        if (enqueue(written)) {
+            try {
+                written.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Escribe lo que quede en la cola y deja de aceptar entradas
+     * (se llama solo al cerrar el programa).
+     */
+    public static void close() {
+        CountDownLatch written = new CountDownLatch(1);
+        if (enqueue(written)) {
+            closed = true;
+            try {
+                written.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static void line(StringBuilder entry, String text) {
+        entry.append(text).append(NEW_LINE);
+    }
+
+    // Deja una entrada (o un aviso de flush) en la cola, esperando si está llena
+    private static boolean enqueue(Object item) {
+        if (closed) {
+            return false;
+        }
+        try {
+            queue.put(item);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Error al escribir en el log: registro interrumpido.");
+            return false;
+        }
+    }
+
+    // --- Hilo de escritura ---
+
+    // Archivo abierto y su tamaño en bytes (solo los usa el hilo de escritura)
+    private static OutputStream logStream;
+    private static long logSize;
+
+    private static void writeLoop() {
+        List<Object> batch = new ArrayList<>(BATCH_SIZE);
+
+        while (true) {
+            // 1. Esperar una entrada y juntar las que ya estén en la cola
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            queue.drainTo(batch, BATCH_SIZE - 1);
+
+            // 2. Escribir la tanda entrada por entrada (un error no descarta las demás)
+            for (Object item : batch) {
+                if (item instanceof String) {
+                    writeEntry(((String) item).getBytes(CHARSET));
+                }
+            }
+
+            // 3. Vaciar el buffer una vez por tanda
+            if (logStream != null) {
+                try {
+                    logStream.flush();
+                } catch (IOException e) {
+                    System.err.println("Error al escribir en el log: " + e.getMessage());
+                    closeLog();
+                }
+            }
+
+            // 4. Avisar a quienes esperan un flush
+            for (Object item : batch) {
+                if (item instanceof CountDownLatch) {
+                    ((CountDownLatch) item).countDown();
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    // Escribe una entrada, abriendo (o rotando) el archivo si hace falta. Si la
+    // escritura falla, se cierra el archivo y se reintenta una vez con uno nuevo.
+    private static void writeEntry(byte[] entry) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                if (logStream == null || logSize >= MAX_LOG_SIZE) {
+                    openLog();
+                }
+                logStream.write(entry);
+                logSize += entry.length;
+                return;
+            } catch (IOException e) {
+                closeLog();
+                if (attempt == 2) {
+                    System.err.println("Error al escribir en el log: " + e.getMessage());
+                    return;
+                }
+            }
+        }
+    }
+
+    // Abre log.txt para agregar al final (rotándolo antes si pasó el límite)
+    private static void openLog() throws IOException {
+        if (logStream != null) {
+            closeLog();
+            try {
+                rotate();
+            } catch (IOException e) {
+                // Si no se puede rotar, se sigue escribiendo en el mismo archivo
+                System.err.println("Error al rotar el log: " + e.getMessage());
+            }
+        }
+        File logFile = new File(LOG_FILE);
+        logStream = new BufferedOutputStream(new FileOutputStream(logFile, true), STREAM_BUFFER_SIZE);
+        logSize = logFile.length();
+    }
+
+    private static void closeLog() {
+        if (logStream != null) {
+            try {
+                logStream.close();
+            } catch (IOException ignored) {
+                // El error ya se informó al escribir
+            }
+            logStream = null;
+        }
+    }
+
+    // log.txt -> log.txt.1 -> log.txt.2 ... (la copia más vieja se borra)
+    private static void rotate() throws IOException {
+        File oldest = new File(LOG_FILE + "." + MAX_BACKUPS);
+        if (oldest.exists() && !oldest.delete()) {
+            throw new IOException("No se pudo borrar " + oldest);
+        }
+        for (int i = MAX_BACKUPS - 1; i >= 1; i--) {
+            File backup = new File(LOG_FILE + "." + i);
+            if (backup.exists() && !backup.renameTo(new File(LOG_FILE + "." + (i + 1)))) {
+                throw new IOException("No se pudo renombrar " + backup);
+            }
+        }
+        File current = new File(LOG_FILE);
+        if (current.exists() && !current.renameTo(new File(LOG_FILE + ".1"))) {
+            throw new IOException("No se pudo renombrar " + current);
         }
     }
 
@@ -0,0 +1,296 @@
+package core;
+
+import utils.BitReader;
+import utils.BitWriter;
+import utils.HuffmanCodeTable;
+import utils.HuffmanDecodeTable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Codificador de bloques LZ77 + Huffman (método METHOD_LZ_HUFFMAN).
+ *
+ * Primero se buscan repeticiones dentro del bloque: cada vez que los bytes
+ * actuales ya aparecieron hace poco (dentro de una ventana de WINDOW_SIZE bytes),
+ * se reemplazan por un par (longitud, distancia). Lo que no se repite queda
+ * como literal. Después los literales, longitudes y distancias se codifican
+ * con Huffman canónico, igual que los bytes en HuffmanBlockCodec.
+ *
+ * Contenido de un bloque BLOCK_LZ:
+ *   longitudes del alfabeto literal/longitud (LITLEN_SYMBOLS, 4 bits c/u)
+ *   longitudes del alfabeto de distancias (DISTANCE_SYMBOLS, 4 bits c/u)
+ *   bits: por cada literal su código; por cada coincidencia el código de la
+ *   longitud + bits extra y el código de la distancia + bits extra.
+ *
+ * Longitudes y distancias se agrupan en "cubetas": los valores menores a 16
+ * tienen su propio símbolo; los demás se reparten en dos cubetas por potencia
+ * de dos y los bits bajos se escriben tal cual (bits extra).
+ *
+ * Como los bloques se siguen comprimiendo por separado, la ventana nunca
+ * cruza el inicio del bloque y se conserva la compresión en paralelo.
+ * Un bloque sin repeticiones útiles se guarda como BLOCK_HUFFMAN o
+ * BLOCK_STORED (lo que ocupe menos), igual que con HuffmanBlockCodec.
+ *
+ * Las tablas de literales y distancias se arman en cada llamada; el único
+ * estado compartido es la caché de tablas heredada (CodeTableCache), que
+ * está sincronizada, así que una instancia sirve para varios hilos.
+ */
+public class LzHuffmanCodec extends HuffmanBlockCodec {
+
+    // Ventana de búsqueda y largo de las coincidencias
+    private static final int WINDOW_SIZE = 1 << 16;
+    private static final int WINDOW_MASK = WINDOW_SIZE - 1;
+    private static final int MIN_MATCH = 4;
+    private static final int MAX_MATCH = MIN_MATCH + 255;
+
+    // Tabla hash de 4 bytes y cuántos candidatos revisar por posición
+    private static final int HASH_BITS = 16;
+    private static final int MAX_CHAIN = 48;
+    private static final int GOOD_MATCH = 64;   // Con una coincidencia así de larga se deja de buscar
+    private static final int TOO_FAR = 4096;    // Una coincidencia mínima más lejos que esto no conviene
+
+    // Alfabetos: 256 literales + 24 cubetas de longitud; 40 cubetas de distancia
+    private static final int LENGTH_SYMBOLS = bucketOf(MAX_MATCH - MIN_MATCH) + 1;
+    private static final int LITLEN_SYMBOLS = 256 + LENGTH_SYMBOLS;
+    private static final int DISTANCE_SYMBOLS = bucketOf(WINDOW_SIZE - 1) + 1;
+
+    // Marca de coincidencia en la lista de símbolos: bits 16-23 longitud, bits 0-15 distancia - 1
+    private static final int MATCH_FLAG = 0x80000000;
+
+    private static final int WRITER_BUFFER_SIZE = 64 * 1024;
+
+    @Override
+    public int id() {
+        return HuffmanFormat.METHOD_LZ_HUFFMAN;
+    }
+
+    @Override
+    public String name() {
+        return "lz";
+    }
+
+    @Override
+    public byte[] encodeBlock(byte[] data, int offset, int length) throws IOException {
+
+        // 1. Buscar coincidencias y contar frecuencias de cada alfabeto
+        int[] tokens = new int[length];
+        long[] litLenFreq = new long[LITLEN_SYMBOLS];
+        long[] distanceFreq = new long[DISTANCE_SYMBOLS];
+        int tokenCount = findMatches(data, offset, length, tokens, litLenFreq, distanceFreq);
+
+        // 2. Longitudes y códigos canónicos de ambos alfabetos
+        int[] litLenLengths = HuffmanCodeTable.buildLengths(litLenFreq, HuffmanFormat.MAX_CODE_LENGTH);
+        int[] distanceLengths = HuffmanCodeTable.buildLengths(distanceFreq, HuffmanFormat.MAX_CODE_LENGTH);
+        HuffmanCodeTable litLenTable = HuffmanCodeTable.fromLengths(litLenLengths);
+        HuffmanCodeTable distanceTable = HuffmanCodeTable.fromLengths(distanceLengths);
+
+        // 3. Tamaño exacto del contenido: tablas + códigos + bits extra
+        long totalBits = 0;
+        for (int symbol = 0; symbol < LITLEN_SYMBOLS; symbol++) {
+            int extra = symbol < 256 ? 0 : extraBits(symbol - 256);
+            totalBits += litLenFreq[symbol] * (litLenLengths[symbol] + extra);
+        }
+        for (int symbol = 0; symbol < DISTANCE_SYMBOLS; symbol++) {
+            totalBits += distanceFreq[symbol] * (distanceLengths[symbol] + extraBits(symbol));
+        }
+        long payloadLength = (LITLEN_SYMBOLS + 1) / 2 + (DISTANCE_SYMBOLS + 1) / 2 + (totalBits + 7) / 8;
+
+        // 3.b Si el bloque casi no tiene repeticiones, Huffman solo (o sin
+        //     comprimir) puede salir más chico: se usa lo que ocupe menos.
+        //     Su tamaño se conoce por el plan, así que solo se codifica uno de los dos
+        Plan huffman = plan(data, offset, length);
+        if (huffman.recordLength() <= payloadLength + 8) {
+            return huffman.encode();
+        }
+
+        // 4. Escribir el registro
+        ByteArrayOutputStream record = new ByteArrayOutputStream((int) payloadLength + 16);
+        DataOutputStream dos = new DataOutputStream(record);
+        dos.writeByte(HuffmanFormat.BLOCK_LZ);
+        HuffmanFormat.writeVarLong(dos, length);
+        HuffmanFormat.writeVarLong(dos, payloadLength);
+        HuffmanFormat.writePackedLengths(dos, litLenLengths);
+        HuffmanFormat.writePackedLengths(dos, distanceLengths);
+
+        long[] litLenCodes = litLenTable.codes;
+        long[] distanceCodes = distanceTable.codes;
+        BitWriter writer = new BitWriter(dos, (int) Math.min(WRITER_BUFFER_SIZE, payloadLength + 8));
+        for (int t = 0; t < tokenCount; t++) {
+            int token = tokens[t];
+            if (token >= 0) {
+                writer.writeBits(litLenCodes[token], litLenLengths[token]);
+                continue;
+            }
+            int matchLength = (token >>> 16) & 0xFF;
+            int lengthBucket = bucketOf(matchLength);
+            writer.writeBits(litLenCodes[256 + lengthBucket], litLenLengths[256 + lengthBucket]);
+            writer.writeBits(matchLength - bucketBase(lengthBucket), extraBits(lengthBucket));
+
+            int distance = token & 0xFFFF;
+            int distanceBucket = bucketOf(distance);
+            writer.writeBits(distanceCodes[distanceBucket], distanceLengths[distanceBucket]);
+            writer.writeBits(distance - bucketBase(distanceBucket), extraBits(distanceBucket));
+        }
+        writer.flush();
+
+        return record.toByteArray();
+    }
+
+    @Override
+    public void decodeBlock(int type, byte[] payload, int offset, int length,
+                            byte[] out, int outOffset, int originalSize) throws IOException {
+        if (type != HuffmanFormat.BLOCK_LZ) {
+            super.decodeBlock(type, payload, offset, length, out, outOffset, originalSize);
+            return;
+        }
+
+        // 1. Leer las dos tablas de longitudes
+        ByteArrayInputStream tableInput = new ByteArrayInputStream(payload, offset, length);
+        DataInputStream dis = new DataInputStream(tableInput);
+        HuffmanCodeTable litLenTable = HuffmanCodeTable.fromLengths(
+                HuffmanFormat.readPackedLengths(dis, LITLEN_SYMBOLS));
+        HuffmanCodeTable distanceTable = HuffmanCodeTable.fromLengths(
+                HuffmanFormat.readPackedLengths(dis, DISTANCE_SYMBOLS));
+        int tableLength = length - tableInput.available();
+        HuffmanDecodeTable litLenDecode = new HuffmanDecodeTable(litLenTable.codes, litLenTable.lengths);
+        HuffmanDecodeTable distanceDecode = new HuffmanDecodeTable(distanceTable.codes, distanceTable.lengths);
+
+        // 2. Decodificar literales y coincidencias hasta completar el bloque
+        BitReader reader = new BitReader(payload, offset + tableLength, length - tableLength);
+        int pos = outOffset;
+        int end = outOffset + originalSize;
+        while (pos < end) {
+            int symbol = litLenDecode.decodeSymbol(reader);
+            if (symbol < 256) {
+                out[pos++] = (byte) symbol;
+                continue;
+            }
+            int lengthBucket = symbol - 256;
+            int matchLength = bucketBase(lengthBucket) + reader.readBits(extraBits(lengthBucket)) + MIN_MATCH;
+            int distanceBucket = distanceDecode.decodeSymbol(reader);
+            int distance = bucketBase(distanceBucket) + reader.readBits(extraBits(distanceBucket)) + 1;
+            if (distance > pos - outOffset || matchLength > end - pos) {
+                throw new IOException("Datos comprimidos corruptos: coincidencia LZ77 fuera del bloque.");
+            }
+
+            // La copia puede solaparse con lo que se está escribiendo (ej. distancia 1 = repetir un byte)
+            int from = pos - distance;
+            if (distance >= matchLength) {
+                System.arraycopy(out, from, out, pos, matchLength);
+                pos += matchLength;
+            } else {
+                for (int i = 0; i < matchLength; i++) {
+                    out[pos++] = out[from + i];
+                }
+            }
+        }
+    }
+
+    // Recorre el bloque con una cadena hash por posición y anota literales y coincidencias.
+    // Devuelve la cantidad de símbolos escritos en 'tokens'.
+    private static int findMatches(byte[] data, int offset, int length, int[] tokens,
+                                   long[] litLenFreq, long[] distanceFreq) {
+        int[] head = new int[1 << HASH_BITS];
+        int[] prev = new int[Math.min(WINDOW_SIZE, Math.max(length, 1))];
+        Arrays.fill(head, -1);
+        int prevMask = prev.length == WINDOW_SIZE ? WINDOW_MASK : -1;
+
+        int tokenCount = 0;
+        int pos = 0;
+        int lastHashable = length - MIN_MATCH;
+        while (pos < length) {
+            int bestLength = 0;
+            int bestDistance = 0;
+
+            if (pos <= lastHashable) {
+                // 1. Recorrer los candidatos con el mismo hash (del más cercano al más lejano)
+                int hash = hash(data, offset + pos);
+                int candidate = head[hash];
+                int maxLength = Math.min(MAX_MATCH, length - pos);
+                for (int chain = 0; candidate >= 0 && pos - candidate < WINDOW_SIZE && chain < MAX_CHAIN; chain++) {
+                    int matchLength = matchLength(data, offset + candidate, offset + pos, maxLength);
+                    if (matchLength > bestLength) {
+                        bestLength = matchLength;
+                        bestDistance = pos - candidate;
+                        if (matchLength >= GOOD_MATCH || matchLength == maxLength) {
+                            break;
+                        }
+                    }
+                    candidate = prev[candidate & prevMask];
+                }
+                insert(data, offset, pos, head, prev, prevMask);
+            }
+
+            // 2. Anotar una coincidencia o un literal
+            if (bestLength > MIN_MATCH || (bestLength == MIN_MATCH && bestDistance <= TOO_FAR)) {
+                int lengthCode = bestLength - MIN_MATCH;
+                tokens[tokenCount++] = MATCH_FLAG | (lengthCode << 16) | (bestDistance - 1);
+                litLenFreq[256 + bucketOf(lengthCode)]++;
+                distanceFreq[bucketOf(bestDistance - 1)]++;
+
+                // Las posiciones dentro de la coincidencia también entran a la tabla
+                int matchEnd = pos + bestLength;
+                for (pos++; pos < matchEnd; pos++) {
+                    if (pos <= lastHashable) {
+                        insert(data, offset, pos, head, prev, prevMask);
+                    }
+                }
+            } else {
+                int literal = data[offset + pos] & 0xFF;
+                tokens[tokenCount++] = literal;
+                litLenFreq[literal]++;
+                pos++;
+            }
+        }
+        return tokenCount;
+    }
+
+    private static void insert(byte[] data, int offset, int pos, int[] head, int[] prev, int prevMask) {
+        int hash = hash(data, offset + pos);
+        prev[pos & prevMask] = head[hash];
+        head[hash] = pos;
+    }
+
+    // Hash multiplicativo de los 4 bytes que empiezan en 'index'
+    private static int hash(byte[] data, int index) {
+        int word = (data[index] & 0xFF) << 24 | (data[index + 1] & 0xFF) << 16
+                | (data[index + 2] & 0xFF) << 8 | (data[index + 3] & 0xFF);
+        return (word * 0x9E3779B1) >>> (32 - HASH_BITS);
+    }
+
+    // Cuántos bytes coinciden a partir de 'a' y 'b' (hasta maxLength)
+    private static int matchLength(byte[] data, int a, int b, int maxLength) {
+        int length = 0;
+        while (length < maxLength && data[a + length] == data[b + length]) {
+            length++;
+        }
+        return length;
+    }
+
+    // Cubeta de un valor: 0-15 tienen la suya; después, dos cubetas por potencia de dos
+    private static int bucketOf(int value) {
+        if (value < 16) {
+            return value;
+        }
+        int highBit = 31 - Integer.numberOfLeadingZeros(value);
+        return 16 + ((highBit - 4) << 1) + ((value >>> (highBit - 1)) & 1);
+    }
+
+    // Primer valor de la cubeta
+    private static int bucketBase(int bucket) {
+        if (bucket < 16) {
+            return bucket;
+        }
+        int highBit = ((bucket - 16) >>> 1) + 4;
+        return (2 | ((bucket - 16) & 1)) << (highBit - 1);
+    }
+
+    // Bits extra que siguen al código de la cubeta
+    private static int extraBits(int bucket) {
+        return bucket < 16 ? 0 : ((bucket - 16) >>> 1) + 3;
+    }
+}
@@ -0,0 +1,402 @@
+package core;
+
+import utils.LogManager;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Archivo "sólido": todos los archivos de una carpeta en un solo contenedor.
+ *
+ * Los archivos se escriben uno detrás de otro en el mismo HuffmanOutputStream,
+ * así los bloques (y sus tablas de códigos) se comparten entre archivos
+ * chicos y no hay un encabezado, una apertura ni una entrada de log por
+ * archivo. Los archivos se ordenan por extensión para que los del mismo tipo
+ * queden juntos en los bloques.
+ *
+ * El contenedor es el formato por bloques de siempre; lo que cambia es su
+ * contenido (sin comprimir):
+ *   datos de cada archivo | directorio | largo del directorio (long) | 'H' 'F' 'A' 'D'
+ * Directorio: cantidad (varint) | por entrada: tipo (0 archivo, 1 carpeta) |
+ *   ruta relativa (UTF, con '/') | posición (varint) | tamaño (varint) | fecha (long).
+ *
+ * Con el índice de bloques, el directorio y cada archivo se leen con
+ * decompressRange sin descomprimir el resto del contenedor.
+ */
+public class SolidArchive {
+
+    // Extensión de los archivos sólidos
+    public static final String EXTENSION = ".hfa";
+
+    // Extensión de los archivos sólidos cifrados (ver create con contraseña)
+    public static final String ENCRYPTED_EXTENSION = EXTENSION + ".enc";
+
+    private static final byte[] DIRECTORY_MAGIC = {'H', 'F', 'A', 'D'};
+    private static final int TRAILER_LENGTH = 8 + DIRECTORY_MAGIC.length;
+
+    private static final int TYPE_FILE = 0;
+    private static final int TYPE_DIRECTORY = 1;
+
+    // Buffer para copiar los archivos al contenedor (64 KB)
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Tramo que se descomprime de una vez al extraer un archivo (8 MB)
+    private static final int EXTRACT_CHUNK = 8 * 1024 * 1024;
+
+    /**
+     * Una entrada del directorio central.
+     */
+    public static final class Entry {
+        public final String name;       // Ruta relativa a la carpeta, con '/'
+        public final boolean directory;
+        public final long offset;       // Posición de los datos dentro del contenedor (sin comprimir)
+        public final long size;
+        public final long modified;     // Fecha de modificación (milisegundos)
+
+        Entry(String name, boolean directory, long offset, long size, long modified) {
+            this.name = name;
+            this.directory = directory;
+            this.offset = offset;
+            this.size = size;
+            this.modified = modified;
+        }
+    }
+
+    private final int blockSize;
+    private final Codec codec;
+    private final HuffmanDecompressor decompressor;
+
+    public SolidArchive() {
+        this(HuffmanFormat.DEFAULT_BLOCK_SIZE, new HuffmanBlockCodec());
+    }
+
+    /**
+     * @param blockSize Tamaño de cada bloque del contenedor
+     * @param codec     Codificador de los bloques (ver CodecRegistry)
+     */
+    public SolidArchive(int blockSize, Codec codec) {
+        this.blockSize = blockSize;
+        this.codec = codec;
+        this.decompressor = new HuffmanDecompressor();
+    }
+
+    /**
+     * Empaqueta una carpeta completa en un archivo sólido.
+     * @param inputFolder Carpeta de entrada
+     * @param archivePath Archivo sólido de salida (ej. "carpeta.hfa")
+     * @return Las entradas escritas en el directorio
+     */
+    public List<Entry> create(File inputFolder, String archivePath) throws IOException {
+        return create(inputFolder, archivePath, null);
+    }
+
+    /**
+     * Empaqueta una carpeta completa en un archivo sólido y, si se da una
+     * contraseña, lo cifra mientras se escribe (formato de Encryptor). El
+     * resultado cifrado solo se puede extraer entero (ver extractAll con contraseña).
+     * @param password Contraseña para cifrar (null: sin cifrar)
+     */
+    public List<Entry> create(File inputFolder, String archivePath, String password) throws IOException {
+        long startTime = System.nanoTime();
+        Path root = inputFolder.toPath();
+
+        try {
+            // 1. Recorrer la carpeta: carpetas en orden, archivos por extensión
+            List<Entry> directories = new ArrayList<>();
+            List<Path> files = new ArrayList<>();
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (!dir.equals(root)) {
+                        directories.add(new Entry(relativeName(root, dir), true, 0, 0, attrs.lastModifiedTime().toMillis()));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile()) {
+                        files.add(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            files.sort(Comparator.comparing((Path file) -> extension(file.getFileName().toString()))
+                    .thenComparing(file -> relativeName(root, file)));
+
+            // 2. Escribir los datos de cada archivo, uno detrás de otro
+            List<Entry> entries = new ArrayList<>(directories);
+            long originalSize = 0;
+            try (OutputStream archive = new BufferedOutputStream(new FileOutputStream(archivePath), BUFFER_SIZE);
+                 OutputStream out = password == null ? archive : new Encryptor().encrypt(archive, password);
+                 HuffmanOutputStream hos = new HuffmanOutputStream(out, blockSize, codec)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                long offset = 0;
+                for (Path file : files) {
+                    long size = 0;
+                    long modified = Files.getLastModifiedTime(file).toMillis();
+                    try (InputStream is = new FileInputStream(file.toFile())) {
+                        int count;
+                        while ((count = is.read(buffer)) != -1) {
+                            hos.write(buffer, 0, count);
+                            size += count;
+                        }
+                    }
+                    entries.add(new Entry(relativeName(root, file), false, offset, size, modified));
+                    offset += size;
+                }
+                originalSize = offset;
+
+                // 3. Directorio central y su largo al final (para encontrarlo desde atrás)
+                byte[] directory = writeDirectory(entries);
+                DataOutputStream trailer = new DataOutputStream(hos);
+                trailer.write(directory);
+                trailer.writeLong(directory.length);
+                trailer.write(DIRECTORY_MAGIC);
+            }
+
+            long timeMs = (System.nanoTime() - startTime) / 1_000_000;
+            long finalSize = new File(archivePath).length();
+            double compressionRatio = finalSize > 0 ? (double) originalSize / finalSize : 0;
+            LogManager.logOperation("Archivo Sólido", inputFolder.getName(), timeMs, compressionRatio, originalSize, finalSize);
+            System.out.println("Archivo sólido creado en: " + archivePath + " (" + files.size() + " archivos)");
+            return entries;
+
+        } catch (IOException e) {
+            // No queda un archivo sólido a medio escribir
+            new File(archivePath).delete();
+            LogManager.logError("Archivo Sólido", inputFolder.getName(), e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Lee el directorio central sin descomprimir los datos de los archivos.
+     */
+    public List<Entry> list(String archivePath) throws IOException {
+        // 1. Tamaño del contenido (del índice de bloques)
+        long contentSize;
+        try (FileChannel channel = FileChannel.open(Paths.get(archivePath), StandardOpenOption.READ)) {
+            BlockIndex index = BlockIndex.read(channel);
+            if (index == null) {
+                throw new IOException("No es un archivo sólido (sin índice de bloques): " + archivePath);
+            }
+            contentSize = index.originalSize;
+        }
+        if (contentSize < TRAILER_LENGTH) {
+            throw new IOException("No es un archivo sólido: " + archivePath);
+        }
+
+        // 2. Pie: largo del directorio y número mágico
+        ByteBuffer trailer = ByteBuffer.wrap(decompressor.decompressRange(archivePath, contentSize - TRAILER_LENGTH, TRAILER_LENGTH));
+        long directoryLength = trailer.getLong();
+        byte[] magic = new byte[DIRECTORY_MAGIC.length];
+        trailer.get(magic);
+        if (!Arrays.equals(magic, DIRECTORY_MAGIC)) {
+            throw new IOException("No es un archivo sólido: " + archivePath);
+        }
+        long dataSize = contentSize - TRAILER_LENGTH - directoryLength;
+        if (directoryLength <= 0 || directoryLength > Integer.MAX_VALUE || dataSize < 0) {
+            throw new IOException("Directorio del archivo sólido corrupto.");
+        }
+
+        // 3. El directorio
+        byte[] directory = decompressor.decompressRange(archivePath, dataSize, (int) directoryLength);
+        return readDirectory(directory, dataSize);
+    }
+
+    /**
+     * Extrae una sola entrada: solo se descomprimen los bloques que la cubren.
+     * @param archivePath Archivo sólido
+     * @param name        Ruta de la entrada (como la devuelve list)
+     * @param outputPath  Archivo (o carpeta) de salida
+     */
+    public void extract(String archivePath, String name, String outputPath) throws IOException {
+        for (Entry entry : list(archivePath)) {
+            if (entry.name.equals(name)) {
+                extractEntry(archivePath, entry, Paths.get(outputPath));
+                return;
+            }
+        }
+        throw new IOException("El archivo sólido no tiene la entrada: " + name);
+    }
+
+    /**
+     * Extrae todas las entradas en una carpeta, descomprimiendo el contenedor
+     * una sola vez de principio a fin.
+     */
+    public void extractAll(String archivePath, File outputFolder) throws IOException {
+        List<Entry> entries = list(archivePath);
+        Path root = outputFolder.toPath();
+        Files.createDirectories(root);
+
+        // 1. Las carpetas primero (también las vacías)
+        for (Entry entry : entries) {
+            if (entry.directory) {
+                Files.createDirectories(resolve(root, entry.name));
+            }
+        }
+
+        // 2. Los archivos, en el orden en que están en el contenedor
+        List<Entry> files = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (!entry.directory) {
+                files.add(entry);
+            }
+        }
+        files.sort(Comparator.comparingLong((Entry entry) -> entry.offset));
+        try (InputStream in = new HuffmanInputStream(new FileInputStream(archivePath))) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long position = 0;
+            for (Entry entry : files) {
+                if (entry.offset != position) {
+                    throw new IOException("Directorio del archivo sólido corrupto.");
+                }
+                Path target = resolve(root, entry.name);
+                Files.createDirectories(target.getParent());
+                try (OutputStream os = new FileOutputStream(target.toFile())) {
+                    long remaining = entry.size;
+                    while (remaining > 0) {
+                        int count = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                        if (count < 0) {
+                            throw new IOException("El archivo sólido terminó antes de lo esperado.");
+                        }
+                        os.write(buffer, 0, count);
+                        remaining -= count;
+                    }
+                }
+                Files.setLastModifiedTime(target, FileTime.fromMillis(entry.modified));
+                position += entry.size;
+            }
+        }
+
+        // 3. Las fechas de las carpetas al final (escribir archivos las cambia)
+        for (Entry entry : entries) {
+            if (entry.directory) {
+                Files.setLastModifiedTime(resolve(root, entry.name), FileTime.fromMillis(entry.modified));
+            }
+        }
+        System.out.println("Archivo sólido extraído en: " + outputFolder);
+    }
+
+    /**
+     * Extrae todas las entradas de un archivo sólido cifrado. Se descifra
+     * primero a un temporal dentro de la carpeta de salida (Encryptor verifica
+     * el archivo entero antes de escribirlo) y después se extrae como siempre.
+     * @param password Contraseña con la que se creó (null: no está cifrado)
+     */
+    public void extractAll(String archivePath, File outputFolder, String password) throws IOException {
+        if (password == null) {
+            extractAll(archivePath, outputFolder);
+            return;
+        }
+        Files.createDirectories(outputFolder.toPath());
+        Path temp = Files.createTempFile(outputFolder.toPath(), EXTENSION, ".tmp");
+        try {
+            new Encryptor().decryptFile(archivePath, temp.toString(), password);
+            extractAll(temp.toString(), outputFolder);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Extrae una entrada por tramos (un archivo grande no se carga entero en memoria)
+    private void extractEntry(String archivePath, Entry entry, Path target) throws IOException {
+        if (entry.directory) {
+            Files.createDirectories(target);
+            return;
+        }
+        try (OutputStream os = new FileOutputStream(target.toFile())) {
+            long done = 0;
+            while (done < entry.size) {
+                int count = (int) Math.min(EXTRACT_CHUNK, entry.size - done);
+                os.write(decompressor.decompressRange(archivePath, entry.offset + done, count));
+                done += count;
+            }
+        }
+        Files.setLastModifiedTime(target, FileTime.fromMillis(entry.modified));
+    }
+
+    private static byte[] writeDirectory(List<Entry> entries) throws IOException {
+        ByteArrayOutputStream directoryBytes = new ByteArrayOutputStream();
+        DataOutputStream dos = new DataOutputStream(directoryBytes);
+        HuffmanFormat.writeVarLong(dos, entries.size());
+        for (Entry entry : entries) {
+            dos.writeByte(entry.directory ? TYPE_DIRECTORY : TYPE_FILE);
+            dos.writeUTF(entry.name);
+            HuffmanFormat.writeVarLong(dos, entry.offset);
+            HuffmanFormat.writeVarLong(dos, entry.size);
+            dos.writeLong(entry.modified);
+        }
+        return directoryBytes.toByteArray();
+    }
+
+    private static List<Entry> readDirectory(byte[] directory, long dataSize) throws IOException {
+        DataInputStream dis = new DataInputStream(new ByteArrayInputStream(directory));
+        long count = HuffmanFormat.readVarLong(dis);
+        if (count > directory.length) {
+            throw new IOException("Directorio del archivo sólido corrupto.");
+        }
+        List<Entry> entries = new ArrayList<>((int) count);
+        for (long i = 0; i < count; i++) {
+            int type = dis.readUnsignedByte();
+            String name = dis.readUTF();
+            long offset = HuffmanFormat.readVarLong(dis);
+            long size = HuffmanFormat.readVarLong(dis);
+            long modified = dis.readLong();
+            if ((type != TYPE_FILE && type != TYPE_DIRECTORY) || offset + size > dataSize) {
+                throw new IOException("Directorio del archivo sólido corrupto.");
+            }
+            entries.add(new Entry(name, type == TYPE_DIRECTORY, offset, size, modified));
+        }
+        return entries;
+    }
+
+    // Ruta relativa a la carpeta, siempre con '/'
+    private static String relativeName(Path root, Path path) {
+        StringBuilder name = new StringBuilder();
+        for (Path part : root.relativize(path)) {
+            if (name.length() > 0) {
+                name.append('/');
+            }
+            name.append(part);
+        }
+        return name.toString();
+    }
+
+    // Ruta de salida de una entrada; no se permite salir de la carpeta (ej. "../x")
+    private static Path resolve(Path root, String name) throws IOException {
+        Path target = root.resolve(name).normalize();
+        if (name.isEmpty() || !target.startsWith(root.normalize())) {
+            throw new IOException("Entrada inválida en el archivo sólido: " + name);
+        }
+        return target;
+    }
+
+    private static String extension(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot > 0 ? fileName.substring(dot + 1) : "";
+    }
+}
@@ -1,8 +1,11 @@
 package gui;
 
 import javax.swing.*;
+import core.Codec;
+import core.CodecRegistry;
 import core.FileProcessor;
 import utils.FileWalker;
+import utils.LogManager;
 import java.io.File;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
@@ -12,8 +15,10 @@ public class MainAppGUI extends JFrame {
     private JTextField txtFilePath;
     private JPasswordField txtPassword;
     private JRadioButton rbCompress, rbEncrypt, rbBoth;
+    private JComboBox<String> cbCodec;
+    private JCheckBox chkSolid;
     private JButton btnSelectFile, btnProcess, btnRecover;
-    private JLabel lblFile, lblOperation, lblPassword;
+    private JLabel lblFile, lblOperation, lblCodec, lblPassword;
     private JFileChooser fileChooser;
 
     private FileProcessor processor;
@@ -76,6 +81,24 @@ public class MainAppGUI extends JFrame {
         add(rbEncrypt);
         add(rbBoth);
 
+        // Método de compresión (los codificadores registrados)
+        lblCodec = new JLabel("Método:");
+        lblCodec.setBounds(360, 100, 100, 25);
+        add(lblCodec);
+
+        cbCodec = new JComboBox<>();
+        for (Codec codec : CodecRegistry.all()) {
+            cbCodec.addItem(codec.name());
+        }
+        cbCodec.setSelectedItem(processor.getCodecName());
+        cbCodec.setBounds(360, 130, 170, 25);
+        add(cbCodec);
+
+        // Carpetas: todo en un solo archivo sólido (.hfa)
+        chkSolid = new JCheckBox("Carpeta sólida (.hfa)");
+        chkSolid.setBounds(360, 160, 170, 25);
+        add(chkSolid);
+
         // Contraseña
         lblPassword = new JLabel("Contraseña:");
         lblPassword.setBounds(20, 210, 100, 25);
@@ -160,6 +183,14 @@ public class MainAppGUI extends JFrame {
             return;
         }
 
+        boolean solid = chkSolid.isSelected() && selectedFile.isDirectory();
+        if (solid && rbEncrypt.isSelected()) {
+            JOptionPane.showMessageDialog(this,
+                    "Error: La carpeta sólida siempre se comprime.\nElija Solo Comprimir o Comprimir y Encriptar.",
+                    "Error de Validación", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
         try {
             // Determinar operación y extensión
             int operation;
@@ -176,6 +207,12 @@ public class MainAppGUI extends JFrame {
                 newExtension = ".ec";
             }
 
+            // Usar el método de compresión elegido (si cambió)
+            String codecName = (String) cbCodec.getSelectedItem();
+            if (!processor.getCodecName().equals(codecName)) {
+                processor = new FileProcessor(CodecRegistry.byName(codecName));
+            }
+
             String inputPath = selectedFile.getAbsolutePath();
 
             if (selectedFile.isFile()) {
@@ -183,6 +220,12 @@ public class MainAppGUI extends JFrame {
                 String outputPath = inputPath + newExtension;
                 processor.processFile(inputPath, outputPath, operation, password);
 
+            } else if (solid) {
+                // Carpeta completa en un solo archivo sólido (cifrado si se eligió)
+                File outputFolder = new File(selectedFile.getParent(), selectedFile.getName() + "_hfa");
+                walker.processFolderSolid(selectedFile, outputFolder, processor,
+                        operation == FileProcessor.OP_COMPRESS_AND_ENCRYPT ? password : null);
+
             } else if (selectedFile.isDirectory()) {
                 // Procesar carpeta completa
                 File outputFolder = new File(
@@ -192,6 +235,9 @@ public class MainAppGUI extends JFrame {
                 walker.processFolder(selectedFile, outputFolder, processor, operation, password, newExtension);
             }
 
+            // El log se escribe en segundo plano: esperamos a que esté completo
+            LogManager.flush();
+
             // Mostrar éxito
             JOptionPane.showMessageDialog(this,
                     "¡Proceso completado exitosamente!\n\nRevise el archivo log.txt para más detalles.",
@@ -203,6 +249,7 @@ public class MainAppGUI extends JFrame {
             selectedFile = null;
 
         } catch (Exception ex) {
+            LogManager.flush();
             JOptionPane.showMessageDialog(this,
                     "Error: Ocurrió un error durante el proceso.\n" + ex.getMessage(),
                     "Error de Proceso", JOptionPane.ERROR_MESSAGE);
@@ -224,8 +271,8 @@ public class MainAppGUI extends JFrame {
 
         String inputPath = selectedFile.getAbsolutePath();
 
-        // Verificar que tenga una extensión válida
-        if (!inputPath.endsWith(".cmp") && !inputPath.endsWith(".enc") && !inputPath.endsWith(".ec")) {
+        // Verificar que tenga una extensión válida (las carpetas se revisan archivo por archivo)
+        if (selectedFile.isFile() && !inputPath.endsWith(".cmp") && !inputPath.endsWith(".enc") && !inputPath.endsWith(".ec")) {
             JOptionPane.showMessageDialog(this,
                     "Error: El archivo debe tener extensión .cmp, .enc o .ec",
                     "Error de Validación", JOptionPane.ERROR_MESSAGE);
@@ -267,6 +314,9 @@ public class MainAppGUI extends JFrame {
                 walker.recoverFolder(selectedFile, outputFolder, processor, password);
             }
 
+            // El log se escribe en segundo plano: esperamos a que esté completo
+            LogManager.flush();
+
             // Mostrar éxito
             JOptionPane.showMessageDialog(this,
                     "¡Recuperación completada exitosamente!\n\nRevise el archivo log.txt para más detalles.",
@@ -278,6 +328,7 @@ public class MainAppGUI extends JFrame {
             selectedFile = null;
 
         } catch (Exception ex) {
+            LogManager.flush();
             JOptionPane.showMessageDialog(this,
                     "Error: Ocurrió un error durante la recuperación.\n" + ex.getMessage(),
                     "Error de Recuperación", JOptionPane.ERROR_MESSAGE);
@@ -301,7 +352,7 @@ public class MainAppGUI extends JFrame {
      * Obtiene el nombre original de la carpeta quitando el sufijo.
      */
     private String getOriginalFolderName(String folderName) {
-        if (folderName.endsWith("_cmp") || folderName.endsWith("_enc")) {
+        if (folderName.endsWith("_cmp") || folderName.endsWith("_enc") || folderName.endsWith("_hfa")) {
             return folderName.substring(0, folderName.lastIndexOf('_'));
         } else if (folderName.endsWith("_ec")) {
             return folderName.substring(0, folderName.lastIndexOf('_'));
@@ -0,0 +1,125 @@
+package utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Lector de bits con un acumulador de 64 bits.
+ * Es la contraparte de BitWriter: los bits se leen en el mismo orden
+ * (el más significativo de cada byte primero).
+ *
+ * El acumulador se rellena de 8 bytes a la vez cuando hay suficientes
+ * datos en el buffer, así el decodificador puede "espiar" (peek) varios
+ * bits de golpe y consultar una tabla, en lugar de avanzar bit por bit.
+ * Al llegar al final de la entrada se completan los bits con '0'.
+ */
+public class BitReader {
+
+    // Permite leer 8 bytes de un byte[] como un long (big-endian)
+    private static final VarHandle LONG_BE =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private final InputStream in;
+    private final byte[] buffer;
+    private int pos;    // Siguiente byte del buffer que se va a consumir
+    private int limit;  // Cantidad de bytes válidos en el buffer
+    private boolean eof;
+
+    private long bitBuffer; // Acumulador de bits (alineados a la izquierda)
+    private int bitCount;   // Cuántos bits válidos hay en el acumulador
+
+    public BitReader(InputStream in, int bufferSize) {
+        this.in = in;
+        this.buffer = new byte[Math.max(bufferSize, 16)];
+    }
+
+    /**
+     * Lee bits directamente de un arreglo ya cargado en memoria (ej. un bloque).
+     */
+    public BitReader(byte[] data, int offset, int length) {
+        this.in = null;
+        this.buffer = data;
+        this.pos = offset;
+        this.limit = offset + length;
+        this.eof = true;
+    }
+
+    /**
+     * Asegura que haya al menos 57 bits disponibles en el acumulador
+     * (o relleno con '0' si ya se terminó la entrada).
+     */
+    public void refill() throws IOException {
+        if (bitCount > 56) {
+            return;
+        }
+        if (limit - pos < 8 && !eof) {
+            fill();
+        }
+
+        if (limit - pos >= 8) {
+            // Camino rápido: se cargan 8 bytes y se avanza solo los bytes completos.
+            // Los bits que "sobran" son los mismos que se volverán a cargar después.
+            long word = (long) LONG_BE.get(buffer, pos);
+            bitBuffer |= word >>> bitCount;
+            int bytes = (63 - bitCount) >>> 3;
+            pos += bytes;
+            bitCount += bytes << 3;
+        } else {
+            // Cerca del final: byte por byte
+            while (bitCount <= 56 && pos < limit) {
+                bitBuffer |= (long) (buffer[pos++] & 0xFF) << (56 - bitCount);
+                bitCount += 8;
+            }
+            if (pos == limit && eof) {
+                // Ya no hay más datos: el resto del acumulador son ceros de relleno
+                bitCount = 64;
+            }
+        }
+    }
+
+    /**
+     * Devuelve los siguientes 'n' bits sin consumirlos (1 <= n <= 31).
+     */
+    public int peek(int n) {
+        return (int) (bitBuffer >>> (64 - n));
+    }
+
+    /**
+     * Consume 'n' bits ya revisados con peek().
+     */
+    public void skip(int n) {
+        bitBuffer <<= n;
+        bitCount -= n;
+    }
+
+    /**
+     * Lee y consume 'n' bits (0 <= n <= 31), rellenando el acumulador si hace falta.
+     */
+    public int readBits(int n) throws IOException {
+        if (n == 0) {
+            return 0;
+        }
+        refill();
+        int value = peek(n);
+        skip(n);
+        return value;
+    }
+
+    // Mueve los bytes pendientes al inicio del buffer y lee más de la entrada
+    private void fill() throws IOException {
+        int pending = limit - pos;
+        System.arraycopy(buffer, pos, buffer, 0, pending);
+        pos = 0;
+        limit = pending;
+
+        int bytesRead = in.read(buffer, limit, buffer.length - limit);
+        if (bytesRead == -1) {
+            eof = true;
+        } else {
+            limit += bytesRead;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Escritor de bits con un acumulador de 64 bits.
+ * Los bits se van empujando al acumulador y, cada vez que se completan
+ * 64, se copia la palabra entera (8 bytes) al buffer de salida.
+ * El buffer se vacía al OutputStream solo cuando se llena.
+ *
+ * El orden de los bits es el mismo del formato .cmp: el primer bit de cada
+ * código queda en el bit más significativo del byte.
+ */
+public class BitWriter {
+
+    private final OutputStream out;
+    private final ByteBuffer buffer;
+
+    private long bitBuffer; // Acumulador de bits (alineados a la derecha)
+    private int bitCount;   // Cuántos bits válidos hay en el acumulador (0..63)
+
+    public BitWriter(OutputStream out, int bufferSize) {
+        this.out = out;
+        // El buffer debe tener lugar al menos para una palabra de 64 bits
+        this.buffer = ByteBuffer.allocate(Math.max(bufferSize, 8));
+    }
+
+    /**
+     * Escribe los 'length' bits menos significativos de 'code'.
+     * @param code   El código alineado a la derecha
+     * @param length Cantidad de bits (0..63)
+     */
+    public void writeBits(long code, int length) throws IOException {
+        int free = 64 - bitCount;
+        if (length < free) {
+            // Caso común: cabe completo en el acumulador
+            bitBuffer = (bitBuffer << length) | code;
+            bitCount += length;
+        } else {
+            // Se completa la palabra con los bits altos del código...
+            int rest = length - free;
+            long word = (bitBuffer << free) | (code >>> rest);
+            writeWord(word);
+            // ...y los bits que sobran quedan en el acumulador
+            bitBuffer = rest == 0 ? 0L : code & ((1L << rest) - 1);
+            bitCount = rest;
+        }
+    }
+
+    /**
+     * Escribe los bits pendientes (rellenando con '0' el último byte)
+     * y vacía el buffer a la salida.
+     */
+    public void flush() throws IOException {
+        if (bitCount > 0) {
+            // Alineamos los bits pendientes a la izquierda y los escribimos byte a byte
+            long aligned = bitBuffer << (64 - bitCount);
+            int pendingBytes = (bitCount + 7) / 8;
+            if (buffer.remaining() < pendingBytes) {
+                drain();
+            }
+            for (int i = 0; i < pendingBytes; i++) {
+                buffer.put((byte) (aligned >>> (56 - 8 * i)));
+            }
+            bitBuffer = 0;
+            bitCount = 0;
+        }
+        drain();
+    }
+
+    // Copia una palabra de 64 bits al buffer (big-endian, como el resto del formato)
+    private void writeWord(long word) throws IOException {
+        if (buffer.remaining() < 8) {
+            drain();
+        }
+        buffer.putLong(word);
+    }
+
+    // Vacía el buffer a la salida
+    private void drain() throws IOException {
+        out.write(buffer.array(), 0, buffer.position());
+        buffer.clear();
+    }
+}
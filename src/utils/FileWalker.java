@@ -1,13 +1,103 @@
 package utils;
 
 import core.FileProcessor; // Importamos la clase orquestadora
+import core.HuffmanFormat;
+import core.SolidArchive;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Recorre carpetas y procesa sus archivos en paralelo.
+ *
+ * El recorrido (Files.walkFileTree, sin cargar listados completos en
+ * memoria) y la creación de las carpetas de salida se hacen en orden en el
+ * hilo que llama, así cada carpeta existe antes de que se procese un
+ * archivo suyo. Cada archivo se envía a un ejecutor, con a lo sumo
+ * 'maxConcurrentFiles' archivos en proceso a la vez. Si algún archivo falla
+ * se siguen procesando los demás y al final se informan todos los errores.
+ */
 public class FileWalker {
 
+    // Comienzo de la configuración del manifiesto de una carpeta en modo sólido
+    private static final String SOLID_SETTINGS = "solid";
+
+    // Ejecutor para los archivos (null: se crea un pool fijo para cada carpeta)
+    private final ExecutorService executor;
+
+    // Máximo de archivos en proceso a la vez
+    private final int maxConcurrentFiles;
+
+    // Si se siguen los enlaces simbólicos (si no, los enlaces se saltan)
+    private final boolean followLinks;
+
+    // Niveles de carpetas que se recorren (1: solo los archivos de la carpeta elegida)
+    private final int maxDepth;
+
+    // Un hilo por núcleo
+    public FileWalker() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param threads Cantidad de archivos que se procesan a la vez
+     */
+    public FileWalker(int threads) {
+        this(null, threads);
+    }
+
+    /**
+     * @param executor           Ejecutor donde se procesan los archivos (no se cierra al terminar)
+     * @param maxConcurrentFiles Máximo de archivos en proceso a la vez (limita la E/S simultánea)
+     */
+    public FileWalker(ExecutorService executor, int maxConcurrentFiles) {
+        this(executor, maxConcurrentFiles, true, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param executor           Ejecutor donde se procesan los archivos (null: un pool fijo propio)
+     * @param maxConcurrentFiles Máximo de archivos en proceso a la vez
+     * @param followLinks        Si se siguen los enlaces simbólicos (los ciclos se detectan y se saltan)
+     * @param maxDepth           Niveles de carpetas a recorrer (Integer.MAX_VALUE: sin límite)
+     */
+    public FileWalker(ExecutorService executor, int maxConcurrentFiles, boolean followLinks, int maxDepth) {
+        if (maxConcurrentFiles < 1) {
+            throw new IllegalArgumentException("Se necesita al menos un archivo a la vez: " + maxConcurrentFiles);
+        }
+        if (maxDepth < 1) {
+            throw new IllegalArgumentException("La profundidad debe ser al menos 1: " + maxDepth);
+        }
+        this.executor = executor;
+        this.maxConcurrentFiles = maxConcurrentFiles;
+        this.followLinks = followLinks;
+        this.maxDepth = maxDepth;
+    }
+
     /**
      * Procesa recursivamente una carpeta para comprimir/encriptar.
+     * Es incremental: solo se procesan los archivos nuevos o modificados desde
+     * la corrida anterior y se borran las salidas de los archivos eliminados
+     * (ver FolderManifest).
      * @param inputFolder    La carpeta de entrada con los archivos originales.
      * @param outputFolder   La carpeta de salida donde se guardarán los archivos procesados.
      * @param processor      La instancia de FileProcessor para hacer el trabajo.
@@ -16,50 +106,170 @@ public class FileWalker {
      * @param newExtension   La extensión que se añadirá (ej. ".cmp", ".enc", ".ec").
      */
     public void processFolder(File inputFolder, File outputFolder, FileProcessor processor, int operation, String password, String newExtension) throws IOException {
-        
-        // Si la carpeta de salida no existe, la creamos.
-        if (!outputFolder.exists()) {
-            outputFolder.mkdirs();
+
+        // El manifiesto de la corrida anterior dice qué archivos no cambiaron
+        // (si se cifra, solo con la misma contraseña: ver FolderManifest)
+        String settings = "op=" + operation + ";ext=" + newExtension + ";codec=" + processor.getCodecSettings()
+                + ";links=" + followLinks + ";depth=" + maxDepth;
+        boolean encrypts = operation == FileProcessor.OP_ENCRYPT_ONLY || operation == FileProcessor.OP_COMPRESS_AND_ENCRYPT;
+        FolderManifest manifest = FolderManifest.load(outputFolder.toPath(), settings, encrypts ? password : null);
+
+        // Recorremos la carpeta y esperamos a que terminen todos los archivos
+        try (FolderJob job = new FolderJob(processor)) {
+            boolean walked = false;
+            try {
+                walk(inputFolder, outputFolder, job, (file, attrs, relativePath, outputDir) -> {
+                    // 1. Definimos la ruta de salida (con la nueva extensión)
+                    Path output = outputDir.resolve(file.getFileName() + newExtension);
+
+                    // 1.b Mismo tamaño y fecha que la última vez (y la salida sigue ahí,
+                    //     o es una copia de otro archivo): se salta
+                    FolderManifest.Entry unchanged = manifest.visit(relativePath, attrs);
+                    if (unchanged != null && (unchanged.isReference() || Files.exists(output))) {
+                        return;
+                    }
+
+                    // 2. Enviamos el archivo a un hilo: su FileProcessor hace el trabajo
+                    submitFile(job, manifest, file, attrs, relativePath, output, operation, password);
+                });
+                walked = true;
+                job.waitAll();
+
+                // 3. Las copias cuyo original falló (o cambió) se procesan otra vez
+                for (String relativePath : manifest.removeBrokenReferences()) {
+                    Path file = inputFolder.toPath().resolve(relativePath);
+                    Path output = outputFolder.toPath().resolve(relativePath + newExtension);
+                    BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                    submitFile(job, manifest, file, attrs, relativePath, output, operation, password);
+                }
+                job.waitAll();
+
+                // 3.b Si vuelve a fallar el original, esas copias no se registran (se reintentan la próxima vez)
+                manifest.removeBrokenReferences();
+                job.await();
+            } finally {
+                // Si el recorrido se cortó, igual se espera a los archivos ya enviados
+                // para que el manifiesto guarde lo que sí se procesó
+                job.waitAll();
+
+                // Las salidas cuyo origen se borró se eliminan (salvo que el recorrido
+                // se haya cortado o fallado en algún lado: entonces no se sabe qué falta de verdad)
+                if (walked && !job.hasWalkErrors()) {
+                    manifest.removeOrphans(outputFolder.toPath(), newExtension);
+                }
+                manifest.save();
+            }
         }
+    }
+
+    /**
+     * Envía un archivo de processFolder a un hilo. Ahí se calcula su
+     * SHA-256 y: si otro archivo ya guarda el mismo contenido, solo se anota
+     * la referencia; si el contenido no cambió desde la corrida anterior, no se
+     * procesa; si no, se procesa y se registra.
+     */
+    private void submitFile(FolderJob job, FolderManifest manifest, Path file, BasicFileAttributes attrs,
+                            String relativePath, Path output, int operation, String password) throws IOException {
+        String inputPath = file.toAbsolutePath().toString();
+        String outputPath = output.toAbsolutePath().toString();
+
+        job.submit(inputPath, worker -> {
+            byte[] digest = FolderManifest.hash(file, attrs.size());
 
-        // Llamamos al método recursivo privado
-        walkAndProcess(inputFolder, outputFolder, processor, operation, password, newExtension);
+            // a. Contenido repetido: se guarda una sola vez, esta copia queda como referencia
+            String owner = manifest.claim(relativePath, attrs.size(), digest);
+            if (owner != null) {
+                Files.deleteIfExists(output);
+                manifest.record(relativePath, attrs, digest, owner);
+                System.out.println("Duplicado de " + owner + ": " + inputPath);
+                return;
+            }
+
+            // b. Solo cambió la fecha pero no el contenido: no se procesa
+            if (manifest.sameContent(relativePath, attrs, digest) && Files.exists(output)) {
+                manifest.record(relativePath, attrs, digest, null);
+                return;
+            }
+
+            System.out.println("Procesando archivo: " + inputPath);
+            worker.processFile(inputPath, outputPath, operation, password);
+            manifest.record(relativePath, attrs, digest, null);
+        });
     }
 
     /**
-     * Método recursivo privado para procesar carpetas.
+     * Empaqueta una carpeta en un solo archivo sólido (ver SolidArchive) dentro
+     * de 'outputFolder': los archivos chicos comparten bloques y tablas en lugar
+     * de llevar cada uno su encabezado. Se guarda un manifiesto como en
+     * processFolder; como el archivo sólido no se puede actualizar por partes,
+     * si ningún archivo cambió no se vuelve a crear y si alguno cambió se crea
+     * de nuevo entero.
+     * @param processor Da el codificador de los bloques
+     * @param password  Contraseña para cifrar el archivo sólido (null: sin cifrar)
      */
-    private void walkAndProcess(File currentInput, File currentOutput, FileProcessor processor, int operation, String password, String newExtension) throws IOException {
-        
-        // 1. Listar todos los archivos y carpetas del directorio actual
-        File[] files = currentInput.listFiles();
-        if (files == null) {
-            return; // Carpeta vacía o error
-        }
-
-        for (File file : files) {
-            if (file.isDirectory()) {
-                // --- Si es un Directorio ---
-                // 1. Creamos el nuevo directorio correspondiente en la salida
-                File newOutputDir = new File(currentOutput, file.getName());
-                newOutputDir.mkdir();
-                
-                // 2. Llamada recursiva: entramos a la subcarpeta
-                walkAndProcess(file, newOutputDir, processor, operation, password, newExtension);
-
-            } else if (file.isFile()) {
-                // --- Si es un Archivo ---
-                // 1. Definimos la ruta de entrada
-                String inputPath = file.getAbsolutePath();
-                
-                // 2. Definimos la ruta de salida (con la nueva extensión)
-                String outputPath = new File(currentOutput, file.getName() + newExtension).getAbsolutePath();
-                
-                // 3. Llamamos al FileProcessor para que haga el trabajo
-                System.out.println("Procesando archivo: " + inputPath);
-                processor.processFile(inputPath, outputPath, operation, password);
+    public void processFolderSolid(File inputFolder, File outputFolder, FileProcessor processor, String password) throws IOException {
+        Path inputRoot = inputFolder.toPath();
+        Path outputRoot = outputFolder.toPath();
+        Files.createDirectories(outputRoot);
+        Path archive = outputRoot.resolve(inputFolder.getName()
+                + (password != null ? SolidArchive.ENCRYPTED_EXTENSION : SolidArchive.EXTENSION));
+
+        // 1. El manifiesto de la corrida anterior (con el mismo codificador y contraseña)
+        String settings = SOLID_SETTINGS + ";codec=" + processor.getCodecSettings();
+        FolderManifest manifest = FolderManifest.load(outputRoot, settings, password);
+
+        // 2. Se revisa cada archivo: mismo tamaño y fecha, o mismo contenido (SHA-256)
+        boolean[] changed = {false};
+        Files.walkFileTree(inputRoot, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (attrs.isRegularFile()) {
+                    String path = relativePath(inputRoot, file);
+                    if (manifest.visit(path, attrs) == null) {
+                        byte[] digest = FolderManifest.hash(file, attrs.size());
+                        changed[0] |= !manifest.sameContent(path, attrs, digest);
+                        manifest.record(path, attrs, digest, null);
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        if (!changed[0] && !manifest.anyRemoved() && Files.exists(archive)) {
+            System.out.println("Sin cambios, se conserva el archivo sólido: " + archive);
+            manifest.save();
+            return;
+        }
+
+        // 3. Se crea de nuevo (en un temporal, así el anterior sirve hasta que esté listo)
+        Path temp = archive.resolveSibling(archive.getFileName() + ".tmp");
+        SolidArchive solid = new SolidArchive(HuffmanFormat.DEFAULT_BLOCK_SIZE, processor.getCodec());
+        solid.create(inputFolder, temp.toString(), password);
+        Files.move(temp, archive, StandardCopyOption.REPLACE_EXISTING);
+        System.out.println("Archivo sólido guardado en: " + archive);
+
+        // 4. Los archivos sólidos de corridas anteriores con otro nombre (o sin cifrar) sobran
+        for (Path other : findSolidArchives(outputRoot)) {
+            if (!other.equals(archive)) {
+                Files.delete(other);
             }
         }
+        manifest.save();
+    }
+
+    // Archivos sólidos en la carpeta (sin subcarpetas)
+    private static List<Path> findSolidArchives(Path folder) throws IOException {
+        List<Path> archives = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(folder)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (Files.isRegularFile(file)
+                        && (name.endsWith(SolidArchive.EXTENSION) || name.endsWith(SolidArchive.ENCRYPTED_EXTENSION))) {
+                    archives.add(file);
+                }
+            }
+        }
+        return archives;
     }
 
     /**
@@ -70,44 +280,133 @@ public class FileWalker {
      * @param password     La contraseña (si es necesaria).
      */
     public void recoverFolder(File inputFolder, File outputFolder, FileProcessor processor, String password) throws IOException {
-        if (!outputFolder.exists()) {
-            outputFolder.mkdirs();
+
+        // Carpeta de processFolderSolid: se extrae su archivo sólido
+        String settings = FolderManifest.readSettings(inputFolder.toPath());
+        if (settings != null && settings.startsWith(SOLID_SETTINGS + ";")) {
+            List<Path> archives = findSolidArchives(inputFolder.toPath());
+            if (archives.size() != 1) {
+                throw new IOException("La carpeta debería tener un archivo sólido y tiene " + archives.size() + ": " + inputFolder);
+            }
+            Path archive = archives.get(0);
+            boolean encrypted = archive.getFileName().toString().endsWith(SolidArchive.ENCRYPTED_EXTENSION);
+            System.out.println("Extrayendo archivo sólido: " + archive);
+            new SolidArchive().extractAll(archive.toString(), outputFolder, encrypted ? password : null);
+            return;
+        }
+
+        // Recorremos la carpeta y esperamos a que terminen todos los archivos
+        try (FolderJob job = new FolderJob(processor)) {
+            walk(inputFolder, outputFolder, job, (file, attrs, relativePath, outputDir) -> {
+                String inputPath = file.toAbsolutePath().toString();
+
+                // 2. Obtenemos el nombre original (quitando la extensión .cmp, .enc, o .ec)
+                String originalName = getOriginalName(file.getFileName().toString());
+                String outputPath = outputDir.resolve(originalName).toAbsolutePath().toString();
+
+                // 3. Enviamos el archivo a un hilo: su FileProcessor lo recupera
+                job.submit(inputPath, worker -> {
+                    System.out.println("Recuperando archivo: " + inputPath);
+                    worker.recoverFile(inputPath, outputPath, password);
+                });
+            });
+            job.waitAll();
+
+            // 4. Las copias deduplicadas (anotadas en el manifiesto) se crean
+            //    copiando el archivo ya recuperado (las rutas del manifiesto no
+            //    pueden salir de la carpeta de salida)
+            Path outputRoot = outputFolder.toPath();
+            for (Map.Entry<String, String> reference : FolderManifest.readReferences(inputFolder.toPath()).entrySet()) {
+                Path source;
+                Path copy;
+                try {
+                    source = FolderManifest.resolve(outputRoot, reference.getValue());
+                    copy = FolderManifest.resolve(outputRoot, reference.getKey());
+                } catch (IOException e) {
+                    job.fail(reference.getKey(), e);
+                    continue;
+                }
+                job.submit(copy.toString(), worker -> {
+                    System.out.println("Copiando duplicado: " + copy);
+                    Files.createDirectories(copy.getParent());
+                    Files.copy(source, copy, StandardCopyOption.REPLACE_EXISTING);
+                });
+            }
+            job.await();
         }
-        
-        // Llamamos al método recursivo privado
-        walkAndRecover(inputFolder, outputFolder, processor, password);
     }
 
     /**
-     * Método recursivo privado para recuperar carpetas.
+     * Recorre 'inputFolder' con Files.walkFileTree: las entradas se procesan a
+     * medida que se leen del directorio (sin armar la lista completa) y los
+     * atributos de cada una llegan junto con ella, sin consultas extra.
+     * Cada carpeta se crea en la salida antes de visitar su contenido.
      */
-    private void walkAndRecover(File currentInput, File currentOutput, FileProcessor processor, String password) throws IOException {
-        
-        File[] files = currentInput.listFiles();
-        if (files == null) {
-            return;
-        }
+    private void walk(File inputFolder, File outputFolder, FolderJob job, FileVisit visit) throws IOException {
+        Path inputRoot = inputFolder.toPath();
+        Path outputRoot = outputFolder.toPath();
+        Set<FileVisitOption> options = followLinks
+                ? EnumSet.of(FileVisitOption.FOLLOW_LINKS)
+                : EnumSet.noneOf(FileVisitOption.class);
 
-        for (File file : files) {
-            if (file.isDirectory()) {
-                // --- Si es un Directorio ---
-                File newOutputDir = new File(currentOutput, file.getName());
-                newOutputDir.mkdir();
-                walkAndRecover(file, newOutputDir, processor, password);
+        Files.walkFileTree(inputRoot, options, maxDepth, new SimpleFileVisitor<Path>() {
 
-            } else if (file.isFile()) {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                // --- Si es un Directorio: creamos el directorio correspondiente en la salida ---
+                Files.createDirectories(outputDir(dir));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
                 // --- Si es un Archivo ---
-                String inputPath = file.getAbsolutePath();
-                
-                // 2. Obtenemos el nombre original (quitando la extensión .cmp, .enc, o .ec)
-                String originalName = getOriginalName(file.getName());
-                String outputPath = new File(currentOutput, originalName).getAbsolutePath();
+                // (las carpetas al límite de profundidad y los enlaces que no se siguen llegan
+                // aquí también, pero no son archivos regulares y se saltan; el manifiesto
+                // de una corrida incremental tampoco es un archivo a procesar)
+                if (attrs.isRegularFile() && !FolderManifest.isManifest(file.getFileName().toString())) {
+                    visit.accept(file, attrs, relativePath(inputRoot, file), outputDir(file.getParent()));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                if (exc instanceof FileSystemLoopException) {
+                    // Un enlace que apunta a una carpeta que lo contiene: se salta
+                    System.out.println("Se omite un ciclo de enlaces: " + file);
+                } else {
+                    job.fail(file.toString(), exc);
+                }
+                return FileVisitResult.CONTINUE;
+            }
 
-                // 3. Llamamos al FileProcessor para que recupere el archivo
-                System.out.println("Recuperando archivo: " + inputPath);
-                processor.recoverFile(inputPath, outputPath, password);
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+                // Error a mitad de la lectura de un directorio
+                if (exc != null) {
+                    job.fail(dir.toString(), exc);
+                }
+                return FileVisitResult.CONTINUE;
             }
+
+            // Carpeta de salida que corresponde a una carpeta de entrada
+            private Path outputDir(Path dir) {
+                return outputRoot.resolve(inputRoot.relativize(dir).toString());
+            }
+        });
+    }
+
+    // Ruta relativa a la carpeta de entrada, siempre con '/' (clave del manifiesto)
+    private static String relativePath(Path inputRoot, Path file) {
+        StringBuilder path = new StringBuilder();
+        for (Path name : inputRoot.relativize(file)) {
+            if (path.length() > 0) {
+                path.append('/');
+            }
+            path.append(name);
         }
+        return path.toString();
     }
 
     /**
@@ -122,4 +421,129 @@ public class FileWalker {
         }
         return fileName; // Si no tiene una extensión conocida, devuelve el nombre tal cual
     }
-}
\ No newline at end of file
+
+    // Qué hacer con cada archivo encontrado (recibe también su ruta relativa y su carpeta de salida)
+    @FunctionalInterface
+    private interface FileVisit {
+        void accept(Path file, BasicFileAttributes attrs, String relativePath, Path outputDir) throws IOException;
+    }
+
+    // El trabajo sobre un archivo, con un FileProcessor que nadie más usa mientras dura
+    @FunctionalInterface
+    private interface FileTask {
+        void run(FileProcessor processor) throws IOException;
+    }
+
+    /**
+     * Los archivos de una carpeta en proceso: limita cuántos hay a la vez,
+     * presta a cada tarea un FileProcessor propio (los descompresores guardan
+     * estado) y junta los errores. Los FileProcessor se reutilizan entre
+     * tareas y se descartan junto con el trabajo; no quedan atados a los
+     * hilos del ejecutor (que puede ser compartido y seguir vivo).
+     */
+    private final class FolderJob implements AutoCloseable {
+
+        private final ExecutorService workers;
+        private final boolean ownsWorkers;
+        private final Semaphore slots = new Semaphore(maxConcurrentFiles);
+        private final FileProcessor processor;
+        private final Queue<FileProcessor> idleProcessors = new ConcurrentLinkedQueue<>();
+        private final Queue<IOException> errors = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger fileCount = new AtomicInteger();
+        private volatile boolean walkErrors;
+
+        FolderJob(FileProcessor processor) {
+            this.ownsWorkers = executor == null;
+            this.workers = ownsWorkers ? Executors.newFixedThreadPool(maxConcurrentFiles) : executor;
+            this.processor = processor;
+        }
+
+        /**
+         * Envía un archivo al ejecutor. Espera si ya hay 'maxConcurrentFiles' en proceso.
+         */
+        void submit(String inputPath, FileTask task) throws IOException {
+            acquire(1);
+            fileCount.incrementAndGet();
+            try {
+                workers.execute(() -> {
+                    // Hay como mucho 'maxConcurrentFiles' tareas a la vez, así que
+                    // nunca se crean más FileProcessor que eso
+                    FileProcessor worker = idleProcessors.poll();
+                    try {
+                        if (worker == null) {
+                            worker = processor.newWorker();
+                        }
+                        task.run(worker);
+                    } catch (Exception e) {
+                        errors.add(new IOException(inputPath + ": " + e.getMessage(), e));
+                    } finally {
+                        if (worker != null) {
+                            idleProcessors.add(worker);
+                        }
+                        slots.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                slots.release();
+                throw new IOException("No se pudo procesar el archivo " + inputPath + ": el ejecutor no acepta tareas.", e);
+            }
+        }
+
+        // Anota un error del recorrido (ej. una carpeta sin permiso de lectura)
+        void fail(String path, IOException error) {
+            walkErrors = true;
+            fileCount.incrementAndGet();
+            errors.add(new IOException(path + ": " + error.getMessage(), error));
+        }
+
+        // Indica si el recorrido no pudo leer alguna carpeta o archivo
+        boolean hasWalkErrors() {
+            return walkErrors;
+        }
+
+        /**
+         * Espera a que terminen todos los archivos enviados (se pueden seguir
+         * enviando otros después).
+         */
+        void waitAll() throws IOException {
+            acquire(maxConcurrentFiles);
+            slots.release(maxConcurrentFiles);
+        }
+
+        /**
+         * Espera a que terminen todos los archivos enviados y, si alguno
+         * falló, lanza un error con todos los fallos.
+         */
+        void await() throws IOException {
+            waitAll();
+
+            if (errors.size() == 1) {
+                throw errors.peek();
+            }
+            if (!errors.isEmpty()) {
+                IOException failure = new IOException("Fallaron " + errors.size() + " de " + fileCount.get()
+                        + " archivos (el primero: " + errors.peek().getMessage() + ")");
+                for (IOException error : errors) {
+                    failure.addSuppressed(error);
+                }
+                throw failure;
+            }
+        }
+
+        private void acquire(int permits) throws IOException {
+            try {
+                slots.acquire(permits);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Procesamiento de la carpeta interrumpido.", e);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (ownsWorkers) {
+                workers.shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,440 @@
+package utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Manifiesto de una carpeta procesada (se guarda en la carpeta de salida).
+ *
+ * Por cada archivo de origen anota su tamaño, su fecha de modificación y
+ * un SHA-256 del contenido. En la siguiente corrida:
+ *   - mismo tamaño y fecha: el archivo no se vuelve a procesar (ni se lee);
+ *   - cambió la fecha pero no el contenido (mismo SHA-256): tampoco;
+ *   - los archivos que ya no están en el origen se borran de la salida.
+ *
+ * Deduplicación: los archivos con el mismo contenido (mismo tamaño y
+ * SHA-256) se procesan y se guardan una sola vez. Las demás copias quedan
+ * en el manifiesto como referencias a la primera, sin archivo de salida, y
+ * recoverFolder las vuelve a crear copiando el archivo recuperado.
+ *
+ * El manifiesto solo vale con la misma configuración (operación, extensión,
+ * codificador, recorrido) y, si se cifra, con la misma contraseña; si algo
+ * cambió, todo se procesa de nuevo. La contraseña no se guarda: se guarda un
+ * verificador (PBKDF2 con una sal aleatoria) que solo permite comprobar si
+ * la contraseña de la nueva corrida es la misma.
+ *
+ * Formato: 'H' 'F' 'M' | versión | configuración (UTF) |
+ *   largo del verificador (byte, 0 sin contraseña) | sal + PBKDF2 | cantidad (int) |
+ *   por archivo: ruta relativa (UTF, con '/') | tamaño (long) | fecha (long) |
+ *   SHA-256 (32 bytes) | referencia (UTF, vacía si se guardó).
+ * Las versiones 2 (sin verificador) y 3 (con un CRC32C antes del SHA-256)
+ * se siguen leyendo.
+ */
+public class FolderManifest {
+
+    // Nombre del manifiesto dentro de la carpeta de salida
+    public static final String FILE_NAME = ".hfmanifest";
+
+    private static final byte[] MAGIC = {'H', 'F', 'M'};
+    private static final int VERSION = 4;
+    private static final int VERSION_WITH_CRC = 3;
+    private static final int VERSION_NO_VERIFIER = 2;
+
+    private static final int DIGEST_LENGTH = 32;
+
+    // Tamaño máximo del buffer para calcular el SHA-256 (1 MB)
+    private static final int HASH_BUFFER_SIZE = 1024 * 1024;
+
+    // Verificador de la contraseña: sal aleatoria + PBKDF2-HMAC-SHA256
+    private static final int VERIFIER_SALT_LENGTH = 16;
+    private static final int VERIFIER_HASH_LENGTH = 32;
+    private static final int VERIFIER_ITERATIONS = 100_000;
+
+    // Lo que se sabe de un archivo de origen
+    static final class Entry {
+        final long size;
+        final long modified;
+        final byte[] digest;    // SHA-256 del contenido
+        final String reference; // Archivo con el mismo contenido que sí se guardó (null: este se guardó)
+
+        Entry(long size, long modified, byte[] digest, String reference) {
+            this.size = size;
+            this.modified = modified;
+            this.digest = digest;
+            this.reference = reference;
+        }
+
+        boolean isReference() {
+            return reference != null;
+        }
+    }
+
+    private final Path file;
+    private final String settings;
+    private final byte[] verifier; // Sal + PBKDF2 de la contraseña (vacío si no hay)
+
+    // Corrida anterior (solo lectura) y corrida actual (la llenan varios hilos)
+    private final Map<String, Entry> previous;
+    private final Map<String, Entry> current = new ConcurrentHashMap<>();
+
+    // Contenido (tamaño + SHA-256) -> archivo que lo guarda
+    private final Map<String, String> owners = new ConcurrentHashMap<>();
+
+    // Rutas vistas en el recorrido (solo desde el hilo que recorre)
+    private final Set<String> seen = new HashSet<>();
+
+    private FolderManifest(Path file, String settings, byte[] verifier, Map<String, Entry> previous) {
+        this.file = file;
+        this.settings = settings;
+        this.verifier = verifier;
+        this.previous = previous;
+    }
+
+    /**
+     * Carga el manifiesto de la carpeta de salida. Si no existe, está dañado,
+     * se hizo con otra configuración o con otra contraseña, empieza vacío
+     * (se procesa todo).
+     * @param outputFolder Carpeta de salida
+     * @param settings     Configuración de la corrida (ver FileWalker)
+     * @param password     Contraseña con la que se cifra (null si la operación no cifra)
+     */
+    public static FolderManifest load(Path outputFolder, String settings, String password) throws IOException {
+        Path file = outputFolder.resolve(FILE_NAME);
+        Map<String, Entry> previous = new HashMap<>();
+        byte[] verifier = null;
+        try {
+            Stored stored = read(file, previous);
+            if (stored == null || !settings.equals(stored.settings)) {
+                previous.clear();
+            } else if (password != null && matches(stored.verifier, password)) {
+                verifier = stored.verifier;
+            } else if (password != null || stored.verifier.length > 0) {
+                // Cambió la contraseña (o antes no había): lo ya cifrado no sirve
+                previous.clear();
+            }
+        } catch (NoSuchFileException e) {
+            // Primera corrida en esta carpeta
+        } catch (IOException e) {
+            System.out.println("Manifiesto ilegible, se procesa todo: " + e.getMessage());
+            previous.clear();
+        }
+        if (verifier == null) {
+            verifier = password != null ? newVerifier(password) : new byte[0];
+        }
+        return new FolderManifest(file, settings, verifier, previous);
+    }
+
+    /**
+     * Lee las referencias (copias deduplicadas) del manifiesto de una carpeta
+     * procesada: ruta de la copia -> ruta del archivo guardado.
+     * Si la carpeta no tiene manifiesto (o es de la versión sin
+     * deduplicación) devuelve un mapa vacío.
+     */
+    public static Map<String, String> readReferences(Path folder) throws IOException {
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        try {
+            read(folder.resolve(FILE_NAME), entries);
+        } catch (NoSuchFileException e) {
+            return new LinkedHashMap<>();
+        }
+        Map<String, String> references = new LinkedHashMap<>();
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            if (e.getValue().isReference()) {
+                references.put(e.getKey(), e.getValue().reference);
+            }
+        }
+        return references;
+    }
+
+    /**
+     * Configuración con la que se procesó una carpeta (ver FileWalker), o
+     * null si no tiene manifiesto o es de otra versión.
+     */
+    public static String readSettings(Path folder) throws IOException {
+        try {
+            Stored stored = read(folder.resolve(FILE_NAME), new HashMap<>());
+            return stored != null ? stored.settings : null;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    // Configuración y verificador de un manifiesto guardado
+    private static final class Stored {
+        final String settings;
+        final byte[] verifier;
+
+        Stored(String settings, byte[] verifier) {
+            this.settings = settings;
+            this.verifier = verifier;
+        }
+    }
+
+    // Lee las entradas de un manifiesto y devuelve su configuración
+    // (null si es de otra versión: las entradas quedan vacías)
+    private static Stored read(Path file, Map<String, Entry> entries) throws IOException {
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            byte[] magic = new byte[MAGIC.length];
+            dis.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                return null;
+            }
+            int version = dis.readUnsignedByte();
+            if (version != VERSION && version != VERSION_WITH_CRC && version != VERSION_NO_VERIFIER) {
+                return null;
+            }
+            String settings = dis.readUTF();
+            byte[] verifier = new byte[version != VERSION_NO_VERIFIER ? dis.readUnsignedByte() : 0];
+            dis.readFully(verifier);
+            int count = dis.readInt();
+            for (int i = 0; i < count; i++) {
+                String path = dis.readUTF();
+                long size = dis.readLong();
+                long modified = dis.readLong();
+                if (version != VERSION) {
+                    dis.readInt(); // CRC32C de las versiones anteriores (ya no se usa)
+                }
+                byte[] digest = new byte[DIGEST_LENGTH];
+                dis.readFully(digest);
+                String reference = dis.readUTF();
+                entries.put(path, new Entry(size, modified, digest,
+                        reference.isEmpty() ? null : reference));
+            }
+            return new Stored(settings, verifier);
+        }
+    }
+
+    // Verificador nuevo: sal aleatoria + PBKDF2 de la contraseña
+    private static byte[] newVerifier(String password) throws IOException {
+        byte[] salt = new byte[VERIFIER_SALT_LENGTH];
+        new SecureRandom().nextBytes(salt);
+        byte[] verifier = Arrays.copyOf(salt, VERIFIER_SALT_LENGTH + VERIFIER_HASH_LENGTH);
+        System.arraycopy(derive(password, salt), 0, verifier, VERIFIER_SALT_LENGTH, VERIFIER_HASH_LENGTH);
+        return verifier;
+    }
+
+    // Indica si la contraseña es la del verificador guardado
+    private static boolean matches(byte[] verifier, String password) throws IOException {
+        if (verifier.length != VERIFIER_SALT_LENGTH + VERIFIER_HASH_LENGTH) {
+            return false;
+        }
+        byte[] salt = Arrays.copyOf(verifier, VERIFIER_SALT_LENGTH);
+        byte[] expected = Arrays.copyOfRange(verifier, VERIFIER_SALT_LENGTH, verifier.length);
+        return MessageDigest.isEqual(expected, derive(password, salt));
+    }
+
+    private static byte[] derive(String password, byte[] salt) throws IOException {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, VERIFIER_ITERATIONS, VERIFIER_HASH_LENGTH * 8);
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IOException("No se pudo verificar la contraseña.", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    /**
+     * Anota que el archivo está en el origen (así su salida no se borra).
+     * Si tiene el mismo tamaño y fecha que en la corrida anterior queda
+     * registrado sin procesarlo y se devuelve su entrada; si no, null.
+     */
+    Entry visit(String path, BasicFileAttributes attrs) {
+        seen.add(path);
+        Entry entry = previous.get(path);
+        if (entry != null && entry.size == attrs.size() && entry.modified == attrs.lastModifiedTime().toMillis()) {
+            current.put(path, entry);
+            if (!entry.isReference()) {
+                owners.putIfAbsent(contentKey(entry.size, entry.digest), path);
+            }
+            return entry;
+        }
+        return null;
+    }
+
+    /**
+     * Reclama el contenido para este archivo. Devuelve null si es el primero
+     * con ese contenido (hay que guardarlo) o la ruta del archivo que ya lo guarda.
+     */
+    String claim(String path, long size, byte[] digest) {
+        String owner = owners.putIfAbsent(contentKey(size, digest), path);
+        return owner == null || owner.equals(path) ? null : owner;
+    }
+
+    /**
+     * Indica si el contenido es el mismo que se guardó en la corrida anterior
+     * (solo cambió la fecha).
+     */
+    boolean sameContent(String path, BasicFileAttributes attrs, byte[] digest) {
+        Entry entry = previous.get(path);
+        return entry != null && !entry.isReference() && entry.size == attrs.size()
+                && Arrays.equals(entry.digest, digest);
+    }
+
+    /**
+     * Registra un archivo ya procesado (se puede llamar desde varios hilos).
+     * @param reference Archivo que guarda el mismo contenido (null si se guardó este)
+     */
+    void record(String path, BasicFileAttributes attrs, byte[] digest, String reference) {
+        current.put(path, new Entry(attrs.size(), attrs.lastModifiedTime().toMillis(), digest, reference));
+    }
+
+    /**
+     * Quita y devuelve las referencias que quedaron sin archivo guardado
+     * (el original falló o cambió de contenido): esos archivos hay que
+     * procesarlos otra vez. También olvida esos originales, así entre las
+     * copias que se vuelven a procesar una se guarda y las demás la referencian.
+     * Se llama cuando ya terminaron todos los archivos.
+     */
+    List<String> removeBrokenReferences() {
+        owners.entrySet().removeIf(owner -> {
+            Entry target = current.get(owner.getValue());
+            return target == null || target.isReference() || !contentKey(target.size, target.digest).equals(owner.getKey());
+        });
+
+        List<String> broken = new ArrayList<>();
+        for (Map.Entry<String, Entry> e : current.entrySet()) {
+            Entry entry = e.getValue();
+            if (entry.isReference()) {
+                Entry target = current.get(entry.reference);
+                if (target == null || target.isReference() || target.size != entry.size
+                        || !Arrays.equals(target.digest, entry.digest)) {
+                    broken.add(e.getKey());
+                }
+            }
+        }
+        for (String path : broken) {
+            current.remove(path);
+        }
+        return broken;
+    }
+
+    /**
+     * Indica si algún archivo de la corrida anterior ya no está en el origen
+     * (se llama cuando terminó el recorrido).
+     */
+    boolean anyRemoved() {
+        return !seen.containsAll(previous.keySet());
+    }
+
+    /**
+     * Borra de la salida los archivos cuyo origen ya no existe.
+     * @param outputFolder Carpeta de salida
+     * @param extension    Extensión agregada a cada archivo (ej. ".cmp")
+     */
+    public void removeOrphans(Path outputFolder, String extension) throws IOException {
+        for (String path : previous.keySet()) {
+            if (!seen.contains(path)) {
+                if (Files.deleteIfExists(outputFolder.resolve(path + extension))) {
+                    System.out.println("Eliminado (ya no está en el origen): " + path + extension);
+                }
+            }
+        }
+    }
+
+    /**
+     * Guarda el manifiesto de esta corrida (primero en un temporal, así un
+     * corte a mitad de la escritura no deja un manifiesto a medias).
+     */
+    public void save() throws IOException {
+        Path temp = file.resolveSibling(FILE_NAME + ".tmp");
+        try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            dos.write(MAGIC);
+            dos.writeByte(VERSION);
+            dos.writeUTF(settings);
+            dos.writeByte(verifier.length);
+            dos.write(verifier);
+            dos.writeInt(current.size());
+            for (Map.Entry<String, Entry> e : current.entrySet()) {
+                Entry entry = e.getValue();
+                dos.writeUTF(e.getKey());
+                dos.writeLong(entry.size);
+                dos.writeLong(entry.modified);
+                dos.write(entry.digest);
+                dos.writeUTF(entry.isReference() ? entry.reference : "");
+            }
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Ruta dentro de 'root' de una ruta relativa del manifiesto. No se
+     * permite salir de la carpeta (ej. "../x" o una ruta absoluta): un
+     * manifiesto dañado o manipulado no puede escribir fuera de la salida.
+     */
+    static Path resolve(Path root, String relativePath) throws IOException {
+        Path target = root.resolve(relativePath).normalize();
+        if (relativePath.isEmpty() || !target.startsWith(root.normalize())) {
+            throw new IOException("Ruta inválida en el manifiesto: " + relativePath);
+        }
+        return target;
+    }
+
+    /**
+     * Indica si un nombre de archivo es el manifiesto (o su temporal), para
+     * no tratarlo como un archivo más al recorrer la carpeta.
+     */
+    public static boolean isManifest(String fileName) {
+        return fileName.equals(FILE_NAME) || fileName.equals(FILE_NAME + ".tmp");
+    }
+
+    /**
+     * SHA-256 del contenido de un archivo (usa las instrucciones del
+     * procesador cuando las hay). El búfer se ajusta al tamaño del archivo,
+     * así los archivos chicos no reservan un MB cada uno.
+     */
+    static byte[] hash(Path path, long size) throws IOException {
+        MessageDigest sha;
+        try {
+            sha = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 no disponible.", e);
+        }
+        byte[] buffer = new byte[(int) Math.max(1, Math.min(size, HASH_BUFFER_SIZE))];
+        try (InputStream in = Files.newInputStream(path)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                sha.update(buffer, 0, read);
+            }
+        }
+        return sha.digest();
+    }
+
+    // Clave del contenido: tamaño y SHA-256 en hexadecimal
+    private static String contentKey(long size, byte[] digest) {
+        StringBuilder key = new StringBuilder().append(size).append(':');
+        for (byte b : digest) {
+            key.append(Character.forDigit((b >>> 4) & 0x0F, 16)).append(Character.forDigit(b & 0x0F, 16));
+        }
+        return key.toString();
+    }
+}
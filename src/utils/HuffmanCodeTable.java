@@ -0,0 +1,203 @@
+package utils;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Tabla de códigos Huffman guardada en arreglos primitivos.
+ * Para cada símbolo se guarda su código como un entero (los bits quedan
+ * alineados a la derecha) y la cantidad de bits que lo forman.
+ * Una longitud de 0 significa que el símbolo no aparece en el archivo.
+ */
+public class HuffmanCodeTable {
+
+    // Límite de bits por código que acepta BitWriter en una sola escritura
+    public static final int MAX_CODE_LENGTH = 63;
+
+    public final long[] codes;   // Código de cada símbolo (ej. "01101" -> 0b01101)
+    public final int[] lengths;  // Longitud en bits de cada código
+
+    public HuffmanCodeTable(int alphabetSize) {
+        this.codes = new long[alphabetSize];
+        this.lengths = new int[alphabetSize];
+    }
+
+    /**
+     * Genera la tabla recorriendo el árbol de Huffman.
+     * Ir a la izquierda agrega un '0' y a la derecha un '1', igual que antes
+     * con los códigos en String, pero sin crear objetos por cada nodo.
+     * @param root Raíz del árbol (puede ser null si el archivo está vacío)
+     */
+    public static HuffmanCodeTable fromTree(HuffmanNode root) {
+        HuffmanCodeTable table = new HuffmanCodeTable(256);
+        if (root == null) {
+            return table;
+        }
+
+        // Caso especial: un solo símbolo distinto. Le damos el código "0"
+        // para que cada aparición ocupe al menos un bit.
+        if (root.isLeaf()) {
+            table.lengths[root.symbol] = 1;
+            return table;
+        }
+
+        table.assign(root, 0L, 0);
+        return table;
+    }
+
+    /**
+     * Calcula la longitud del código de cada símbolo con el árbol de Huffman,
+     * limitando la longitud máxima a 'maxBits'.
+     * Si el árbol sale más profundo, se acortan las ramas largas (ajustando
+     * cuántos códigos hay de cada longitud) y luego se reparten las
+     * longitudes de menor a mayor entre los símbolos más frecuentes.
+     * @param freqTable Frecuencia de cada símbolo
+     * @param maxBits   Longitud máxima permitida
+     * @return Longitud del código de cada símbolo (0 si no aparece)
+     */
+    public static int[] buildLengths(long[] freqTable, int maxBits) {
+        int alphabetSize = freqTable.length;
+        int[] lengths = new int[alphabetSize];
+
+        // 1. Si el total no cabe en un int, se escalan las frecuencias
+        //    (los nodos del árbol guardan la frecuencia como int)
+        long total = 0;
+        int present = 0;
+        for (long freq : freqTable) {
+            total += freq;
+            if (freq > 0) {
+                present++;
+            }
+        }
+        if (present == 0) {
+            return lengths;
+        }
+        int shift = 0;
+        while ((total >>> shift) > Integer.MAX_VALUE / 2) {
+            shift++;
+        }
+
+        // 2. Construir el árbol con la cola de prioridad
+        PriorityQueue<HuffmanNode> pq = new PriorityQueue<>();
+        for (int symbol = 0; symbol < alphabetSize; symbol++) {
+            if (freqTable[symbol] > 0) {
+                int freq = (int) Math.max(1, freqTable[symbol] >>> shift);
+                pq.add(new HuffmanNode(symbol, freq));
+            }
+        }
+        while (pq.size() > 1) {
+            HuffmanNode left = pq.poll();
+            HuffmanNode right = pq.poll();
+            pq.add(new HuffmanNode(left.frequency + right.frequency, left, right));
+        }
+
+        // 3. Contar cuántas hojas hay en cada profundidad
+        HuffmanNode root = pq.poll();
+        int[] countPerLength = new int[MAX_CODE_LENGTH + 1];
+        if (root.isLeaf()) {
+            countPerLength[1] = 1; // Un solo símbolo: código de 1 bit
+        } else {
+            countDepths(root, 0, countPerLength);
+        }
+
+        // 4. Acortar las ramas que pasan del máximo. Se quitan dos hojas del
+        //    nivel más profundo: una sube un nivel y la otra se cuelga de una
+        //    hoja menos profunda, que pasa a ser nodo interno.
+        for (int length = countPerLength.length - 1; length > maxBits; length--) {
+            while (countPerLength[length] > 0) {
+                int j = length - 2;
+                while (countPerLength[j] == 0) {
+                    j--;
+                }
+                countPerLength[length] -= 2;
+                countPerLength[length - 1] += 1;
+                countPerLength[j + 1] += 2;
+                countPerLength[j] -= 1;
+            }
+        }
+
+        // 5. Repartir las longitudes: los símbolos más frecuentes reciben las más cortas
+        //    (orden por frecuencia descendente, desempate por símbolo)
+        Integer[] order = new Integer[present];
+        int n = 0;
+        for (int symbol = 0; symbol < alphabetSize; symbol++) {
+            if (freqTable[symbol] > 0) {
+                order[n++] = symbol;
+            }
+        }
+        Arrays.sort(order, (a, b) -> freqTable[a] != freqTable[b]
+                ? Long.compare(freqTable[b], freqTable[a])
+                : Integer.compare(a, b));
+        n = 0;
+        for (int length = 1; length <= maxBits; length++) {
+            for (int k = 0; k < countPerLength[length]; k++) {
+                lengths[order[n++]] = length;
+            }
+        }
+        return lengths;
+    }
+
+    /**
+     * Asigna códigos canónicos a partir de las longitudes.
+     * Los códigos de una misma longitud son consecutivos y siguen el orden
+     * de los símbolos, así que el descompresor los puede recalcular con
+     * solo conocer las longitudes (sin reconstruir el árbol).
+     */
+    public static HuffmanCodeTable fromLengths(int[] lengths) {
+        HuffmanCodeTable table = new HuffmanCodeTable(lengths.length);
+
+        int maxLength = 0;
+        for (int length : lengths) {
+            maxLength = Math.max(maxLength, length);
+        }
+        int[] countPerLength = new int[maxLength + 1];
+        for (int length : lengths) {
+            if (length > 0) {
+                countPerLength[length]++;
+            }
+        }
+
+        // Primer código de cada longitud
+        long[] nextCode = new long[maxLength + 1];
+        long code = 0;
+        for (int length = 1; length <= maxLength; length++) {
+            code = (code + countPerLength[length - 1]) << 1;
+            nextCode[length] = code;
+        }
+
+        for (int symbol = 0; symbol < lengths.length; symbol++) {
+            int length = lengths[symbol];
+            if (length > 0) {
+                table.codes[symbol] = nextCode[length]++;
+                table.lengths[symbol] = length;
+            }
+        }
+        return table;
+    }
+
+    // Cuenta las hojas por profundidad. Con frecuencias int el árbol no pasa
+    // de unos 45 niveles, así que siempre cabe en MAX_CODE_LENGTH.
+    private static void countDepths(HuffmanNode node, int depth, int[] countPerLength) {
+        if (node.isLeaf()) {
+            countPerLength[depth]++;
+            return;
+        }
+        countDepths(node.left, depth + 1, countPerLength);
+        countDepths(node.right, depth + 1, countPerLength);
+    }
+
+    // Recorrido recursivo que llena los arreglos codes y lengths
+    private void assign(HuffmanNode node, long code, int length) {
+        if (node.isLeaf()) {
+            if (length > MAX_CODE_LENGTH) {
+                throw new IllegalStateException("Código Huffman demasiado largo: " + length + " bits");
+            }
+            int symbol = node.symbol;
+            codes[symbol] = code;
+            lengths[symbol] = length;
+            return;
+        }
+        assign(node.left, code << 1, length + 1);
+        assign(node.right, (code << 1) | 1, length + 1);
+    }
+}
@@ -0,0 +1,332 @@
+package utils;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Tabla de decodificación Huffman.
+ * En lugar de recorrer el árbol bit por bit, se "espían" PRIMARY_BITS bits
+ * y con ese número se indexa la tabla, que dice directamente qué símbolo
+ * es y cuántos bits mide su código.
+ *
+ * Los códigos más largos que PRIMARY_BITS apuntan a una tabla secundaria
+ * que se indexa con los bits siguientes (y así sucesivamente si hiciera falta).
+ *
+ * Para alfabetos de bytes hay además una tabla de pares: cuando dos códigos
+ * cortos caben juntos en PRIMARY_BITS bits, una sola consulta entrega ambos bytes.
+ */
+public class HuffmanDecodeTable {
+
+    public static final int PRIMARY_BITS = 11;
+
+    // Permite leer 8 bytes de un byte[] como un long (big-endian), igual que BitReader
+    private static final VarHandle LONG_BE =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final int SECONDARY_BITS = 8;
+
+    // Entradas de la tabla general (int):
+    //  hoja:     bits 0-15 símbolo, bits 16-21 bits consumidos en este nivel
+    //  puntero:  bit 31 encendido, bits 0-23 posición de la subtabla, bits 24-28 bits de la subtabla
+    //  0:        código inválido
+    private static final int POINTER_FLAG = 0x80000000;
+
+    // Entradas de la tabla de pares (int):
+    //  bits 0-7 primer byte, 8-15 segundo byte, 16-19 bits del primer código,
+    //  20-24 bits de ambos códigos, 25-26 cantidad de bytes (0 = usar la tabla general)
+    private int[] table;
+    private int tableSize;
+    private final int[] pairTable;
+
+    /**
+     * Construye la tabla a partir de los códigos de cada símbolo.
+     * @param codes   Código de cada símbolo (alineado a la derecha)
+     * @param lengths Longitud de cada código (0 = el símbolo no aparece)
+     */
+    public HuffmanDecodeTable(long[] codes, int[] lengths) {
+        this.table = new int[1 << PRIMARY_BITS];
+
+        int count = 0;
+        for (int length : lengths) {
+            if (length > 0) {
+                count++;
+            }
+        }
+        int[] symbols = new int[count];
+        long[] symbolCodes = new long[count];
+        int[] symbolLengths = new int[count];
+        count = 0;
+        for (int s = 0; s < lengths.length; s++) {
+            if (lengths[s] > 0) {
+                symbols[count] = s;
+                symbolCodes[count] = codes[s];
+                symbolLengths[count] = lengths[s];
+                count++;
+            }
+        }
+
+        buildLevel(symbols, symbolCodes, symbolLengths, count, PRIMARY_BITS);
+        this.pairTable = lengths.length <= 256 ? buildPairTable() : null;
+    }
+
+    /**
+     * Decodifica un solo símbolo usando la tabla general.
+     */
+    public int decodeSymbol(BitReader reader) throws IOException {
+        reader.refill();
+        int offset = 0;
+        int bits = PRIMARY_BITS;
+        while (true) {
+            int entry = table[offset + reader.peek(bits)];
+            if (entry > 0) {
+                reader.skip((entry >>> 16) & 0x3F);
+                return entry & 0xFFFF;
+            }
+            if (entry == 0) {
+                throw new IOException("Datos comprimidos corruptos: código Huffman inválido.");
+            }
+            // Puntero a una subtabla: consumimos los bits de este nivel y seguimos
+            reader.skip(bits);
+            offset = entry & 0xFFFFFF;
+            bits = (entry >>> 24) & 0x1F;
+        }
+    }
+
+    /**
+     * Decodifica exactamente 'count' bytes y los deja en out[offset...].
+     * Solo sirve para alfabetos de bytes (256 símbolos o menos).
+     */
+    public void decodeBytes(BitReader reader, byte[] out, int offset, int count) throws IOException {
+        int[] pairs = this.pairTable;
+        int end = offset + count;
+        int o = offset;
+
+        while (o < end) {
+            reader.refill();
+            int entry = pairs[reader.peek(PRIMARY_BITS)];
+            int symbolsInEntry = entry >>> 25;
+
+            if (symbolsInEntry == 2 && o + 1 < end) {
+                // Dos bytes con una sola consulta
+                out[o++] = (byte) entry;
+                out[o++] = (byte) (entry >>> 8);
+                reader.skip((entry >>> 20) & 0x1F);
+            } else if (symbolsInEntry != 0) {
+                out[o++] = (byte) entry;
+                reader.skip((entry >>> 16) & 0xF);
+            } else {
+                // Código largo (o inválido): se resuelve con las subtablas
+                out[o++] = (byte) decodeSymbol(reader);
+            }
+        }
+    }
+
+    /**
+     * Decodifica 'count' bytes repartidos en cuatro flujos de bits independientes:
+     * el flujo i tiene los bytes [i * segment, (i + 1) * segment) y el último el resto.
+     * Los cuatro se decodifican en el mismo ciclo; como ninguno depende de los
+     * otros, el procesador puede avanzar con los cuatro a la vez en lugar de
+     * esperar a conocer la longitud de cada código antes de leer el siguiente.
+     *
+     * El estado de cada flujo es solo su posición en bits: en cada paso se
+     * leen 8 bytes desde esa posición (quedan al menos 57 bits útiles), así
+     * los cuatro estados caben en registros del procesador.
+     * @param in     Arreglo con los cuatro flujos
+     * @param starts Posición (en bytes) donde empieza cada flujo
+     * @param ends   Posición (en bytes) donde termina cada flujo
+     */
+    public void decodeBytes4(byte[] in, int[] starts, int[] ends,
+                             byte[] out, int offset, int segment, int count) throws IOException {
+        int[] pairs = this.pairTable;
+        long bit0 = (long) starts[0] << 3;
+        long bit1 = (long) starts[1] << 3;
+        long bit2 = (long) starts[2] << 3;
+        long bit3 = (long) starts[3] << 3;
+        int o0 = offset;
+        int o1 = offset + segment;
+        int o2 = offset + 2 * segment;
+        int o3 = offset + 3 * segment;
+        int end0 = o1;
+        int end1 = o2;
+        int end2 = o3;
+        int end3 = offset + count;
+        long safeBit = ((long) in.length - 8) << 3;
+
+        // 1. Mientras a los cuatro flujos les falten al menos 2 bytes (una entrada
+        //    de la tabla de pares puede entregar dos) y se puedan leer 8 bytes
+        while (o0 < end0 - 1 && o1 < end1 - 1 && o2 < end2 - 1 && o3 < end3 - 1
+                && bit0 <= safeBit && bit1 <= safeBit && bit2 <= safeBit && bit3 <= safeBit) {
+            long word0 = (long) LONG_BE.get(in, (int) (bit0 >>> 3)) << (bit0 & 7);
+            long word1 = (long) LONG_BE.get(in, (int) (bit1 >>> 3)) << (bit1 & 7);
+            long word2 = (long) LONG_BE.get(in, (int) (bit2 >>> 3)) << (bit2 & 7);
+            long word3 = (long) LONG_BE.get(in, (int) (bit3 >>> 3)) << (bit3 & 7);
+            int entry0 = pairs[(int) (word0 >>> (64 - PRIMARY_BITS))];
+            int entry1 = pairs[(int) (word1 >>> (64 - PRIMARY_BITS))];
+            int entry2 = pairs[(int) (word2 >>> (64 - PRIMARY_BITS))];
+            int entry3 = pairs[(int) (word3 >>> (64 - PRIMARY_BITS))];
+            if (entry0 == 0 || entry1 == 0 || entry2 == 0 || entry3 == 0) {
+                // Algún código largo: se resuelve un símbolo de cada flujo con las subtablas
+                int leaf = decodeLong(word0);
+                out[o0++] = (byte) leaf;
+                bit0 += leaf >>> 16;
+                leaf = decodeLong(word1);
+                out[o1++] = (byte) leaf;
+                bit1 += leaf >>> 16;
+                leaf = decodeLong(word2);
+                out[o2++] = (byte) leaf;
+                bit2 += leaf >>> 16;
+                leaf = decodeLong(word3);
+                out[o3++] = (byte) leaf;
+                bit3 += leaf >>> 16;
+                continue;
+            }
+
+            // Cada entrada trae uno o dos bytes: se escriben los dos y se avanza lo que corresponda
+            out[o0] = (byte) entry0;
+            out[o0 + 1] = (byte) (entry0 >>> 8);
+            o0 += entry0 >>> 25;
+            bit0 += (entry0 >>> 20) & 0x1F;
+            out[o1] = (byte) entry1;
+            out[o1 + 1] = (byte) (entry1 >>> 8);
+            o1 += entry1 >>> 25;
+            bit1 += (entry1 >>> 20) & 0x1F;
+            out[o2] = (byte) entry2;
+            out[o2 + 1] = (byte) (entry2 >>> 8);
+            o2 += entry2 >>> 25;
+            bit2 += (entry2 >>> 20) & 0x1F;
+            out[o3] = (byte) entry3;
+            out[o3 + 1] = (byte) (entry3 >>> 8);
+            o3 += entry3 >>> 25;
+            bit3 += (entry3 >>> 20) & 0x1F;
+        }
+
+        // 2. Lo que le quede a cada flujo, con un BitReader desde donde quedó
+        decodeTail(in, bit0, ends[0], out, o0, end0);
+        decodeTail(in, bit1, ends[1], out, o1, end1);
+        decodeTail(in, bit2, ends[2], out, o2, end2);
+        decodeTail(in, bit3, ends[3], out, o3, end3);
+    }
+
+    // Decodifica un símbolo (de códigos de hasta 15 bits) a partir de los bits
+    // alineados a la izquierda en 'word'. Devuelve símbolo | (bits consumidos << 16).
+    private int decodeLong(long word) throws IOException {
+        int offset = 0;
+        int bits = PRIMARY_BITS;
+        int consumed = 0;
+        while (true) {
+            int entry = table[offset + (int) ((word << consumed) >>> (64 - bits))];
+            if (entry > 0) {
+                return (entry & 0xFFFF) | ((consumed + ((entry >>> 16) & 0x3F)) << 16);
+            }
+            if (entry == 0) {
+                throw new IOException("Datos comprimidos corruptos: código Huffman inválido.");
+            }
+            consumed += bits;
+            offset = entry & 0xFFFFFF;
+            bits = (entry >>> 24) & 0x1F;
+        }
+    }
+
+    private void decodeTail(byte[] in, long bit, int end, byte[] out, int o, int outEnd) throws IOException {
+        int position = (int) (bit >>> 3);
+        if (position > end) {
+            throw new IOException("Datos comprimidos corruptos: flujo de bits demasiado corto.");
+        }
+        BitReader reader = new BitReader(in, position, end - position);
+        reader.refill();
+        reader.skip((int) (bit & 7));
+        decodeBytes(reader, out, o, outEnd - o);
+    }
+
+    // Llena una tabla de 2^bits entradas para los códigos dados (relativos a este nivel).
+    // Devuelve la posición donde empieza la tabla dentro del arreglo general.
+    private int buildLevel(int[] symbols, long[] codes, int[] lengths, int count, int bits) {
+        int offset = allocate(1 << bits);
+
+        // 1. Códigos que caben en este nivel: se repiten en todas las entradas
+        //    que comienzan con ellos
+        long[] longCodes = new long[count];
+        int longCount = 0;
+        for (int i = 0; i < count; i++) {
+            int length = lengths[i];
+            if (length <= bits) {
+                int start = (int) (codes[i] << (bits - length));
+                int repeat = 1 << (bits - length);
+                int entry = (length << 16) | symbols[i];
+                Arrays.fill(table, offset + start, offset + start + repeat, entry);
+            } else {
+                // Se agrupan por sus primeros 'bits' bits (prefijo) para crear subtablas
+                long prefix = codes[i] >>> (length - bits);
+                longCodes[longCount++] = (prefix << 20) | i;
+            }
+        }
+
+        // 2. Códigos más largos: una subtabla por cada prefijo
+        Arrays.sort(longCodes, 0, longCount);
+        int i = 0;
+        while (i < longCount) {
+            int prefix = (int) (longCodes[i] >>> 20);
+            int j = i;
+            int maxRemaining = 0;
+            while (j < longCount && (int) (longCodes[j] >>> 20) == prefix) {
+                int k = (int) (longCodes[j] & 0xFFFFF);
+                maxRemaining = Math.max(maxRemaining, lengths[k] - bits);
+                j++;
+            }
+
+            int groupSize = j - i;
+            int[] subSymbols = new int[groupSize];
+            long[] subCodes = new long[groupSize];
+            int[] subLengths = new int[groupSize];
+            for (int g = 0; g < groupSize; g++) {
+                int k = (int) (longCodes[i + g] & 0xFFFFF);
+                int remaining = lengths[k] - bits;
+                subSymbols[g] = symbols[k];
+                subCodes[g] = codes[k] & ((1L << remaining) - 1);
+                subLengths[g] = remaining;
+            }
+
+            int subBits = Math.min(maxRemaining, SECONDARY_BITS);
+            int subOffset = buildLevel(subSymbols, subCodes, subLengths, groupSize, subBits);
+            table[offset + prefix] = POINTER_FLAG | (subBits << 24) | subOffset;
+            i = j;
+        }
+        return offset;
+    }
+
+    // Combina dos consultas de la tabla principal en una sola entrada cuando es posible
+    private int[] buildPairTable() {
+        int size = 1 << PRIMARY_BITS;
+        int mask = size - 1;
+        int[] pairs = new int[size];
+        for (int index = 0; index < size; index++) {
+            int first = table[index];
+            if (first <= 0) {
+                continue; // Código largo o inválido: se decodifica por la tabla general
+            }
+            int firstLength = (first >>> 16) & 0x3F;
+            int entry = (first & 0xFF) | (firstLength << 16) | (firstLength << 20) | (1 << 25);
+
+            int second = table[(index << firstLength) & mask];
+            int remaining = PRIMARY_BITS - firstLength;
+            if (second > 0 && ((second >>> 16) & 0x3F) <= remaining) {
+                int total = firstLength + ((second >>> 16) & 0x3F);
+                entry = (first & 0xFF) | ((second & 0xFF) << 8) | (firstLength << 16) | (total << 20) | (2 << 25);
+            }
+            pairs[index] = entry;
+        }
+        return pairs;
+    }
+
+    // Reserva espacio para una (sub)tabla al final del arreglo general
+    private int allocate(int entries) {
+        int offset = tableSize;
+        if (offset + entries > table.length) {
+            table = Arrays.copyOf(table, Math.max(table.length * 2, offset + entries));
+        }
+        tableSize += entries;
+        return offset;
+    }
+}
@@ -5,11 +5,18 @@ public class HuffmanNode implements Comparable<HuffmanNode> {
 
     public int frequency;
     public byte data; // El byte (0-255). Solo para las hojas.
+    public int symbol; // El símbolo completo (puede pasar de 255, ej. longitudes de LZ77). Solo para las hojas.
     public HuffmanNode left, right;
 
     // Constructor para un nodo "hoja" (que tiene un caracter)
     public HuffmanNode(byte data, int frequency) {
-        this.data = data;
+        this(data & 0xFF, frequency);
+    }
+
+    // Constructor para una hoja de un alfabeto de más de 256 símbolos
+    public HuffmanNode(int symbol, int frequency) {
+        this.symbol = symbol;
+        this.data = (byte) symbol;
         this.frequency = frequency;
         this.left = null;
         this.right = null;
@@ -0,0 +1,54 @@
+package core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import utils.DeduplicationTest;
+import utils.IncrementalFolderTest;
+
+/**
+ * Corre todas las pruebas (cada una también se puede correr sola con su main).
+ * No usan ningún framework: una prueba falla si lanza una excepción.
+ *
+ * Desde la carpeta del proyecto:
+ *   javac -encoding UTF-8 -d out $(find src test -name "*.java")
+ *   java -cp out core.AllTests
+ *
+ * Las pruebas trabajan en carpetas temporales; solo el registro de
+ * operaciones (log.txt) se escribe en la carpeta actual.
+ */
+public class AllTests {
+
+    public static void main(String[] args) {
+        Map<String, TestSupport.Action> tests = new LinkedHashMap<>();
+        tests.put("LegacyFormatTest", () -> LegacyFormatTest.main(args));
+        tests.put("FileProcessorTest", () -> FileProcessorTest.main(args));
+        tests.put("LzCodecTest", () -> LzCodecTest.main(args));
+        tests.put("FseCodecTest", () -> FseCodecTest.main(args));
+        tests.put("ContextCodecTest", () -> ContextCodecTest.main(args));
+        tests.put("BwtCodecTest", () -> BwtCodecTest.main(args));
+        tests.put("InterleavedHuffmanTest", () -> InterleavedHuffmanTest.main(args));
+        tests.put("XorCipherTest", () -> XorCipherTest.main(args));
+        tests.put("EncryptorTest", () -> EncryptorTest.main(args));
+        tests.put("IncrementalFolderTest", () -> IncrementalFolderTest.main(args));
+        tests.put("DeduplicationTest", () -> DeduplicationTest.main(args));
+        tests.put("SolidArchiveTest", () -> SolidArchiveTest.main(args));
+        tests.put("DictionaryTest", () -> DictionaryTest.main(args));
+
+        int failed = 0;
+        for (Map.Entry<String, TestSupport.Action> test : tests.entrySet()) {
+            try {
+                test.getValue().run();
+            } catch (Throwable e) {
+                failed++;
+                System.out.println(test.getKey() + ": FALLÓ");
+                e.printStackTrace(System.out);
+            }
+        }
+
+        System.out.println("-------------------------------------------------");
+        System.out.println((tests.size() - failed) + " de " + tests.size() + " pruebas correctas.");
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+}
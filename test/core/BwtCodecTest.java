@@ -0,0 +1,71 @@
+package core;
+
+import static core.TestSupport.check;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Burrows-Wheeler + move-to-front: los casos que complican el arreglo de
+ * sufijos (textos periódicos, un solo byte, secuencias decrecientes), las
+ * rachas de ceros largas en base 2 biyectiva y bloques de tamaños justo
+ * alrededor del límite.
+ */
+public class BwtCodecTest {
+
+    public static void main(String[] args) throws Exception {
+        Codec bwt = CodecRegistry.byName("bwt");
+        int blockSize = TestSupport.BLOCK_SIZE;
+        Random random = new Random(14);
+
+        // --- 1. Casos chicos conocidos ---
+        for (String text : new String[] {"banana", "abracadabra", "mississippi", "a", "ab", "ba"}) {
+            TestSupport.roundTrip(bwt, blockSize, text.getBytes(StandardCharsets.UTF_8), text);
+        }
+
+        // --- 2. Periódicos: todos los sufijos de un período empatan hasta el final ---
+        byte[] abab = "ab".repeat(blockSize).getBytes(StandardCharsets.UTF_8);
+        TestSupport.roundTrip(bwt, blockSize, abab, "abab");
+        byte[] period7 = "abcabca".repeat(blockSize / 7 * 3).getBytes(StandardCharsets.UTF_8);
+        TestSupport.roundTrip(bwt, blockSize, period7, "período 7");
+
+        // --- 3. Un solo valor: una sola racha de ceros del largo del bloque ---
+        byte[] single = new byte[2 * blockSize + 3];
+        Arrays.fill(single, (byte) 0xFF);
+        TestSupport.roundTrip(bwt, blockSize, single, "un solo byte");
+
+        // --- 4. Decreciente: todos los sufijos son de tipo L ---
+        byte[] descending = new byte[blockSize];
+        for (int i = 0; i < descending.length; i++) {
+            descending[i] = (byte) (255 - i * 256 / descending.length);
+        }
+        TestSupport.roundTrip(bwt, blockSize, descending, "decreciente");
+
+        // --- 5. Texto: la transformada le gana a Huffman solo ---
+        String[] words = {"compresión", "bloque", "sufijo", "transformada", "ordenamiento", "racha"};
+        StringBuilder sentence = new StringBuilder();
+        while (sentence.length() < 3 * blockSize) {
+            sentence.append(words[random.nextInt(words.length)]).append(' ');
+        }
+        byte[] text = sentence.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] packed = TestSupport.roundTrip(bwt, blockSize, text, "texto");
+        check(TestSupport.firstBlockType(packed, blockSize) == HuffmanFormat.BLOCK_BWT, "no se usó BLOCK_BWT");
+        byte[] plain = TestSupport.roundTrip(CodecRegistry.byName("huffman"), blockSize, text, "texto (huffman)");
+        check(packed.length < plain.length / 2, "BWT no ayudó: " + packed.length + " contra " + plain.length);
+
+        // --- 6. Tamaños alrededor del límite de un bloque ---
+        for (int length : new int[] {blockSize - 1, blockSize, blockSize + 1}) {
+            TestSupport.roundTrip(bwt, blockSize, Arrays.copyOf(text, length), "texto de " + length + " bytes");
+        }
+
+        // --- 7. Al azar: se guarda sin comprimir ---
+        byte[] noise = new byte[blockSize + 10];
+        random.nextBytes(noise);
+        packed = TestSupport.roundTrip(bwt, blockSize, noise, "aleatorio");
+        check(TestSupport.firstBlockType(packed, blockSize) == HuffmanFormat.BLOCK_STORED, "los datos al azar no se guardaron tal cual");
+        TestSupport.roundTrip(bwt, blockSize, new byte[0], "vacío");
+
+        System.out.println("BwtCodecTest: OK");
+    }
+}
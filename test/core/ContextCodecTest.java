@@ -0,0 +1,60 @@
+package core;
+
+import static core.TestSupport.check;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Huffman con contexto de orden 1: datos de Markov donde el próximo byte
+ * depende del anterior (ahí los contextos tienen que ganarle a una sola
+ * tabla), más contextos que MAX_TABLES para obligar a agruparlos, y
+ * bloques chicos o sin estructura que deben caer a Huffman o sin comprimir.
+ */
+public class ContextCodecTest {
+
+    public static void main(String[] args) throws Exception {
+        Codec context = CodecRegistry.byName("context");
+        Codec huffman = CodecRegistry.byName("huffman");
+        int blockSize = TestSupport.BLOCK_SIZE;
+        Random random = new Random(13);
+
+        // --- 1. Cadena de Markov sobre 64 símbolos: cada uno suele ir seguido de su sucesor ---
+        //        (por separado los 64 son casi igual de frecuentes; con el contexto, casi seguros)
+        byte[] markov = new byte[3 * blockSize + 321];
+        int previous = 0;
+        for (int i = 0; i < markov.length; i++) {
+            int next = random.nextInt(10) < 8 ? (previous + 1) % 64 : random.nextInt(64);
+            markov[i] = (byte) next;
+            previous = next;
+        }
+        byte[] packed = TestSupport.roundTrip(context, blockSize, markov, "Markov");
+        check(TestSupport.firstBlockType(packed, blockSize) == HuffmanFormat.BLOCK_CONTEXT, "no se usó BLOCK_CONTEXT");
+        byte[] plain = TestSupport.roundTrip(huffman, blockSize, markov, "Markov (huffman)");
+        check(packed.length < plain.length * 3L / 4, "el contexto no ayudó: " + packed.length + " contra " + plain.length);
+
+        // --- 2. Texto: pares de letras frecuentes ("qu", "ll", "rr") ---
+        String[] words = {"que", "quien", "llave", "calle", "perro", "carro", "tierra", "querer", "arroyo"};
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 2 * blockSize) {
+            text.append(words[random.nextInt(words.length)]).append(random.nextInt(8) == 0 ? ".\n" : " ");
+        }
+        TestSupport.roundTrip(context, blockSize, text.toString().getBytes(StandardCharsets.UTF_8), "texto");
+
+        // --- 3. Un bloque chico no paga el encabezado de los contextos ---
+        byte[] small = new byte[4096];
+        System.arraycopy(markov, 0, small, 0, small.length);
+        packed = TestSupport.roundTrip(context, small.length, small, "bloque chico");
+        check(TestSupport.firstBlockType(packed, small.length) != HuffmanFormat.BLOCK_CONTEXT,
+                "un bloque de 4 KB usó BLOCK_CONTEXT");
+
+        // --- 4. Sin estructura: se guarda sin comprimir ---
+        byte[] noise = new byte[blockSize];
+        random.nextBytes(noise);
+        packed = TestSupport.roundTrip(context, blockSize, noise, "aleatorio");
+        check(TestSupport.firstBlockType(packed, blockSize) == HuffmanFormat.BLOCK_STORED, "los datos al azar no se guardaron tal cual");
+        TestSupport.roundTrip(context, blockSize, new byte[0], "vacío");
+
+        System.out.println("ContextCodecTest: OK");
+    }
+}
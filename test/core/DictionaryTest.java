@@ -0,0 +1,94 @@
+package core;
+
+import static core.TestSupport.check;
+import static core.TestSupport.checkSame;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Diccionarios .hfd: entrenar con una carpeta de muestras chicas (logs y
+ * JSON, el caso para el que existen), guardar y leer, registrarlos desde
+ * una carpeta, y comprimir archivos chicos con ellos (DictionaryCodec)
+ * mejor que con Huffman normal; datos que no se parecen a las muestras
+ * tienen que seguir volviendo iguales.
+ */
+public class DictionaryTest {
+
+    public static void main(String[] args) throws Exception {
+        Path folder = TestSupport.tempFolder("hfd");
+        Path samples = folder.resolve("muestras");
+
+        // --- 1. Muestras: líneas de log y registros JSON chicos ---
+        Random random = new Random(11);
+        String[] levels = {"INFO", "WARN", "ERROR"};
+        for (int i = 0; i < 200; i++) {
+            String text = i % 2 == 0
+                    ? "{\"id\":" + random.nextInt(100_000) + ",\"usuario\":\"u" + random.nextInt(999) + "\",\"activo\":"
+                            + random.nextBoolean() + ",\"etiquetas\":[\"a\",\"b\"]}"
+                    : "2026-10-17 12:" + random.nextInt(60) + " " + levels[random.nextInt(3)] + " worker-"
+                            + random.nextInt(16) + " pedido atendido en " + random.nextInt(900) + " ms\n";
+            TestSupport.write(samples.resolve("m" + i + ".txt"), text.getBytes(StandardCharsets.UTF_8));
+        }
+
+        // --- 2. Entrenar, guardar y volver a leer ---
+        HuffmanDictionary trained = DictionaryTrainer.trainFolder(samples, 4);
+        Path saved = folder.resolve("diccionarios/muestras" + HuffmanDictionary.EXTENSION);
+        Files.createDirectories(saved.getParent());
+        trained.save(saved);
+        HuffmanDictionary loaded = HuffmanDictionary.load(saved);
+        check(loaded.id() == trained.id(), "el identificador cambió al guardar");
+        check(loaded.tableCount() == trained.tableCount(), "la cantidad de tablas cambió al guardar");
+        check(DictionaryRegistry.loadFolder(saved.getParent()) == 1, "loadFolder no encontró el diccionario");
+        check(DictionaryRegistry.get(trained.id()) != null, "el diccionario no quedó registrado");
+
+        // --- 3. Comprimir cada muestra con el diccionario y con Huffman normal ---
+        HuffmanCompressor plain = new HuffmanCompressor(ForkJoinPool.commonPool(), TestSupport.BLOCK_SIZE,
+                CodecRegistry.byName("huffman"));
+        HuffmanCompressor dictionary = new HuffmanCompressor(ForkJoinPool.commonPool(), TestSupport.BLOCK_SIZE,
+                new DictionaryCodec(loaded));
+        HuffmanDecompressor decompressor = new HuffmanDecompressor();
+        long plainSize = 0;
+        long dictionarySize = 0;
+        for (int i = 0; i < 200; i += 3) {
+            byte[] data = Files.readAllBytes(samples.resolve("m" + i + ".txt"));
+            byte[] packed = dictionary.compress(data);
+            checkSame(data, decompressor.decompress(packed), "muestra " + i);
+            dictionarySize += packed.length;
+            plainSize += plain.compress(data).length;
+        }
+        check(dictionarySize < plainSize, "el diccionario no ayudó: " + dictionarySize + " >= " + plainSize);
+
+        // --- 4. Una muestra chica sale como BLOCK_DICTIONARY (sin tabla propia) ---
+        byte[] sample = Files.readAllBytes(samples.resolve("m1.txt"));
+        check(TestSupport.firstBlockType(dictionary.compress(sample), TestSupport.BLOCK_SIZE) == HuffmanFormat.BLOCK_DICTIONARY,
+                "la muestra no usó el diccionario");
+
+        // --- 5. Datos que no se parecen a las muestras: Huffman normal o sin comprimir ---
+        byte[] noise = new byte[5000];
+        random.nextBytes(noise);
+        byte[] binary = new byte[256 * 20];
+        for (int i = 0; i < binary.length; i++) {
+            binary[i] = (byte) (i * 37);
+        }
+        byte[] other = "ΑΒΓΔ texto en otro alfabeto ΕΖΗΘ ".repeat(200).getBytes(StandardCharsets.UTF_8);
+        for (byte[] data : new byte[][] {new byte[0], {'x'}, noise, binary, other}) {
+            TestSupport.roundTrip(new DictionaryCodec(loaded), TestSupport.BLOCK_SIZE, data, data.length + " bytes ajenos al diccionario");
+        }
+
+        // --- 6. La configuración del codificador dice qué diccionario usa ---
+        String settings = new DictionaryCodec(loaded).settings();
+        check(settings.contains(Integer.toHexString(loaded.id())), "settings() sin el identificador: " + settings);
+
+        // --- 7. Errores: diccionario desconocido o archivo que no es un diccionario ---
+        TestSupport.checkFails(() -> DictionaryRegistry.get(~trained.id()), "diccionario no registrado");
+        Path notDictionary = folder.resolve("otro" + HuffmanDictionary.EXTENSION);
+        Files.write(notDictionary, "no es un diccionario".getBytes(StandardCharsets.UTF_8));
+        TestSupport.checkFails(() -> HuffmanDictionary.load(notDictionary), "archivo que no es un diccionario");
+
+        System.out.println("DictionaryTest: OK");
+    }
+}
@@ -0,0 +1,180 @@
+package core;
+
+import static core.TestSupport.check;
+import static core.TestSupport.checkSame;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Formato cifrado HFE (AES-CTR + HMAC-SHA256): tamaños justo alrededor de
+ * un bloque de AES y de un segmento paralelo, stream y archivo mezclados,
+ * archivos modificados, truncados o con el encabezado dañado, y un archivo
+ * de la versión 1 (sin HMAC) armado aquí como lo escribía esa versión.
+ */
+public class EncryptorTest {
+
+    private static final String PASSWORD = "contraseña segura";
+
+    // 'H' 'F' 'E' | versión | algoritmo | iteraciones | sal | nonce | verificador
+    private static final int HEADER_LENGTH = 3 + 2 + 4 + 16 + 8 + 16;
+
+    // HMAC-SHA256 al final del archivo
+    private static final int TAG_LENGTH = 32;
+
+    private static final int AES_BLOCK = 16;
+    private static final int SEGMENT_SIZE = 4 * 1024 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        Path folder = TestSupport.tempFolder("hfe");
+        Encryptor encryptor = new Encryptor();
+        Path original = folder.resolve("original.bin");
+        Path encrypted = folder.resolve("original.enc");
+        Path restored = folder.resolve("restaurado.bin");
+        Random random = new Random(17);
+
+        // --- 1. Tamaños alrededor de un bloque de AES y de un segmento ---
+        int[] lengths = {0, 1, AES_BLOCK - 1, AES_BLOCK, AES_BLOCK + 1, 3 * AES_BLOCK + 5,
+                SEGMENT_SIZE - 1, SEGMENT_SIZE, SEGMENT_SIZE + 1, 2 * SEGMENT_SIZE + AES_BLOCK + 3};
+        for (int length : lengths) {
+            byte[] data = new byte[length];
+            random.nextBytes(data);
+            String name = length + " bytes";
+            Files.write(original, data);
+
+            // Por archivo
+            TestSupport.quietly(() -> encryptor.encryptFile(original.toString(), encrypted.toString(), PASSWORD));
+            byte[] sealed = Files.readAllBytes(encrypted);
+            check(sealed.length == HEADER_LENGTH + data.length + TAG_LENGTH, name + ": tamaño del archivo cifrado");
+            check(sealed[0] == 'H' && sealed[1] == 'F' && sealed[2] == 'E', name + ": número mágico");
+            TestSupport.quietly(() -> encryptor.decryptFile(encrypted.toString(), restored.toString(), PASSWORD));
+            checkSame(data, Files.readAllBytes(restored), name + ": por archivo");
+
+            // Archivo -> stream, leído de a trozos que no coinciden con los bloques de AES
+            try (InputStream in = encryptor.decrypt(Files.newInputStream(encrypted), PASSWORD)) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] chunk = new byte[AES_BLOCK + 7];
+                int count;
+                while ((count = in.read(chunk)) != -1) {
+                    out.write(chunk, 0, count);
+                }
+                checkSame(data, out.toByteArray(), name + ": archivo -> stream");
+            }
+
+            // Stream -> archivo, escrito de a un byte y de a trozos
+            try (OutputStream out = encryptor.encrypt(Files.newOutputStream(encrypted), PASSWORD)) {
+                int split = Math.min(data.length, 5);
+                for (int i = 0; i < split; i++) {
+                    out.write(data[i]);
+                }
+                out.write(data, split, data.length - split);
+            }
+            TestSupport.quietly(() -> encryptor.decryptFile(encrypted.toString(), restored.toString(), PASSWORD));
+            checkSame(data, Files.readAllBytes(restored), name + ": stream -> archivo");
+        }
+
+        // --- 2. Dos cifrados del mismo archivo no se parecen (nonce distinto) ---
+        Path second = folder.resolve("segundo.enc");
+        TestSupport.quietly(() -> {
+            encryptor.encryptFile(original.toString(), encrypted.toString(), PASSWORD);
+            encryptor.encryptFile(original.toString(), second.toString(), PASSWORD);
+        });
+        byte[] first = Files.readAllBytes(encrypted);
+        byte[] other = Files.readAllBytes(second);
+        check(!Arrays.equals(Arrays.copyOfRange(first, HEADER_LENGTH, first.length),
+                Arrays.copyOfRange(other, HEADER_LENGTH, other.length)), "dos cifrados iguales (nonce repetido)");
+
+        // --- 3. Modificado o truncado: se rechaza sin escribir nada ---
+        byte[] small = new byte[1000];
+        random.nextBytes(small);
+        Files.write(original, small);
+        TestSupport.quietly(() -> encryptor.encryptFile(original.toString(), encrypted.toString(), PASSWORD));
+        byte[] sealed = Files.readAllBytes(encrypted);
+        int[] damagedAt = {HEADER_LENGTH + 500, sealed.length - 1, 20};
+        for (int position : damagedAt) {
+            byte[] damaged = sealed.clone();
+            damaged[position] ^= 1;
+            checkRejected(folder, damaged, "byte " + position + " modificado");
+        }
+        checkRejected(folder, Arrays.copyOf(sealed, sealed.length - 1), "sin el último byte");
+        checkRejected(folder, Arrays.copyOf(sealed, HEADER_LENGTH + 10), "sin el código de autenticación");
+        byte[] downgraded = sealed.clone();
+        downgraded[3] = 1;
+        checkRejected(folder, Arrays.copyOf(downgraded, sealed.length - TAG_LENGTH), "versión 2 disfrazada de 1");
+
+        // --- 4. Contraseña incorrecta, encabezado truncado o con el número mágico dañado ---
+        TestSupport.checkFails(() -> encryptor.decryptFile(encrypted.toString(), restored.toString(), "otra"),
+                "contraseña incorrecta");
+        checkRejected(folder, Arrays.copyOf(sealed, 20), "encabezado truncado");
+        byte[] badMagic = sealed.clone();
+        badMagic[0] = 'X';
+        checkRejected(folder, badMagic, "número mágico dañado");
+
+        // --- 5. Versión 1 (sin HMAC), armada como la escribía esa versión ---
+        Path version1 = folder.resolve("v1.enc");
+        Files.write(version1, writeVersion1(small, PASSWORD));
+        TestSupport.quietly(() -> encryptor.decryptFile(version1.toString(), restored.toString(), PASSWORD));
+        checkSame(small, Files.readAllBytes(restored), "versión 1 por archivo");
+        try (InputStream in = encryptor.decrypt(Files.newInputStream(version1), PASSWORD)) {
+            checkSame(small, in.readAllBytes(), "versión 1 por stream");
+        }
+
+        System.out.println("EncryptorTest: OK");
+    }
+
+    // El archivo dañado falla por archivo (sin dejar salida) y por stream
+    private static void checkRejected(Path folder, byte[] file, String name) throws Exception {
+        Encryptor encryptor = new Encryptor();
+        Path damaged = folder.resolve("danado.enc");
+        Path restored = folder.resolve("danado.bin");
+        Files.write(damaged, file);
+        Files.deleteIfExists(restored);
+        TestSupport.checkFails(() -> encryptor.decryptFile(damaged.toString(), restored.toString(), PASSWORD), name);
+        check(!Files.exists(restored), name + ": se escribió la salida antes de verificar");
+        TestSupport.checkFails(() -> {
+            try (InputStream in = encryptor.decrypt(Files.newInputStream(damaged), PASSWORD)) {
+                in.readAllBytes();
+            }
+        }, name + " (por stream)");
+    }
+
+    /**
+     * Versión 1: el mismo encabezado con versión 1, el verificador a
+     * continuación de la clave AES (PBKDF2 de 48 bytes) y sin HMAC al final.
+     */
+    private static byte[] writeVersion1(byte[] data, String password) throws Exception {
+        int iterations = 1000;
+        byte[] salt = new byte[16];
+        byte[] nonce = new byte[8];
+        new Random(1).nextBytes(salt);
+        new Random(2).nextBytes(nonce);
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, (32 + 16) * 8);
+        byte[] material = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        DataOutputStream dos = new DataOutputStream(file);
+        dos.write(new byte[] {'H', 'F', 'E', 1, 1});
+        dos.writeInt(iterations);
+        dos.write(salt);
+        dos.write(nonce);
+        dos.write(material, 32, 16);
+
+        Cipher cipher = Cipher.getInstance("AES/CTR/NoPadding");
+        byte[] counter = ByteBuffer.allocate(AES_BLOCK).put(nonce).putLong(0).array();
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(material, 0, 32, "AES"), new IvParameterSpec(counter));
+        dos.write(cipher.doFinal(data));
+        return file.toByteArray();
+    }
+}
@@ -0,0 +1,72 @@
+package core;
+
+import static core.TestSupport.check;
+import static core.TestSupport.checkSame;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Comprimir y cifrar en un solo paso (.ec) sin archivos temporales, y el
+ * camino inverso: archivos de varios bloques, vacíos e incompresibles, y
+ * que un error no deje un .ec ni un archivo recuperado a medias.
+ */
+public class FileProcessorTest {
+
+    private static final String PASSWORD = "clave del pipeline";
+
+    public static void main(String[] args) throws Exception {
+        Path folder = TestSupport.tempFolder("pipeline");
+        FileProcessor processor = new FileProcessor();
+
+        // --- 1. Texto de varios bloques de 1 MB, un archivo vacío y bytes al azar ---
+        StringBuilder text = new StringBuilder();
+        Random random = new Random(9);
+        while (text.length() < 3 * HuffmanFormat.DEFAULT_BLOCK_SIZE + 1234) {
+            text.append("registro ").append(random.nextInt(500)).append(" procesado sin temporales\n");
+        }
+        byte[] noise = new byte[200_000];
+        random.nextBytes(noise);
+        byte[][] inputs = {text.toString().getBytes(StandardCharsets.UTF_8), new byte[0], noise};
+
+        for (int i = 0; i < inputs.length; i++) {
+            byte[] data = inputs[i];
+            Path original = folder.resolve("entrada" + i + ".bin");
+            Path ec = folder.resolve("entrada" + i + ".bin.ec");
+            Path restored = folder.resolve("salida" + i + ".bin");
+            Files.write(original, data);
+
+            TestSupport.quietly(() -> {
+                processor.processFile(original.toString(), ec.toString(), FileProcessor.OP_COMPRESS_AND_ENCRYPT, PASSWORD);
+                processor.recoverFile(ec.toString(), restored.toString(), PASSWORD);
+            });
+            checkSame(data, Files.readAllBytes(restored), "entrada " + i);
+        }
+        check(Files.size(folder.resolve("entrada0.bin.ec")) < inputs[0].length * 3L / 4, "el texto no quedó comprimido");
+
+        // --- 2. Solo quedan las entradas, los .ec y las salidas (ningún temporal) ---
+        try (Stream<Path> files = Files.list(folder)) {
+            check(files.count() == 3 * inputs.length, "quedaron archivos de más en la carpeta");
+        }
+
+        // --- 3. Un error no deja archivos a medias ---
+        Path original = folder.resolve("entrada0.bin");
+        Path failed = folder.resolve("fallido.ec");
+        try {
+            TestSupport.quietly(() -> processor.processFile(original.toString(), failed.toString(),
+                    FileProcessor.OP_COMPRESS_AND_ENCRYPT, ""));
+            throw new AssertionError("se cifró con una contraseña vacía");
+        } catch (IllegalArgumentException e) {
+            check(!Files.exists(failed), "quedó un .ec a medio escribir");
+        }
+        Path wrong = folder.resolve("otra-clave.bin");
+        TestSupport.checkFails(() -> processor.recoverFile(folder.resolve("entrada0.bin.ec").toString(),
+                wrong.toString(), "otra clave"), "contraseña incorrecta");
+        check(!Files.exists(wrong), "quedó un archivo recuperado con la contraseña incorrecta");
+
+        System.out.println("FileProcessorTest: OK");
+    }
+}
@@ -0,0 +1,88 @@
+package core;
+
+import static core.TestSupport.check;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * El codificador FSE con distribuciones que ponen a prueba el escalado de
+ * frecuencias a la tabla de estados (un solo símbolo, uno casi ausente,
+ * los 256 presentes, probabilidades muy dispares) y el registro de
+ * codificadores por nombre y por identificador.
+ */
+public class FseCodecTest {
+
+    public static void main(String[] args) throws Exception {
+        Codec fse = CodecRegistry.byName("fse");
+        int blockSize = TestSupport.BLOCK_SIZE;
+        Random random = new Random(12);
+
+        // --- 1. Distribución geométrica: FSE le saca provecho a las fracciones de bit ---
+        byte[] skewed = new byte[3 * blockSize + 777];
+        for (int i = 0; i < skewed.length; i++) {
+            int symbol = 0;
+            while (symbol < 40 && random.nextInt(10) < 7) {
+                symbol++;
+            }
+            skewed[i] = (byte) symbol;
+        }
+        byte[] packed = TestSupport.roundTrip(fse, blockSize, skewed, "geométrica");
+        check(TestSupport.firstBlockType(packed, blockSize) == HuffmanFormat.BLOCK_FSE, "no se usó BLOCK_FSE");
+        byte[] huffman = TestSupport.roundTrip(CodecRegistry.byName("huffman"), blockSize, skewed, "geométrica (huffman)");
+        check(packed.length <= huffman.length, "FSE ocupó más que Huffman: " + packed.length + " contra " + huffman.length);
+
+        // --- 2. Un solo símbolo ---
+        byte[] single = new byte[blockSize + 500];
+        Arrays.fill(single, (byte) 0xAB);
+        TestSupport.roundTrip(fse, blockSize, single, "un solo símbolo");
+
+        // --- 3. Dos símbolos, uno que aparece una sola vez por bloque (frecuencia escalada mínima) ---
+        byte[] rare = new byte[2 * blockSize];
+        Arrays.fill(rare, (byte) 'a');
+        rare[123] = 'b';
+        rare[blockSize + blockSize / 2] = 'b';
+        TestSupport.roundTrip(fse, blockSize, rare, "símbolo casi ausente");
+
+        // --- 4. Los 256 símbolos, con más símbolos presentes que casillas por símbolo ---
+        byte[] all = new byte[2 * blockSize];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = (byte) (random.nextInt(4) == 0 ? random.nextInt(256) : random.nextInt(8));
+        }
+        TestSupport.roundTrip(fse, blockSize, all, "los 256 símbolos");
+
+        // --- 5. Datos al azar: se guardan sin comprimir ---
+        byte[] noise = new byte[blockSize];
+        random.nextBytes(noise);
+        packed = TestSupport.roundTrip(fse, blockSize, noise, "aleatorio");
+        check(TestSupport.firstBlockType(packed, blockSize) == HuffmanFormat.BLOCK_STORED, "los datos al azar no se guardaron tal cual");
+        TestSupport.roundTrip(fse, blockSize, new byte[0], "vacío");
+        TestSupport.roundTrip(fse, blockSize, new byte[] {7}, "un byte");
+
+        // --- 6. Registro: por nombre, por identificador y métodos desconocidos ---
+        check(CodecRegistry.get(HuffmanFormat.METHOD_FSE) == fse, "get y byName no devuelven el mismo codificador");
+        check(CodecRegistry.byName("FSE") == fse, "byName distingue mayúsculas");
+        check(CodecRegistry.all().contains(fse), "all() no incluye FSE");
+        check(fse.settings().equals("fse"), "settings() de FSE: " + fse.settings());
+        TestSupport.checkFails(() -> CodecRegistry.get(200), "método 200");
+        try {
+            CodecRegistry.byName("zstd");
+            throw new AssertionError("byName aceptó un codificador desconocido");
+        } catch (IllegalArgumentException expected) {
+            // el nombre no está registrado
+        }
+        try {
+            CodecRegistry.register(new HuffmanBlockCodec() {
+                @Override
+                public int id() {
+                    return HuffmanFormat.METHOD_FSE;
+                }
+            });
+            throw new AssertionError("se registró otro codificador con el identificador de FSE");
+        } catch (IllegalArgumentException expected) {
+            // el identificador ya está ocupado
+        }
+
+        System.out.println("FseCodecTest: OK");
+    }
+}
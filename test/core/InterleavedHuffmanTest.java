@@ -0,0 +1,64 @@
+package core;
+
+import static core.TestSupport.check;
+import static core.TestSupport.checkSame;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Huffman en cuatro flujos intercalados (BLOCK_HUFFMAN_X4): bloques justo
+ * alrededor de MIN_INTERLEAVED_BLOCK, largos que no se dividen en cuatro
+ * partes iguales, cuartos de contenido muy distinto, y que un archivo
+ * escrito sin flujos intercalados se siga leyendo igual.
+ */
+public class InterleavedHuffmanTest {
+
+    private static final int MIN_INTERLEAVED_BLOCK = 16 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        Codec huffman = CodecRegistry.byName("huffman");
+        Random random = new Random(15);
+
+        StringBuilder sentence = new StringBuilder();
+        while (sentence.length() < 300_000) {
+            sentence.append("flujo ").append(random.nextInt(1000)).append(random.nextBoolean() ? " listo\n" : " ");
+        }
+        byte[] text = sentence.toString().getBytes(StandardCharsets.UTF_8);
+
+        // --- 1. Desde MIN_INTERLEAVED_BLOCK los bloques van en cuatro flujos; antes, en uno ---
+        for (int length : new int[] {MIN_INTERLEAVED_BLOCK - 1, MIN_INTERLEAVED_BLOCK, MIN_INTERLEAVED_BLOCK + 1,
+                MIN_INTERLEAVED_BLOCK + 2, MIN_INTERLEAVED_BLOCK + 3}) {
+            byte[] data = Arrays.copyOf(text, length);
+            byte[] packed = TestSupport.roundTrip(huffman, length, data, length + " bytes");
+            int expected = length >= MIN_INTERLEAVED_BLOCK ? HuffmanFormat.BLOCK_HUFFMAN_X4 : HuffmanFormat.BLOCK_HUFFMAN;
+            check(TestSupport.firstBlockType(packed, length) == expected,
+                    length + " bytes: tipo " + TestSupport.firstBlockType(packed, length));
+        }
+
+        // --- 2. Varios bloques grandes, el último con un largo impar ---
+        int blockSize = TestSupport.BLOCK_SIZE;
+        byte[] packed = TestSupport.roundTrip(huffman, blockSize, Arrays.copyOf(text, 3 * blockSize + 4097), "varios bloques");
+        check(TestSupport.firstBlockType(packed, blockSize) == HuffmanFormat.BLOCK_HUFFMAN_X4, "los bloques grandes no usaron BLOCK_HUFFMAN_X4");
+
+        // --- 3. Cuartos muy distintos: uno de un solo símbolo (código de un bit) y uno casi al azar ---
+        byte[] mixed = Arrays.copyOf(text, blockSize + 2);
+        int quarter = (blockSize + 3) / 4;
+        Arrays.fill(mixed, 0, quarter, (byte) 'e');
+        for (int i = 2 * quarter; i < 3 * quarter; i++) {
+            mixed[i] = (byte) ('a' + random.nextInt(26));
+        }
+        TestSupport.roundTrip(huffman, blockSize + 2, mixed, "cuartos distintos");
+
+        // --- 4. Sin flujos intercalados: un solo flujo, y el mismo descompresor lo lee ---
+        HuffmanCompressor single = new HuffmanCompressor(ForkJoinPool.commonPool(), blockSize, new HuffmanBlockCodec(false));
+        byte[] data = Arrays.copyOf(text, 2 * blockSize + 1);
+        byte[] singlePacked = single.compress(data);
+        check(TestSupport.firstBlockType(singlePacked, blockSize) == HuffmanFormat.BLOCK_HUFFMAN, "se intercaló sin pedirlo");
+        checkSame(data, new HuffmanDecompressor().decompress(singlePacked), "un solo flujo");
+
+        System.out.println("InterleavedHuffmanTest: OK");
+    }
+}
@@ -0,0 +1,187 @@
+package core;
+
+import static core.TestSupport.check;
+import static core.TestSupport.checkSame;
+
+import utils.BitWriter;
+import utils.HuffmanCodeTable;
+import utils.HuffmanNode;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Códigos canónicos de longitud limitada y lectura de los formatos
+ * anteriores, que ya no se escriben pero se deben seguir abriendo: .cmp
+ * versión 1 (tabla de frecuencias) y .cmp versión 2 (longitudes canónicas).
+ * Los archivos se arman aquí tal como los escribían las versiones anteriores.
+ */
+public class LegacyFormatTest {
+
+    public static void main(String[] args) throws Exception {
+        Path folder = TestSupport.tempFolder("legacy");
+        Path restored = folder.resolve("restaurado.bin");
+        HuffmanDecompressor decompressor = new HuffmanDecompressor();
+        FileProcessor processor = new FileProcessor();
+
+        for (Map.Entry<String, byte[]> sample : samples().entrySet()) {
+            String name = sample.getKey();
+            byte[] data = sample.getValue();
+
+            // --- 1. .cmp versión 1 ---
+            Path version1 = folder.resolve("v1.cmp");
+            Files.write(version1, writeVersion1(data));
+            TestSupport.quietly(() -> decompressor.decompress(version1.toString(), restored.toString()));
+            checkSame(data, Files.readAllBytes(restored), "versión 1 / " + name);
+
+            // --- 2. .cmp versión 2 ---
+            Path version2 = folder.resolve("v2.cmp");
+            Files.write(version2, writeVersion2(data));
+            TestSupport.quietly(() -> processor.recoverFile(version2.toString(), restored.toString(), null));
+            checkSame(data, Files.readAllBytes(restored), "versión 2 / " + name);
+
+            // --- 3. Lo que escribe el compresor actual también vuelve igual ---
+            checkSame(data, decompressor.decompress(new HuffmanCompressor().compress(data)), "actual / " + name);
+        }
+
+        // --- 4. Frecuencias de Fibonacci: sin límite, los códigos pasarían de MAX_CODE_LENGTH ---
+        long[] freqTable = new long[256];
+        long a = 1;
+        long b = 1;
+        for (int symbol = 0; symbol < 30; symbol++) {
+            freqTable[symbol] = a;
+            long next = a + b;
+            a = b;
+            b = next;
+        }
+        int[] lengths = HuffmanCodeTable.buildLengths(freqTable, HuffmanFormat.MAX_CODE_LENGTH);
+        double kraft = 0;
+        for (int symbol = 0; symbol < 256; symbol++) {
+            check(lengths[symbol] <= HuffmanFormat.MAX_CODE_LENGTH, "código de " + lengths[symbol] + " bits");
+            check((freqTable[symbol] > 0) == (lengths[symbol] > 0), "símbolo " + symbol + ": código de más o de menos");
+            if (lengths[symbol] > 0) {
+                kraft += Math.pow(2, -lengths[symbol]);
+            }
+        }
+        check(kraft <= 1.0, "las longitudes no forman un código prefijo: " + kraft);
+
+        // --- 5. Una versión desconocida es un error, no datos basura ---
+        Path future = folder.resolve("v9.cmp");
+        Files.write(future, new byte[] {'H', 'F', 9, 0});
+        String error = TestSupport.checkFails(() -> decompressor.decompress(future.toString(), restored.toString()),
+                "versión desconocida");
+        check(error.contains("9"), "el error no dice la versión: " + error);
+
+        System.out.println("LegacyFormatTest: OK");
+    }
+
+    /**
+     * Casos de los códigos canónicos: vacío, un solo símbolo (código de un
+     * bit), los 256 bytes, texto, y frecuencias de Fibonacci (el árbol de
+     * Huffman sin límite tiene ramas más largas que MAX_CODE_LENGTH).
+     */
+    private static Map<String, byte[]> samples() {
+        Map<String, byte[]> samples = new LinkedHashMap<>();
+        samples.put("vacío", new byte[0]);
+        samples.put("un byte", new byte[] {42});
+
+        byte[] single = new byte[5000];
+        Arrays.fill(single, (byte) 'a');
+        samples.put("un solo símbolo", single);
+
+        byte[] all = new byte[256 * 40];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = (byte) (i * 7);
+        }
+        samples.put("los 256 bytes", all);
+
+        samples.put("texto", "Vamos a ver si el algoritmo de Huffman funciona correctamente. "
+                .repeat(300).getBytes(StandardCharsets.UTF_8));
+
+        ByteArrayOutputStream fibonacci = new ByteArrayOutputStream();
+        int a = 1;
+        int b = 1;
+        for (int symbol = 0; symbol < 22; symbol++) {
+            for (int i = 0; i < a; i++) {
+                fibonacci.write(symbol);
+            }
+            int next = a + b;
+            a = b;
+            b = next;
+        }
+        samples.put("Fibonacci", fibonacci.toByteArray());
+        return samples;
+    }
+
+    /**
+     * Formato antiguo (versión 1): cantidad de símbolos, (byte, frecuencia)
+     * por cada uno y los bits con los códigos del árbol de Huffman. El árbol
+     * se arma en el mismo orden en que el descompresor lee la tabla.
+     */
+    private static byte[] writeVersion1(byte[] data) throws IOException {
+        Map<Byte, Integer> freqTable = new LinkedHashMap<>();
+        for (byte b : data) {
+            freqTable.merge(b, 1, Integer::sum);
+        }
+
+        PriorityQueue<HuffmanNode> pq = new PriorityQueue<>();
+        for (Map.Entry<Byte, Integer> entry : freqTable.entrySet()) {
+            pq.add(new HuffmanNode(entry.getKey(), entry.getValue()));
+        }
+        while (pq.size() > 1) {
+            HuffmanNode left = pq.poll();
+            HuffmanNode right = pq.poll();
+            pq.add(new HuffmanNode(left.frequency + right.frequency, left, right));
+        }
+        HuffmanCodeTable codeTable = HuffmanCodeTable.fromTree(pq.poll());
+
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        DataOutputStream dos = new DataOutputStream(file);
+        dos.writeInt(freqTable.size());
+        for (Map.Entry<Byte, Integer> entry : freqTable.entrySet()) {
+            dos.writeByte(entry.getKey());
+            dos.writeInt(entry.getValue());
+        }
+        writeBits(dos, data, codeTable);
+        return file.toByteArray();
+    }
+
+    /**
+     * Formato canónico (versión 2): 'H' 'F' 2 | tamaño (varint) |
+     * longitudes de código | bits con los códigos canónicos.
+     */
+    private static byte[] writeVersion2(byte[] data) throws IOException {
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        DataOutputStream dos = new DataOutputStream(file);
+        dos.writeByte(HuffmanFormat.MAGIC_0);
+        dos.writeByte(HuffmanFormat.MAGIC_1);
+        dos.writeByte(HuffmanFormat.VERSION_CANONICAL);
+        HuffmanFormat.writeVarLong(dos, data.length);
+        if (data.length > 0) {
+            long[] freqTable = new long[256];
+            for (byte b : data) {
+                freqTable[b & 0xFF]++;
+            }
+            int[] lengths = HuffmanCodeTable.buildLengths(freqTable, HuffmanFormat.MAX_CODE_LENGTH);
+            HuffmanFormat.writeCodeLengths(dos, lengths);
+            writeBits(dos, data, HuffmanCodeTable.fromLengths(lengths));
+        }
+        return file.toByteArray();
+    }
+
+    private static void writeBits(DataOutputStream dos, byte[] data, HuffmanCodeTable codeTable) throws IOException {
+        BitWriter writer = new BitWriter(dos, 4096);
+        for (byte b : data) {
+            writer.writeBits(codeTable.codes[b & 0xFF], codeTable.lengths[b & 0xFF]);
+        }
+        writer.flush();
+        dos.flush();
+    }
+}
@@ -0,0 +1,81 @@
+package core;
+
+import static core.TestSupport.check;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Ida y vuelta del codificador LZ77 + Huffman con repeticiones de todo
+ * tipo: corridas de un byte (coincidencias que se solapan), coincidencias
+ * en los bordes de las cubetas de longitud, a la distancia máxima de la
+ * ventana y justo fuera de ella, y datos sin repeticiones.
+ */
+public class LzCodecTest {
+
+    private static final int WINDOW_SIZE = 1 << 16;
+
+    public static void main(String[] args) throws Exception {
+        Codec lz = CodecRegistry.byName("lz");
+        Codec huffman = CodecRegistry.byName("huffman");
+        int blockSize = TestSupport.BLOCK_SIZE;
+        Random random = new Random(11);
+
+        // --- 1. Un byte repetido: distancia 1, longitudes más largas que MAX_MATCH ---
+        byte[] run = new byte[100_000];
+        Arrays.fill(run, (byte) 'z');
+        TestSupport.roundTrip(lz, blockSize, run, "corrida");
+
+        // --- 2. Texto con líneas que se repiten: sale como BLOCK_LZ y ocupa menos que Huffman ---
+        StringBuilder log = new StringBuilder();
+        String[] lines = {"GET /index.html 200\n", "GET /logo.png 304\n", "POST /api/pedidos 201\n"};
+        while (log.length() < 3 * blockSize) {
+            log.append(random.nextInt(24)).append(':').append(random.nextInt(60)).append(' ')
+                    .append(lines[random.nextInt(lines.length)]);
+        }
+        byte[] text = log.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] packed = TestSupport.roundTrip(lz, blockSize, text, "log");
+        check(TestSupport.firstBlockType(packed, blockSize) == HuffmanFormat.BLOCK_LZ, "el log no usó BLOCK_LZ");
+        byte[] plain = new HuffmanCompressor(ForkJoinPool.commonPool(), blockSize, huffman).compress(text);
+        check(packed.length < plain.length / 2, "LZ77 no ayudó: " + packed.length + " contra " + plain.length);
+
+        // --- 3. Coincidencias con las longitudes de los bordes de las cubetas (y de MAX_MATCH) ---
+        ByteArrayOutputStream edges = new ByteArrayOutputStream();
+        for (int length : new int[] {4, 5, 15, 16, 17, 31, 32, 33, 63, 64, 65, 258, 259, 260}) {
+            byte[] piece = randomBytes(random, length);
+            edges.write(piece);
+            edges.write(randomBytes(random, 50));
+            edges.write(piece);
+            edges.write(randomBytes(random, 50));
+        }
+        TestSupport.roundTrip(lz, blockSize, edges.toByteArray(), "bordes de longitud");
+
+        // --- 4. Distancia máxima de la ventana y una más (bloques más grandes que la ventana) ---
+        int bigBlock = 4 * WINDOW_SIZE;
+        byte[] far = new byte[3 * WINDOW_SIZE];
+        byte[] piece = randomBytes(random, 64);
+        System.arraycopy(piece, 0, far, 0, piece.length);
+        System.arraycopy(piece, 0, far, WINDOW_SIZE - 1, piece.length);
+        System.arraycopy(piece, 0, far, 2 * WINDOW_SIZE + 5, piece.length);
+        TestSupport.roundTrip(lz, bigBlock, far, "distancia máxima");
+
+        // --- 5. Sin repeticiones: se guarda sin comprimir ---
+        byte[] noise = randomBytes(random, 2 * blockSize);
+        packed = TestSupport.roundTrip(lz, blockSize, noise, "aleatorio");
+        check(TestSupport.firstBlockType(packed, blockSize) == HuffmanFormat.BLOCK_STORED, "los datos al azar no se guardaron tal cual");
+
+        TestSupport.roundTrip(lz, blockSize, new byte[0], "vacío");
+        TestSupport.roundTrip(lz, blockSize, new byte[] {1, 2, 3}, "más corto que MIN_MATCH");
+
+        System.out.println("LzCodecTest: OK");
+    }
+
+    private static byte[] randomBytes(Random random, int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,169 @@
+package core;
+
+import static core.TestSupport.check;
+import static core.TestSupport.checkSame;
+
+import utils.FileWalker;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Archivo sólido .hfa con muchos archivos chicos (el caso para el que
+ * existe): crear, listar, extraer una entrada que cruza un límite de
+ * bloque y extraer todo con fechas y carpetas vacías; un contenedor con
+ * una entrada "../" que no debe escribir fuera; y processFolderSolid con
+ * corridas incrementales, cifrado y recoverFolder.
+ */
+public class SolidArchiveTest {
+
+    private static final String PASSWORD = "clave sólida";
+
+    public static void main(String[] args) throws Exception {
+        Path folder = TestSupport.tempFolder("hfa");
+        Path source = folder.resolve("origen");
+
+        // --- 1. Muchos archivos chicos de pocos tipos, un archivo vacío y carpetas vacías ---
+        for (int i = 0; i < 300; i++) {
+            String name = i % 3 == 0 ? "src/mod" + (i % 7) + "/Clase" + i + ".java"
+                    : i % 3 == 1 ? "config/app" + i + ".properties" : "docs/nota" + i + ".md";
+            Path file = source.resolve(name);
+            TestSupport.write(file, ("entrada " + i + " del proyecto de ejemplo\n").repeat(1 + i % 5)
+                    .getBytes(StandardCharsets.UTF_8));
+            Files.setLastModifiedTime(file, FileTime.fromMillis(1_700_000_000_000L + i * 1000L));
+        }
+        TestSupport.write(source.resolve("vacio.txt"), new byte[0]);
+        Files.createDirectories(source.resolve("vacia/tambien"));
+
+        // --- 2. Crear (bloques chicos, así las entradas cruzan límites), listar, y que ocupe
+        //        menos que comprimir cada archivo por separado ---
+        String archive = folder.resolve("origen" + SolidArchive.EXTENSION).toString();
+        SolidArchive solid = new SolidArchive(16 * 1024, CodecRegistry.byName("huffman"));
+        TestSupport.quietly(() -> solid.create(source.toFile(), archive));
+        List<SolidArchive.Entry> entries = solid.list(archive);
+        long fileCount = entries.stream().filter(entry -> !entry.directory).count();
+        check(fileCount == 301, "entradas de archivo: " + fileCount);
+        check(entries.stream().anyMatch(entry -> entry.directory && entry.name.equals("vacia/tambien")),
+                "falta la carpeta vacía");
+        long separateSize = 0;
+        try (Stream<Path> walk = Files.walk(source)) {
+            for (Path path : walk.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                separateSize += new HuffmanCompressor().compress(Files.readAllBytes(path)).length;
+            }
+        }
+        long solidSize = Files.size(Path.of(archive));
+        check(solidSize < separateSize * 3L / 4, "el archivo sólido no ahorró los encabezados de cada archivo: "
+                + solidSize + " contra " + separateSize);
+
+        // --- 3. Extraer una entrada que cruza el límite entre dos bloques ---
+        SolidArchive.Entry crossing = entries.stream()
+                .filter(entry -> !entry.directory && entry.offset / (16 * 1024) != (entry.offset + entry.size - 1) / (16 * 1024))
+                .findFirst().orElseThrow();
+        Path single = folder.resolve("una.bin");
+        TestSupport.quietly(() -> solid.extract(archive, crossing.name, single.toString()));
+        checkSame(source.resolve(crossing.name), single, "extraer " + crossing.name);
+        TestSupport.checkFails(() -> solid.extract(archive, "no/existe.txt", single.toString()), "entrada inexistente");
+
+        // --- 4. Extraer todo: mismo contenido, fechas y carpetas ---
+        Path all = folder.resolve("todo");
+        TestSupport.quietly(() -> solid.extractAll(archive, all.toFile()));
+        checkSameTree(source, all, true);
+
+        // --- 5. Una entrada "../" no escribe fuera de la carpeta de destino ---
+        Path hostile = folder.resolve("hostil" + SolidArchive.EXTENSION);
+        writeHostileArchive(hostile);
+        Path target = folder.resolve("destino");
+        TestSupport.checkFails(() -> solid.extractAll(hostile.toString(), target.toFile()), "entrada fuera de la carpeta");
+        check(!Files.exists(folder.resolve("fuera.txt")), "se escribió fuera de la carpeta de destino");
+
+        // --- 6. processFolderSolid: sin cambios no se rehace; con cambios, sí ---
+        Path output = folder.resolve("salida");
+        FileProcessor processor = new FileProcessor();
+        check(rebuilt(source, output, processor, null), "primera corrida");
+        check(Files.exists(output.resolve("origen" + SolidArchive.EXTENSION)), "no se guardó origen.hfa");
+        check(!rebuilt(source, output, processor, null), "se rehízo sin cambios");
+        TestSupport.write(source.resolve("docs/nota2.md"), "nota cambiada".getBytes(StandardCharsets.UTF_8));
+        check(rebuilt(source, output, processor, null), "no se rehízo tras un cambio");
+        Files.delete(source.resolve("docs/nota5.md"));
+        check(rebuilt(source, output, processor, null), "no se rehízo tras borrar un archivo");
+        recoverAndCheck(source, output, folder.resolve("recuperado1"), null);
+
+        // --- 7. Cifrado: reemplaza al .hfa y se recupera con la contraseña ---
+        check(rebuilt(source, output, processor, PASSWORD), "no se rehízo al cifrar");
+        check(Files.exists(output.resolve("origen" + SolidArchive.ENCRYPTED_EXTENSION)), "no se guardó origen.hfa.enc");
+        check(!Files.exists(output.resolve("origen" + SolidArchive.EXTENSION)), "quedó el .hfa sin cifrar");
+        check(!rebuilt(source, output, processor, PASSWORD), "se rehízo sin cambios (cifrado)");
+        recoverAndCheck(source, output, folder.resolve("recuperado2"), PASSWORD);
+        TestSupport.checkFails(() -> new FileWalker(2).recoverFolder(output.toFile(), folder.resolve("recuperado3").toFile(),
+                processor, "otra"), "contraseña incorrecta");
+
+        System.out.println("SolidArchiveTest: OK");
+    }
+
+    // Empaqueta la carpeta y dice si el archivo sólido se creó de nuevo
+    private static boolean rebuilt(Path source, Path output, FileProcessor processor, String password) throws Exception {
+        String report = TestSupport.quietly(() -> new FileWalker(2).processFolderSolid(source.toFile(), output.toFile(),
+                processor, password));
+        return TestSupport.countLines(report, "Archivo sólido guardado en") == 1;
+    }
+
+    private static void recoverAndCheck(Path source, Path output, Path recovered, String password) throws Exception {
+        TestSupport.quietly(() -> new FileWalker(2).recoverFolder(output.toFile(), recovered.toFile(),
+                new FileProcessor(), password));
+        checkSameTree(source, recovered, false);
+    }
+
+    // Mismos archivos y carpetas (y fechas de los archivos, si se pide)
+    private static void checkSameTree(Path source, Path copyRoot, boolean dates) throws Exception {
+        List<Path> originals;
+        try (Stream<Path> walk = Files.walk(source)) {
+            originals = walk.collect(Collectors.toList());
+        }
+        for (Path path : originals) {
+            Path copy = copyRoot.resolve(source.relativize(path).toString());
+            if (Files.isDirectory(path)) {
+                check(Files.isDirectory(copy), "falta la carpeta " + copy);
+            } else {
+                checkSame(path, copy, "copia de " + path);
+                check(!dates || Files.getLastModifiedTime(path).toMillis() == Files.getLastModifiedTime(copy).toMillis(),
+                        "fecha de " + copy);
+            }
+        }
+        long count;
+        try (Stream<Path> walk = Files.walk(copyRoot)) {
+            count = walk.count();
+        }
+        check(count == originals.size(), "entradas de más: " + count + " de " + originals.size());
+    }
+
+    /**
+     * Contenedor con una sola entrada "../fuera.txt", armado como lo hace
+     * create: datos | directorio | largo del directorio | 'H' 'F' 'A' 'D'.
+     */
+    private static void writeHostileArchive(Path file) throws Exception {
+        byte[] data = "fuera".getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream directoryBytes = new ByteArrayOutputStream();
+        DataOutputStream directory = new DataOutputStream(directoryBytes);
+        HuffmanFormat.writeVarLong(directory, 1);
+        directory.writeByte(0);
+        directory.writeUTF("../fuera.txt");
+        HuffmanFormat.writeVarLong(directory, 0);
+        HuffmanFormat.writeVarLong(directory, data.length);
+        directory.writeLong(0);
+
+        try (OutputStream out = Files.newOutputStream(file);
+             DataOutputStream dos = new DataOutputStream(new HuffmanOutputStream(out))) {
+            dos.write(data);
+            dos.write(directoryBytes.toByteArray());
+            dos.writeLong(directoryBytes.size());
+            dos.write(new byte[] {'H', 'F', 'A', 'D'});
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Utilidades comunes de las pruebas (ver AllTests): carpetas temporales y
+ * comprobaciones que fallan con AssertionError. Cada prueba arma sus propios
+ * datos, pensados para lo que prueba.
+ */
+public final class TestSupport {
+
+    // Bloques chicos para que los datos de una prueba ocupen varios (64 KB)
+    public static final int BLOCK_SIZE = 64 * 1024;
+
+    private TestSupport() {
+    }
+
+    // Una acción que puede fallar (ej. comprimir un archivo)
+    @FunctionalInterface
+    public interface Action {
+        void run() throws Exception;
+    }
+
+    public static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    public static void checkSame(byte[] expected, byte[] actual, String message) {
+        if (!Arrays.equals(expected, actual)) {
+            throw new AssertionError(message + " (se esperaban " + expected.length
+                    + " bytes, se obtuvieron " + actual.length + ")");
+        }
+    }
+
+    public static void checkSame(Path expected, Path actual, String message) throws IOException {
+        checkSame(Files.readAllBytes(expected), Files.readAllBytes(actual), message);
+    }
+
+    /**
+     * Comprueba que la acción falle con IOException (ej. datos dañados o una
+     * contraseña incorrecta) y devuelve el mensaje del error.
+     */
+    public static String checkFails(Action action, String message) throws Exception {
+        try {
+            quietly(action);
+        } catch (IOException e) {
+            return e.getMessage();
+        }
+        throw new AssertionError(message + " (no falló)");
+    }
+
+    /**
+     * Ejecuta la acción sin mostrar lo que escribe en System.out (los
+     * compresores informan cada archivo) y devuelve ese texto.
+     */
+    public static String quietly(Action action) throws Exception {
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        PrintStream original = System.out;
+        System.setOut(new PrintStream(captured, true, StandardCharsets.UTF_8));
+        try {
+            action.run();
+        } finally {
+            System.setOut(original);
+        }
+        return captured.toString(StandardCharsets.UTF_8);
+    }
+
+    // Cantidad de líneas de 'output' que empiezan con 'prefix'
+    public static long countLines(String output, String prefix) {
+        return output.lines().filter(line -> line.startsWith(prefix)).count();
+    }
+
+    public static Path tempFolder(String prefix) throws IOException {
+        return Files.createTempDirectory(prefix);
+    }
+
+    public static void write(Path file, byte[] data) throws IOException {
+        Files.createDirectories(file.getParent());
+        try (OutputStream out = Files.newOutputStream(file)) {
+            out.write(data);
+        }
+    }
+
+    /**
+     * Comprime 'data' con el codificador y lo descomprime de todas las formas:
+     * en memoria, por archivo (con índice, en paralelo), por stream y, si
+     * ocupa más de un bloque, un rango que cruza el límite entre dos bloques.
+     * Devuelve lo comprimido en memoria (para revisar sus registros).
+     */
+    public static byte[] roundTrip(Codec codec, int blockSize, byte[] data, String name) throws Exception {
+        HuffmanCompressor compressor = new HuffmanCompressor(ForkJoinPool.commonPool(), blockSize, codec);
+        HuffmanDecompressor decompressor = new HuffmanDecompressor();
+
+        // 1. En memoria: encabezado de la versión 3 con el método del codificador
+        byte[] packed = compressor.compress(data);
+        check(packed[0] == 'H' && packed[1] == 'F' && packed[2] == HuffmanFormat.VERSION_BLOCKS, name + ": encabezado");
+        check((packed[3] & 0xFF) == codec.id(), name + ": método del encabezado");
+        checkSame(data, decompressor.decompress(packed), name + ": en memoria");
+
+        // 2. Por archivo
+        Path folder = tempFolder("ida-y-vuelta");
+        Path original = folder.resolve("original.bin");
+        Path compressed = folder.resolve("original.cmp");
+        Path restored = folder.resolve("restaurado.bin");
+        Files.write(original, data);
+        quietly(() -> {
+            compressor.compress(original.toString(), compressed.toString());
+            decompressor.decompress(compressed.toString(), restored.toString());
+        });
+        checkSame(original, restored, name + ": por archivo");
+
+        // 3. Por stream (los registros se leen en orden, sin el índice)
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        try (InputStream in = Files.newInputStream(compressed)) {
+            decompressor.decompress(in, streamed);
+        }
+        checkSame(data, streamed.toByteArray(), name + ": por stream");
+
+        // 4. Un rango que cruza el límite entre el primer y el segundo bloque
+        if (data.length > blockSize + 100) {
+            int offset = blockSize - 100;
+            byte[] range = decompressor.decompressRange(compressed.toString(), offset, 200);
+            checkSame(Arrays.copyOfRange(data, offset, offset + 200), range, name + ": por rango");
+        }
+
+        Files.delete(original);
+        Files.delete(compressed);
+        Files.delete(restored);
+        Files.delete(folder);
+        return packed;
+    }
+
+    // Tipo del primer registro de un archivo comprimido en memoria (ej. BLOCK_LZ)
+    public static int firstBlockType(byte[] packed, int blockSize) {
+        return packed[4 + HuffmanFormat.varLongLength(blockSize)] & 0xFF;
+    }
+}
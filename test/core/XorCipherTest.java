@@ -0,0 +1,122 @@
+package core;
+
+import static core.TestSupport.check;
+import static core.TestSupport.checkSame;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * El cifrado XOR anterior, que ahora se aplica de a 8 bytes: largos justo
+ * alrededor de un long, del patrón repetido (MIN_PERIOD) y del buffer de
+ * lectura, claves de varios largos (incluso más largas que el patrón), y
+ * lecturas por stream en trozos de tamaños impares. Los .enc y .ec se
+ * arman aquí byte por byte, como los escribía la versión anterior.
+ */
+public class XorCipherTest {
+
+    // Largo mínimo del patrón de XorKey y tamaño del buffer de processLegacyFile
+    private static final int MIN_PERIOD = 4096;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        Path folder = TestSupport.tempFolder("xor");
+        Path restored = folder.resolve("restaurado.bin");
+        FileProcessor processor = new FileProcessor();
+        Random random = new Random(16);
+
+        // Contraseñas ASCII: el cifrado XOR usa los bytes de la contraseña tal cual
+        String[] passwords = {"k", "abc", "ocho1234", "clave-antigua", "x".repeat(MIN_PERIOD), "larga".repeat(1001)};
+        int[] lengths = {0, 1, 7, 8, 9, 15, 16, 17, MIN_PERIOD - 1, MIN_PERIOD, MIN_PERIOD + 1, 3 * MIN_PERIOD + 5,
+                BUFFER_SIZE + 3};
+
+        for (String password : passwords) {
+            for (int length : lengths) {
+                byte[] data = new byte[length];
+                random.nextBytes(data);
+                String name = length + " bytes, clave de " + password.length();
+
+                // --- 1. .enc del cifrado XOR: por archivo y por stream ---
+                Path enc = folder.resolve("xor.enc");
+                Files.write(enc, xor(data, password));
+                TestSupport.quietly(() -> processor.recoverFile(enc.toString(), restored.toString(), password));
+                checkSame(data, Files.readAllBytes(restored), "XOR .enc / " + name);
+                try (InputStream in = new Encryptor().decrypt(Files.newInputStream(enc), password)) {
+                    checkSame(data, readInOddChunks(in, random), "XOR por stream / " + name);
+                }
+
+                // --- 2. El método anterior sigue siendo su propio inverso ---
+                Path original = folder.resolve("original.bin");
+                Path encrypted = folder.resolve("original.enc");
+                Files.write(original, data);
+                TestSupport.quietly(() -> legacyToggle(original, encrypted, password));
+                checkSame(xor(data, password), Files.readAllBytes(encrypted), "processFile cifra con XOR / " + name);
+                TestSupport.quietly(() -> legacyToggle(encrypted, restored, password));
+                checkSame(data, Files.readAllBytes(restored), "processFile descifra con XOR / " + name);
+            }
+        }
+
+        // --- 3. .ec anterior: un .cmp cifrado con XOR ---
+        byte[] text = "texto comprimido y luego cifrado con XOR\n".repeat(2000).getBytes();
+        Path ec = folder.resolve("xor.ec");
+        Files.write(ec, xor(new HuffmanCompressor().compress(text), "clave-antigua"));
+        TestSupport.quietly(() -> processor.recoverFile(ec.toString(), restored.toString(), "clave-antigua"));
+        checkSame(text, Files.readAllBytes(restored), "XOR .ec");
+
+        // --- 4. skip() mueve la posición de la clave ---
+        byte[] data = new byte[MIN_PERIOD * 2];
+        random.nextBytes(data);
+        Path enc = folder.resolve("salto.enc");
+        Files.write(enc, xor(data, "abc"));
+        try (InputStream in = new Encryptor().decrypt(Files.newInputStream(enc), "abc")) {
+            check(in.read() == (data[0] & 0xFF), "primer byte");
+            long skipped = in.skip(1000);
+            byte[] rest = in.readAllBytes();
+            check(rest.length == data.length - 1 - skipped, "largo después de skip");
+            check(rest[0] == data[1 + (int) skipped], "la clave no avanzó con skip");
+        }
+
+        System.out.println("XorCipherTest: OK");
+    }
+
+    @SuppressWarnings("deprecation")
+    private static void legacyToggle(Path input, Path output, String password) throws Exception {
+        new Encryptor().processFile(input.toString(), output.toString(), password);
+    }
+
+    // Lee todo de a trozos de 1 a 23 bytes, a veces de a un byte con read()
+    private static byte[] readInOddChunks(InputStream in, Random random) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[64];
+        while (true) {
+            if (random.nextInt(4) == 0) {
+                int b = in.read();
+                if (b == -1) {
+                    break;
+                }
+                out.write(b);
+                continue;
+            }
+            int offset = random.nextInt(8);
+            int count = in.read(buffer, offset, 1 + random.nextInt(23));
+            if (count == -1) {
+                break;
+            }
+            out.write(buffer, offset, count);
+        }
+        return out.toByteArray();
+    }
+
+    // Cifrado XOR anterior: cada byte con el byte de la contraseña en la misma posición
+    private static byte[] xor(byte[] data, String password) {
+        byte[] key = password.getBytes();
+        byte[] out = new byte[data.length];
+        for (int i = 0; i < data.length; i++) {
+            out[i] = (byte) (data[i] ^ key[i % key.length]);
+        }
+        return out;
+    }
+}
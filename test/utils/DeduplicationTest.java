@@ -0,0 +1,132 @@
+package utils;
+
+import static core.TestSupport.check;
+import static core.TestSupport.checkSame;
+
+import core.FileProcessor;
+import core.TestSupport;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Deduplicación por contenido en FileWalker.processFolder: las copias se
+ * guardan una sola vez y recoverFolder las vuelve a crear; archivos del
+ * mismo tamaño pero distinto contenido no se confunden; si el original
+ * cambia o se borra, una de las copias pasa a guardarse. También que un
+ * manifiesto con rutas fuera de la carpeta de salida no escriba fuera.
+ */
+public class DeduplicationTest {
+
+    private static final String PASSWORD = "clave123";
+
+    public static void main(String[] args) throws Exception {
+        Path folder = TestSupport.tempFolder("dedup");
+        Path source = folder.resolve("origen");
+        Path output = folder.resolve("salida");
+
+        // --- 1. Una biblioteca copiada en cuatro proyectos, y un archivo del mismo tamaño pero distinto ---
+        byte[] library = "biblioteca compartida ".repeat(3000).getBytes(StandardCharsets.UTF_8);
+        byte[] sameSize = library.clone();
+        sameSize[sameSize.length / 2] ^= 1;
+        for (int i = 0; i < 4; i++) {
+            TestSupport.write(source.resolve("p" + i + "/vendor/lib.js"), library);
+        }
+        TestSupport.write(source.resolve("parecido/lib.js"), sameSize);
+
+        String first = process(source, output);
+        check(TestSupport.countLines(first, "Procesando archivo") == 2, "primera corrida:\n" + first);
+        check(TestSupport.countLines(first, "Duplicado") == 3, "duplicados:\n" + first);
+        Map<String, String> references = FolderManifest.readReferences(output);
+        check(references.size() == 3, "referencias: " + references);
+        check(!references.containsKey("parecido/lib.js"), "un archivo distinto del mismo tamaño quedó como copia");
+        String owner = references.values().iterator().next();
+        for (Map.Entry<String, String> reference : references.entrySet()) {
+            check(reference.getValue().equals(owner), "copias de originales distintos: " + references);
+            check(!Files.exists(output.resolve(reference.getKey() + ".ec")), "se guardó una copia: " + reference.getKey());
+        }
+        checkRecovered(source, output, folder.resolve("recuperado1"));
+
+        // --- 2. El original cambia: una de las copias pasa a guardarse ---
+        TestSupport.write(source.resolve(owner), "el original ya no es la biblioteca".getBytes(StandardCharsets.UTF_8));
+        String changed = process(source, output);
+        check(TestSupport.countLines(changed, "Procesando archivo") == 2, "tras cambiar el original:\n" + changed);
+        references = FolderManifest.readReferences(output);
+        check(references.size() == 2 && !references.containsKey(owner) && !references.containsValue(owner),
+                "referencias tras cambiar el original: " + references);
+        checkRecovered(source, output, folder.resolve("recuperado2"));
+
+        // --- 3. El nuevo original se borra: otra copia toma su lugar ---
+        String newOwner = references.values().iterator().next();
+        Files.delete(source.resolve(newOwner));
+        String deleted = process(source, output);
+        check(TestSupport.countLines(deleted, "Procesando archivo") == 1, "tras borrar el original:\n" + deleted);
+        check(FolderManifest.readReferences(output).size() == 1, "referencias tras borrar el original");
+        checkRecovered(source, output, folder.resolve("recuperado3"));
+
+        // --- 4. El resumen del contenido es el SHA-256 ---
+        byte[] digest = FolderManifest.hash(source.resolve("parecido/lib.js"), sameSize.length);
+        checkSame(MessageDigest.getInstance("SHA-256").digest(sameSize), digest, "SHA-256");
+        check(!Arrays.equals(digest, MessageDigest.getInstance("SHA-256").digest(library)), "mismo resumen para contenidos distintos");
+
+        // --- 5. Un manifiesto con rutas fuera de la carpeta de salida no escribe fuera ---
+        Path hostile = folder.resolve("hostil");
+        Files.createDirectories(hostile);
+        Files.write(folder.resolve("secreto.txt"), "secreto".getBytes(StandardCharsets.UTF_8));
+        writeHostileManifest(hostile.resolve(FolderManifest.FILE_NAME));
+        Path recovered = folder.resolve("recuperado4");
+        TestSupport.checkFails(() -> new FileWalker(2).recoverFolder(hostile.toFile(), recovered.toFile(), new FileProcessor(), PASSWORD),
+                "referencia fuera de la carpeta");
+        check(!Files.exists(folder.resolve("robado.txt")), "se escribió fuera de la carpeta de salida");
+
+        System.out.println("DeduplicationTest: OK");
+    }
+
+    // Comprime y cifra la carpeta (.ec) y devuelve lo que se informó
+    private static String process(Path source, Path output) throws Exception {
+        return TestSupport.quietly(() -> new FileWalker(2).processFolder(source.toFile(), output.toFile(),
+                new FileProcessor(), FileProcessor.OP_COMPRESS_AND_ENCRYPT, PASSWORD, ".ec"));
+    }
+
+    // Recupera la carpeta y la compara archivo por archivo con el origen
+    private static void checkRecovered(Path source, Path output, Path recovered) throws Exception {
+        TestSupport.quietly(() -> new FileWalker(2).recoverFolder(output.toFile(), recovered.toFile(), new FileProcessor(), PASSWORD));
+        List<Path> originals;
+        try (Stream<Path> walk = Files.walk(source)) {
+            originals = walk.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+        for (Path original : originals) {
+            checkSame(original, recovered.resolve(source.relativize(original).toString()), "recuperado: " + original);
+        }
+        long count;
+        try (Stream<Path> walk = Files.walk(recovered)) {
+            count = walk.filter(Files::isRegularFile).count();
+        }
+        check(count == originals.size(), "archivos de más al recuperar: " + count + " de " + originals.size());
+    }
+
+    // Manifiesto versión 3 con una copia "../robado.txt" de "../secreto.txt"
+    private static void writeHostileManifest(Path file) throws IOException {
+        try (DataOutputStream dos = new DataOutputStream(Files.newOutputStream(file))) {
+            dos.write(new byte[] {'H', 'F', 'M'});
+            dos.writeByte(3);
+            dos.writeUTF("configuración");
+            dos.writeByte(0);
+            dos.writeInt(1);
+            dos.writeUTF("../robado.txt");
+            dos.writeLong(7);
+            dos.writeLong(0);
+            dos.writeInt(0);
+            dos.write(new byte[32]);
+            dos.writeUTF("../secreto.txt");
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package utils;
+
+import static core.TestSupport.check;
+import static core.TestSupport.checkSame;
+
+import core.CodecRegistry;
+import core.FileProcessor;
+import core.TestSupport;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * Corridas incrementales de FileWalker.processFolder con el manifiesto de
+ * carpeta: qué se salta (sin cambios, o solo cambió la fecha), qué se
+ * vuelve a procesar (contenido nuevo, salida borrada, otra contraseña u
+ * otra configuración) y qué se borra de la salida (archivos que ya no
+ * están en el origen). Todos los archivos tienen contenido distinto, así
+ * la deduplicación no interviene.
+ */
+public class IncrementalFolderTest {
+
+    private static final String PASSWORD = "clave123";
+
+    public static void main(String[] args) throws Exception {
+        Path folder = TestSupport.tempFolder("incremental");
+        Path source = folder.resolve("origen");
+        Path output = folder.resolve("salida");
+        for (int i = 0; i < 6; i++) {
+            TestSupport.write(source.resolve("dir" + (i % 2) + "/archivo" + i + ".txt"),
+                    ("contenido del archivo " + i + "\n").repeat(300 + i).getBytes(StandardCharsets.UTF_8));
+        }
+
+        // --- 1. Primera corrida: todo se procesa y se guarda el manifiesto ---
+        check(processed(source, output, PASSWORD, new FileProcessor()) == 6, "primera corrida");
+        check(Files.exists(output.resolve(FolderManifest.FILE_NAME)), "no se guardó el manifiesto");
+
+        // --- 2. Sin cambios: no se procesa (ni se lee) nada ---
+        check(processed(source, output, PASSWORD, new FileProcessor()) == 0, "segunda corrida sin cambios");
+
+        // --- 3. Solo cambió la fecha: se lee para comparar el SHA-256, pero no se procesa ---
+        Files.setLastModifiedTime(source.resolve("dir0/archivo0.txt"), FileTime.fromMillis(1_600_000_000_000L));
+        check(processed(source, output, PASSWORD, new FileProcessor()) == 0, "solo cambió la fecha");
+        check(processed(source, output, PASSWORD, new FileProcessor()) == 0, "la fecha nueva no quedó anotada");
+
+        // --- 4. Contenido nuevo, salida borrada a mano y un archivo borrado del origen ---
+        TestSupport.write(source.resolve("dir1/archivo1.txt"), "contenido nuevo".getBytes(StandardCharsets.UTF_8));
+        Files.delete(output.resolve("dir0/archivo2.txt.ec"));
+        Files.delete(source.resolve("dir1/archivo3.txt"));
+        check(processed(source, output, PASSWORD, new FileProcessor()) == 2, "tras los cambios");
+        check(Files.exists(output.resolve("dir0/archivo2.txt.ec")), "no se rehízo la salida borrada");
+        check(!Files.exists(output.resolve("dir1/archivo3.txt.ec")), "no se borró la salida de un archivo borrado");
+
+        Path recovered = folder.resolve("recuperado");
+        TestSupport.quietly(() -> new FileWalker(2).recoverFolder(output.toFile(), recovered.toFile(), new FileProcessor(), PASSWORD));
+        checkSame(source.resolve("dir1/archivo1.txt"), recovered.resolve("dir1/archivo1.txt"), "archivo cambiado");
+        checkSame(source.resolve("dir0/archivo2.txt"), recovered.resolve("dir0/archivo2.txt"), "salida rehecha");
+        check(!Files.exists(recovered.resolve("dir1/archivo3.txt")), "se recuperó un archivo borrado");
+
+        // --- 5. Otra contraseña: todo se vuelve a cifrar ---
+        check(processed(source, output, "otra clave", new FileProcessor()) == 5, "con otra contraseña");
+        check(processed(source, output, "otra clave", new FileProcessor()) == 0, "otra vez con la misma contraseña");
+
+        // --- 6. Otro codificador (otra configuración): todo se vuelve a comprimir ---
+        FileProcessor lz = new FileProcessor(CodecRegistry.byName("lz"));
+        check(processed(source, output, "otra clave", lz) == 5, "con otro codificador");
+        check(processed(source, output, "otra clave", lz) == 0, "otra vez con el mismo codificador");
+
+        System.out.println("IncrementalFolderTest: OK");
+    }
+
+    // Comprime y cifra la carpeta (.ec) y devuelve cuántos archivos se procesaron
+    private static long processed(Path source, Path output, String password, FileProcessor processor) throws Exception {
+        String report = TestSupport.quietly(() -> new FileWalker(2).processFolder(source.toFile(), output.toFile(),
+                processor, FileProcessor.OP_COMPRESS_AND_ENCRYPT, password, ".ec"));
+        return TestSupport.countLines(report, "Procesando archivo");
+    }
+}